@@ -2,22 +2,65 @@ package client;
 
 import client.ui.LobbyFrame;
 import client.ui.ShipPlacementFrame;
+import shared.BinaryProtocol;
+import shared.Board;
 import shared.Packet;
+import shared.PacketConnection;
+import shared.PacketDispatcher;
+import shared.PacketStats;
+import shared.PacketType;
+import shared.PacketView;
+import shared.ShipType;
 
 import javax.swing.*;
 import java.io.*;
 import java.net.Socket;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class Client {
     private static final String SERVER_HOST = "localhost";
     private static final int SERVER_PORT = 12345;
+    // Accept the server's binary protocol offer unless started with -Dbattleship.protocol=text
+    private static final boolean ACCEPT_BINARY = !"text".equalsIgnoreCase(System.getProperty("battleship.protocol"));
+    // Accept frame compression unless started with -Dbattleship.compression=off
+    private static final boolean ACCEPT_COMPRESSION = !"off".equalsIgnoreCase(System.getProperty("battleship.compression"));
+
+    // Bu istemcinin tür bazında paket sayaçları
+    private static final PacketStats PACKET_STATS = new PacketStats();
+
+    // Okuyucu iş parçacığında çalışır: el sıkışma ve atışlar burada işlenir, diğer paketler kopyalanıp EDT'ye aktarılır
+    private static final PacketDispatcher<Client, PacketView> READER_DISPATCHER =
+            new PacketDispatcher<Client, PacketView>(PACKET_STATS)
+                    .on(PacketType.PROTOCOL, (client, view) -> client.handleProtocolNegotiation(view.toPacket().getData()))
+                    .on(PacketType.SHOT_RESULT, Client::postShot)
+                    .on(PacketType.OPPONENT_SHOT, Client::postShot)
+                    .otherwise((client, view) -> {
+                        final Packet packet = view.toPacket();
+                        SwingUtilities.invokeLater(() -> client.processPacket(packet));
+                    });
+
+    // EDT'de çalışır; paketler okunurken zaten sayıldığı için sayaç yok
+    private static final PacketDispatcher<Client, Packet> LOBBY_DISPATCHER =
+            new PacketDispatcher<Client, Packet>(null)
+                    .on(PacketType.CLIENT_ID, Client::handleClientId)
+                    .on(PacketType.CLIENT_LIST, (client, packet) -> client.updateClientList(packet.getData()))
+                    .on(PacketType.PLAYER_JOINED, (client, packet) -> client.playersJoined(packet.getData()))
+                    .on(PacketType.PLAYER_LEFT, (client, packet) -> client.playersLeft(packet.getData()))
+                    .on(PacketType.GAME_INVITE, (client, packet) -> client.handleGameInvite(packet.getData()))
+                    .on(PacketType.INVITE_DECLINED, Client::handleInviteDeclined)
+                    .on(PacketType.GAME_STARTED, (client, packet) -> client.handleLobbyStart(packet.getData()))
+                    .on(PacketType.INVITE_ERROR, Client::handleInviteError)
+                    .on(PacketType.OPPONENT_DISCONNECTED, Client::handleOpponentDisconnected)
+                    .on(PacketType.INVITE_CANCELED, Client::handleInviteCanceled)
+                    .on(PacketType.GAME_READY, Client::handleGameReady)
+                    .otherwise(Client::forwardToGame);
     private boolean isInvited = false; // Davet durumunu izlemek için
     private Socket socket;
-    private BufferedReader in;
-    private PrintWriter out;
+    private PacketConnection connection;
     private GameClient gameClient;
     private LobbyFrame lobbyFrame;
     private ShipPlacementFrame gameFrame;
@@ -25,7 +68,8 @@ public class Client {
     private boolean running;
 
     private int clientId;
-    private List<Integer> activeClients = new ArrayList<>();
+    private List<Integer> activeClients = new ArrayList<>(); // Lobideki sıra
+    private final Set<Integer> activeClientIds = new HashSet<>(); // Üyelik sorguları için, activeClients ile aynı içerik
     private boolean inGame = false;
 
     public Client() {
@@ -46,10 +90,10 @@ public class Client {
     private void connectToServer() {
         try {
             socket = new Socket(SERVER_HOST, SERVER_PORT);
-            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            out = new PrintWriter(socket.getOutputStream(), true);
+            connection = new PacketConnection(socket);
+            connection.setStats(PACKET_STATS);
 
-            packetHandler = new PacketHandler(in, out);
+            packetHandler = new PacketHandler(connection);
             gameClient.setPacketHandler(packetHandler);
 
             // Start listening for server messages
@@ -72,12 +116,14 @@ public class Client {
         running = true;
         new Thread(() -> {
             try {
-                String message;
-                while (running && (message = in.readLine()) != null) {
-                    final Packet packet = Packet.deserialize(message);
-                    SwingUtilities.invokeLater(() -> processPacket(packet));
+                PacketView view = new PacketView(); // Her okumada yeniden kullanılır
+                while (running && connection.read(view)) {
+                    PacketType type = view.packetType();
+                    if (!READER_DISPATCHER.dispatch(this, type, view, view.wireLength())) {
+                        System.err.println("Bilinmeyen paket türü atlandı: " + view.type());
+                    }
                 }
-            } catch (IOException e) {
+            } catch (IOException | IllegalArgumentException e) {
                 if (running) {
                     System.err.println("Connection to server lost: " + e.getMessage());
                     SwingUtilities.invokeLater(() -> {
@@ -91,81 +137,157 @@ public class Client {
             }
         }).start();
     }
+    /**
+     * Sunucunun ikili protokol teklifini kabul eder: kabul satırından sonra gönderilen her şey ikilidir.
+     * Sunucunun onayı son metin satırıdır; ondan sonra okuma da ikiliye geçer. Ardından gelen sıkıştırma teklifi
+     * kabul edilirse büyük çerçeveler iki yönde de sıkıştırılır.
+     */
+    private void handleProtocolNegotiation(String data) throws IOException {
+        if (BinaryProtocol.BINARY_OFFER.equals(data) && ACCEPT_BINARY) {
+            connection.sendAndSwitchToBinary(new Packet(PacketType.PROTOCOL, BinaryProtocol.BINARY_OFFER));
+        } else if (BinaryProtocol.BINARY_ACK.equals(data)) {
+            connection.switchInputToBinary();
+            System.out.println("İkili protokole geçildi.");
+        } else if (BinaryProtocol.COMPRESSION_OFFER.equals(data) && ACCEPT_COMPRESSION && connection.isBinaryInput()) {
+            connection.send(new Packet(PacketType.PROTOCOL, BinaryProtocol.COMPRESSION_OFFER));
+            connection.enableOutputCompression(BinaryProtocol.COMPRESSION_THRESHOLD);
+            System.out.println("Çerçeve sıkıştırması açıldı.");
+        }
+    }
+
+    /**
+     * Sık gelen atış paketleri: alanlar okuyucu iş parçacığında tampondan doğrudan okunur, metin oluşturulmaz.
+     */
+    private void postShot(PacketView view) {
+        final boolean ownShot = view.is(PacketType.SHOT_RESULT);
+        final int row = view.row();
+        final int col = view.col();
+        final int result = view.result();
+        final ShipType shipType = view.shipType();
+        SwingUtilities.invokeLater(() -> processShot(ownShot, row, col, result, shipType));
+    }
+
+    private void processShot(boolean ownShot, int row, int col, int result, ShipType shipType) {
+        if (inGame && gameClient != null) {
+            if (ownShot) {
+                gameClient.processShotResult(row, col, result, shipType);
+            } else {
+                gameClient.processOpponentShot(row, col, result, shipType);
+            }
+        }
+    }
+
     private void processPacket(Packet packet) {
-        switch (packet.getType()) {
-            case "CLIENT_ID":
-                clientId = Integer.parseInt(packet.getData());
-                gameClient.setClientId(clientId);
-                lobbyFrame.setTitle("Battleship Lobby - Player " + clientId);
-                break;
-
-            case "CLIENT_LIST":
-                updateClientList(packet.getData());
-                break;
-
-            case "GAME_INVITE":
-                handleGameInvite(packet.getData());
-                break;
-
-            case "INVITE_DECLINED":
-                System.out.println("Client " + clientId + " declined the invitation");
-                JOptionPane.showMessageDialog(lobbyFrame,
-                        "Player " + clientId + " declined your invitation",
-                        "Invitation Declined", JOptionPane.INFORMATION_MESSAGE);
-                packetHandler.sendMessage("INVITE_STATE_CANCELED", String.valueOf(clientId));
-                setInviteState(false);
-                break;
-
-            case "GAME_STARTED":
-                handleLobbyStart(packet.getData());
-                break;
-
-            case "INVITE_ERROR":
-                System.out.println("hata alıyorum");
-                JOptionPane.showMessageDialog(lobbyFrame,
-                        packet.getData(),
-                        "Davet Hatası1", JOptionPane.WARNING_MESSAGE);
-
-                break;
-            case "OPPONENT_DISCONNECTED":
-                System.out.println("Rakip bağlantısı kesildi");
-                JOptionPane.showMessageDialog(lobbyFrame,
-                        "Rakip bağlantısı kesildi",
-                        "Bağlantı Hatası", JOptionPane.WARNING_MESSAGE);
-                closeShipPlacementFrame();
-                closeGameFrame();
-                setInviteState(false);
-                break;
-            case "INVITE_CANCELED":
-                System.out.println("Client " + clientId + " canceled the invitation");
-                JOptionPane.showMessageDialog(lobbyFrame,
-                        "Davet iptal edildi: " + packet.getData(),
-                        "Davet İptal", JOptionPane.INFORMATION_MESSAGE);
-                setInviteState(false);
-                break;
-            case "GAME_READY":
-                closeShipPlacementFrame();
-
-
-            default:
-                if (inGame && gameClient != null) {
-                    gameClient.processPacket(packet);
+        try {
+            LOBBY_DISPATCHER.dispatch(this, packet.getPacketType(), packet, 0);
+        } catch (IOException e) {
+            System.err.println("Paket işlenemedi (" + packet.getType() + "): " + e.getMessage());
+        }
+    }
 
-                }
-                break;
+    private void handleClientId(Packet packet) {
+        clientId = Integer.parseInt(packet.getData());
+        gameClient.setClientId(clientId);
+        lobbyFrame.setTitle("Battleship Lobby - Player " + clientId);
+    }
+
+    private void handleInviteDeclined(Packet packet) {
+        System.out.println("Client " + clientId + " declined the invitation");
+        JOptionPane.showMessageDialog(lobbyFrame,
+                "Player " + clientId + " declined your invitation",
+                "Invitation Declined", JOptionPane.INFORMATION_MESSAGE);
+        packetHandler.sendMessage(PacketType.INVITE_STATE_CANCELED, String.valueOf(clientId));
+        setInviteState(false);
+    }
+
+    private void handleInviteError(Packet packet) {
+        System.out.println("hata alıyorum");
+        JOptionPane.showMessageDialog(lobbyFrame,
+                packet.getData(),
+                "Davet Hatası1", JOptionPane.WARNING_MESSAGE);
+        setInviteState(false); // Davet gönderilmedi
+    }
+
+    private void handleOpponentDisconnected(Packet packet) {
+        System.out.println("Rakip bağlantısı kesildi");
+        JOptionPane.showMessageDialog(lobbyFrame,
+                "Rakip bağlantısı kesildi",
+                "Bağlantı Hatası", JOptionPane.WARNING_MESSAGE);
+        closeShipPlacementFrame();
+        closeGameFrame();
+        setInviteState(false);
+    }
+
+    private void handleInviteCanceled(Packet packet) {
+        System.out.println("Client " + clientId + " canceled the invitation");
+        JOptionPane.showMessageDialog(lobbyFrame,
+                "Davet iptal edildi: " + packet.getData(),
+                "Davet İptal", JOptionPane.INFORMATION_MESSAGE);
+        setInviteState(false);
+    }
+
+    private void handleGameReady(Packet packet) {
+        closeShipPlacementFrame();
+        forwardToGame(packet);
+    }
+
+    /**
+     * Lobiye ait olmayan paketleri oyun sürerken GameClient'a iletir.
+     */
+    private void forwardToGame(Packet packet) {
+        if (inGame && gameClient != null) {
+            gameClient.processPacket(packet);
         }
     }
 
+    /**
+     * Lobinin tam listesi; sunucu bunu yalnızca bağlanınca gönderir.
+     */
     private void updateClientList(String data) {
         activeClients.clear();
-        if (!data.isEmpty()) {
-            String[] clientIds = data.split(",");
-            for (String id : clientIds) {
-                activeClients.add(Integer.parseInt(id));
+        activeClientIds.clear();
+        for (Integer id : parseClientIds(data)) {
+            if (activeClientIds.add(id)) {
+                activeClients.add(id);
             }
         }
         lobbyFrame.updateClientList(activeClients, clientId);
     }
+
+    /**
+     * Lobiye katılanları listenin sonuna ekler; zaten listede olanlar atlanır (tam liste onları içeriyor olabilir).
+     */
+    private void playersJoined(String data) {
+        List<Integer> joined = new ArrayList<>();
+        for (Integer id : parseClientIds(data)) {
+            if (activeClientIds.add(id)) {
+                activeClients.add(id);
+                joined.add(id);
+            }
+        }
+        lobbyFrame.addClients(joined, clientId);
+    }
+
+    /**
+     * Lobiden ayrılanları (çıkış yapan veya oyuna başlayan) listeden çıkarır; diğer satırlar ve seçim korunur.
+     */
+    private void playersLeft(String data) {
+        Set<Integer> left = new HashSet<>(parseClientIds(data));
+        if (activeClientIds.removeAll(left)) {
+            activeClients.removeIf(left::contains); // Tek geçiş; ayrılan sayısından bağımsız
+            lobbyFrame.removeClients(left);
+        }
+    }
+
+    private static List<Integer> parseClientIds(String data) {
+        List<Integer> ids = new ArrayList<>();
+        if (!data.isEmpty()) {
+            for (String id : data.split(",")) {
+                ids.add(Integer.parseInt(id));
+            }
+        }
+        return ids;
+    }
     private void closeShipPlacementFrame() {
         if (gameFrame != null) {
             gameFrame.dispose();
@@ -192,13 +314,25 @@ public class Client {
         );
 
         boolean accepted = response == JOptionPane.YES_OPTION;
-        packetHandler.sendMessage("INVITE_RESPONSE", fromClientId + "|" + accepted);
+        packetHandler.sendMessage(PacketType.INVITE_RESPONSE, fromClientId + "|" + accepted);
 
     }
 
     private void handleLobbyStart(String data) {
+        // Format: "gameId|oyuncuNo|tahtaBoyutu" (eski sunucular boyut göndermez)
         String[] parts = data.split("\\|");
         String gameId = parts[0];
+        int boardSize = parts.length > 2 ? Integer.parseInt(parts[2]) : Board.DEFAULT_SIZE;
+        if (boardSize < 1 || boardSize > Board.MAX_SIZE) {
+            // Tahta oluşturulamaz; oyunu açmak yerine bağlantıyı kapat, sunucu rakibe haber verir
+            System.err.println("Sunucu desteklenmeyen tahta boyutu gönderdi: " + boardSize);
+            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(lobbyFrame,
+                    "Sunucu desteklenmeyen bir tahta boyutu gönderdi (" + boardSize + "x" + boardSize + ")",
+                    "Bağlantı Hatası", JOptionPane.ERROR_MESSAGE));
+            cleanup();
+            return;
+        }
+        gameClient.setBoardSize(boardSize);
         inGame = true;
 
         SwingUtilities.invokeLater(() -> {
@@ -210,6 +344,13 @@ public class Client {
     }
 
     public void sendInvite(int toClientId) {
+        sendInvite(toClientId, Board.DEFAULT_SIZE);
+    }
+
+    /**
+     * Seçilen tahta boyutuyla davet gönderir. Standart boyut eski formatla ("toClientId") gönderilir.
+     */
+    public void sendInvite(int toClientId, int boardSize) {
 
         // Kullanıcının kendisine davet göndermesini engelle
         if (toClientId == this.clientId) {
@@ -219,16 +360,20 @@ public class Client {
             return;
         }
 
-        packetHandler.sendMessage("INVITE", String.valueOf(toClientId));
+        if (boardSize == Board.DEFAULT_SIZE) {
+            packetHandler.sendMessage(PacketType.INVITE, String.valueOf(toClientId));
+        } else {
+            packetHandler.sendMessage(PacketType.INVITE, toClientId + "|" + boardSize);
+        }
         setInviteState(true); // Davet durumunu güncelle
     }
 
     private void cleanup() {
         running = false;
+        System.out.println("Paket istatistikleri:\n" + PACKET_STATS.report());
         try {
+            if (connection != null) connection.close();
             if (socket != null) socket.close();
-            if (in != null) in.close();
-            if (out != null) out.close();
         } catch (IOException e) {
             System.err.println("Error closing connection: " + e.getMessage());
         }
@@ -1,11 +1,20 @@
 package client;
 
 import shared.Board;
+import shared.BoardStateCodec;
+import shared.CellStatus;
+import shared.Coordinates;
 import shared.Packet;
+import shared.PacketDispatcher;
+import shared.PacketType;
+import shared.PacketView;
 import client.ui.GameFrame;
 import shared.Ship;
+import shared.ShipLayoutCodec;
 import shared.ShipType;
 
+import java.io.IOException;
+
 
 
 public class GameClient {
@@ -17,6 +26,24 @@ public class GameClient {
     private int[] selectedCell;
     private boolean opponentReady = false;
     private GameFrame gameFrame;
+    private int boardSize = Board.DEFAULT_SIZE;
+    // Sunucu tahtalarının en son uygulanan sürümleri (BOARD_STATE/BOARD_DELTA); bilinmiyorsa NO_VERSION
+    private long playerBoardVersion = BoardStateCodec.NO_VERSION;
+    private long opponentBoardVersion = BoardStateCodec.NO_VERSION;
+    private boolean gameOver = false;
+
+    // Oyun paketleri; atışlar Client tarafından doğrudan processShotResult/processOpponentShot ile iletilir
+    private static final PacketDispatcher<GameClient, Packet> DISPATCHER =
+            new PacketDispatcher<GameClient, Packet>(null)
+                    .on(PacketType.YOUR_TURN, GameClient::handleYourTurn)
+                    .on(PacketType.WAIT_TURN, GameClient::handleWaitTurn)
+                    .on(PacketType.MY_SHIPS, (client, packet) -> client.processShipPlacements(client.playerBoard, packet.getData()))
+                    .on(PacketType.OPPONENT_SHIPS, (client, packet) -> client.processShipPlacements(client.opponentBoard, packet.getData()))
+                    .on(PacketType.GAME_READY, (client, packet) -> client.startGame())
+                    .on(PacketType.ERROR, (client, packet) -> client.showError(packet.getData()))
+                    .on(PacketType.GAME_OVER, (client, packet) -> client.processGameOver(packet.getData()))
+                    .on(PacketType.BOARD_STATE, GameClient::handleBoardState)
+                    .on(PacketType.BOARD_DELTA, GameClient::handleBoardDelta);
 
 // Getter ve setter ekleyelim
 public boolean isOpponentReady() {
@@ -48,6 +75,22 @@ public void setOpponentReady(boolean ready) {
     public Board getOpponentBoard() {
         return opponentBoard;
     }
+
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    /**
+     * Yeni oyunun tahta boyutunu ayarlar ve her iki tahtayı bu boyutta yeniden oluşturur.
+     */
+    public void setBoardSize(int boardSize) {
+        this.boardSize = boardSize;
+        playerBoard = new Board(boardSize);
+        opponentBoard = new Board(boardSize);
+        playerBoardVersion = BoardStateCodec.NO_VERSION;
+        opponentBoardVersion = BoardStateCodec.NO_VERSION;
+        gameOver = false;
+    }
     
     public boolean isPlayerTurn() {
         return playerTurn;
@@ -73,57 +116,39 @@ public void setOpponentReady(boolean ready) {
     }
 
     public void resetBoard() {
-        playerBoard = new Board();
+        playerBoard = new Board(boardSize);
+        playerBoardVersion = BoardStateCodec.NO_VERSION;
     }
 
 
 
     public void processPacket(Packet packet) {
-        switch (packet.getType()) {
-            case "YOUR_TURN":
-                System.out.println("Sıra sizde!");
-                playerTurn = true;
-                if (gameFrame != null) {
-                    gameFrame.updateTurnStatusUI(playerTurn);
-                }
-                break;
-            case "WAIT_TURN":
-                System.out.println("Rakibin sırası!");
-                playerTurn = false;
-                if (gameFrame != null) {
-                    gameFrame.updateTurnStatusUI(playerTurn);
-                }
-                break;
-            case "MY_SHIPS":
-                processShipPlacements(playerBoard, packet.getData());
-                break;
-            case "OPPONENT_SHIPS":
-                processShipPlacements(opponentBoard, packet.getData());
-                break;
-            case "GAME_READY":
-                startGame();
-                break;
-            case "SHOT_RESULT":
-                processShotResult(packet.getData());
-                break;
-            case "OPPONENT_SHOT":
-                processOpponentShot(packet.getData());
-                break;
-            case "ERROR":
-                showError(packet.getData());
-                break;
-            case "GAME_OVER":
-                processGameOver(packet.getData());
-                break;
-
+        try {
+            DISPATCHER.dispatch(this, packet.getPacketType(), packet, 0);
+        } catch (IOException e) {
+            System.err.println("Paket işlenemedi (" + packet.getType() + "): " + e.getMessage());
+        }
+    }
 
+    private void handleYourTurn(Packet packet) {
+        System.out.println("Sıra sizde!");
+        playerTurn = true;
+        if (gameFrame != null) {
+            gameFrame.updateTurnStatusUI(playerTurn);
+        }
+    }
 
+    private void handleWaitTurn(Packet packet) {
+        System.out.println("Rakibin sırası!");
+        playerTurn = false;
+        if (gameFrame != null) {
+            gameFrame.updateTurnStatusUI(playerTurn);
         }
     }
 
     public void sendShipsReady(String shipPositions) {
         if (packetHandler != null) {
-            packetHandler.sendMessage("SHIPS_READY", shipPositions);
+            packetHandler.sendMessage(PacketType.SHIPS_READY, shipPositions);
         }
     }
     private void processShipPlacements(Board targetBoard, String data) {
@@ -133,62 +158,41 @@ public void setOpponentReady(boolean ready) {
         }
         targetBoard.resetBoard(); // Yerleştirmeden önce tahtayı temizle (varsa)
 
-        String[] shipsData = data.split(";");
-
-        for (String shipData : shipsData) {
-            String[] parts = shipData.split(",");
-            if (parts.length == 4) {
-                try {
-                    int row = Integer.parseInt(parts[0]);
-                    int col = Integer.parseInt(parts[1]);
-                    int size = Integer.parseInt(parts[2]);
-                    boolean isHorizontal = parts[3].equalsIgnoreCase("H");
-
-                    ShipType shipType = null;
-                    for (ShipType type : ShipType.values()) {
-                        if (type.getSize() == size) {
-                            shipType = type;
-                            break;
-                        }
-                    }
-
-                    if (shipType == null) {
-                        throw new IllegalArgumentException("Geçersiz gemi boyutu: " + size);
-                    }
-
-                    Ship newShip = new Ship(row, col, size, isHorizontal, shipType);
-
-                    // 3. Board'a Ship nesnesini kullanarak yerleştir
-                    if (targetBoard.placeShip(newShip)) { // Değişiklik burada
-                    } else {
-                        System.err.println("  -> UYARI: Gemi yerleştirilemedi! Çakışma veya sınır dışı.");
-                        // Hata durumunda ne yapılacağına karar verilmeli.
-                        // Belki sunucuya hata mesajı gönderilebilir veya oyun başlatılamaz.
-                    }
-                } catch (IllegalArgumentException e) {
-                    System.err.println("Hata: Geçersiz gemi verisi: " + shipData + " - " + e.getMessage());
-                }
-            } else {
-                System.err.println("Hata: Eksik veya hatalı gemi verisi formatı: " + shipData);
+        byte[] layout;
+        try {
+            layout = ShipLayoutCodec.parse(data); // Sıkıştırılmış veya eski biçim
+        } catch (IllegalArgumentException e) {
+            System.err.println("Hata: Geçersiz gemi verisi: " + data + " - " + e.getMessage());
+            return;
+        }
+
+        for (int i = 0; i < ShipLayoutCodec.shipCount(layout.length); i++) {
+            Ship newShip = ShipLayoutCodec.shipAt(layout, i);
+            if (!targetBoard.placeShip(newShip)) {
+                System.err.println("  -> UYARI: Gemi yerleştirilemedi! Çakışma veya sınır dışı.");
+                // Hata durumunda ne yapılacağına karar verilmeli.
+                // Belki sunucuya hata mesajı gönderilebilir veya oyun başlatılamaz.
             }
         }
         System.out.println("Gemi yerleştirme işlemi tamamlandı.");
     }
-    private void processShotResult(String data) {
-        // Atış sonucunu işle
-        String[] parts = data.split(":");
-        String result = parts[0]; // "HIT" veya "MISS"
-        String cellPosition = parts[1]; // "A1" formatında
-
-        // Hücre pozisyonunu satır ve sütun değerlerine dönüştür
-        int row = cellPosition.charAt(0) - 'A';
-        int col = Integer.parseInt(cellPosition.substring(1)) - 1;
-
-        String logMessage = "";
+    /**
+     * Kendi atışımızın sonucunu (SHOT_RESULT) işler. Paket okuyucu iş parçacığında çözülür, bu metot EDT'de çağrılır.
+     *
+     * @param result   {@link PacketView#RESULT_MISS}, {@link PacketView#RESULT_HIT} veya {@link PacketView#RESULT_SUNK}
+     * @param shipType Vurulan gemi tipi; ıskada null
+     */
+    public void processShotResult(int row, int col, int result, ShipType shipType) {
+        if (!playerTurn || isMarked(opponentBoard, row, col)) {
+            // Sırası bizde değilken gelen veya zaten işaretli hücreye ait sonuç: tahta sunucuyla uyuşmuyor
+            System.err.println("Beklenmeyen atış sonucu: " + Coordinates.format(row, col) + ", tahtalar senkronize ediliyor");
+            requestBoardSync();
+            return;
+        }
+        String cellPosition = Coordinates.format(row, col); // Mesajlar için "A1" formatında
 
-        if (result.equals("HIT")) {
-            String shipType = parts[2]; // Vurulan gemi tipi
-            boolean isSunk = parts.length > 3 && parts[3].equals("SUNK");
+        if (result != PacketView.RESULT_MISS) {
+            boolean isSunk = result == PacketView.RESULT_SUNK;
 
             // Rakip tahtasında hücreyi "vuruldu" olarak işaretle
             opponentBoard.markCellAsHit(row, col);
@@ -219,19 +223,19 @@ public void setOpponentReady(boolean ready) {
         }
     }
 
-    private void processOpponentShot(String data) {
-        // Rakibin atış sonucunu işle
-        String[] parts = data.split(":");
-        String cellPosition = parts[0]; // "A1" formatında
-        String result = parts[1]; // "HIT" veya "MISS"
-
-        // Hücre pozisyonunu satır ve sütun değerlerine dönüştür
-        int row = cellPosition.charAt(0) - 'A';
-        int col = Integer.parseInt(cellPosition.substring(1)) - 1;
+    /**
+     * Rakibin bize yaptığı atışı (OPPONENT_SHOT) işler; parametreler {@link #processShotResult} ile aynıdır.
+     */
+    public void processOpponentShot(int row, int col, int result, ShipType shipType) {
+        if (playerTurn || isMarked(playerBoard, row, col)) {
+            System.err.println("Beklenmeyen rakip atışı: " + Coordinates.format(row, col) + ", tahtalar senkronize ediliyor");
+            requestBoardSync();
+            return;
+        }
+        String cellPosition = Coordinates.format(row, col); // Mesajlar için "A1" formatında
 
-        if (result.equals("HIT")) {
-            String shipType = parts[2]; // Vurulan gemi tipi
-            boolean isSunk = parts.length > 3 && parts[3].equals("SUNK");
+        if (result != PacketView.RESULT_MISS) {
+            boolean isSunk = result == PacketView.RESULT_SUNK;
 
             // Kendi tahtamızda hücreyi "vuruldu" olarak işaretle
             playerBoard.markCellAsHit(row, col);
@@ -262,10 +266,82 @@ public void setOpponentReady(boolean ready) {
         }
     }
 
+    /**
+     * Hücreye daha önce ateş edilmiş mi (isabet, ıska veya batık)?
+     */
+    private static boolean isMarked(Board board, int row, int col) {
+        if (row < 0 || col < 0 || row >= board.getRows() || col >= board.getCols()) {
+            return false;
+        }
+        CellStatus status = board.getCellStatus(row, col);
+        return status == CellStatus.HIT || status == CellStatus.MISS || status == CellStatus.SUNK;
+    }
+
+    /**
+     * Sunucudan iki tahtanın da durumunu ister (ör. kaçırılan mesajlardan veya yeniden bağlanmadan sonra).
+     * Daha önce senkronize olunmuş tahta için yalnızca o sürümden sonraki değişiklikler gelir.
+     */
+    public void requestBoardSync() {
+        if (packetHandler != null) {
+            packetHandler.sendMessage(PacketType.BOARD_SYNC, BoardStateCodec.SIDE_OWN + "|" + playerBoardVersion);
+            packetHandler.sendMessage(PacketType.BOARD_SYNC, BoardStateCodec.SIDE_OPPONENT + "|" + opponentBoardVersion);
+        }
+    }
+
+    private void handleBoardState(Packet packet) {
+        String[] parts = packet.getData().split("\\|", 2);
+        boolean own = parts[0].equals(BoardStateCodec.SIDE_OWN);
+        try {
+            long version = BoardStateCodec.applyState(BoardStateCodec.parse(parts[1]), own ? playerBoard : opponentBoard);
+            setBoardVersion(own, version);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Hata: Geçersiz tahta durumu: " + e.getMessage());
+            return;
+        }
+        if (gameFrame != null) {
+            gameFrame.updateBoards();
+        }
+    }
+
+    private void handleBoardDelta(Packet packet) {
+        String[] parts = packet.getData().split("\\|", 2);
+        boolean own = parts[0].equals(BoardStateCodec.SIDE_OWN);
+        long knownVersion = own ? playerBoardVersion : opponentBoardVersion;
+        try {
+            byte[] delta = BoardStateCodec.parse(parts[1]);
+            if (knownVersion < BoardStateCodec.deltaFromVersion(delta)) {
+                // Aradaki değişiklikler eksik; tam durumu iste
+                packetHandler.sendMessage(PacketType.BOARD_SYNC, parts[0] + "|" + BoardStateCodec.NO_VERSION);
+                return;
+            }
+            if (BoardStateCodec.deltaToVersion(delta) <= knownVersion) {
+                return; // Zaten uygulanmış
+            }
+            setBoardVersion(own, BoardStateCodec.applyDelta(delta, own ? playerBoard : opponentBoard));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Hata: Geçersiz tahta deltası: " + e.getMessage());
+            return;
+        }
+        if (gameFrame != null) {
+            gameFrame.updateBoards();
+        }
+    }
+
+    private void setBoardVersion(boolean own, long version) {
+        if (own) {
+            playerBoardVersion = version;
+        } else {
+            opponentBoardVersion = version;
+        }
+    }
+
     private void showError(String errorMessage) {
         System.err.println("Hata: " + errorMessage);
         if (gameFrame != null) {
             gameFrame.showError(errorMessage);
+            if (!gameOver) {
+                requestBoardSync(); // Reddedilen hamle tahtaların ayrıştığını gösterebilir
+            }
         }
     }
 
@@ -286,6 +362,7 @@ public void setOpponentReady(boolean ready) {
 
         // Oyunu sıfırla veya başka bir işlem yap
         playerTurn = false;
+        gameOver = true;
     }
 
 
@@ -294,7 +371,7 @@ public void setOpponentReady(boolean ready) {
     public void sendFireCommand(int row, int col) {
         if (packetHandler != null) {
             String command = row + "," + col;
-            packetHandler.sendMessage("FIRE", command);
+            packetHandler.sendMessage(PacketType.FIRE, command);
         }
     }
 
@@ -305,6 +382,7 @@ public void setOpponentReady(boolean ready) {
             this.setGameFrame(gameFrame);
             gameFrame.updateTurnStatusUI(playerTurn);
             gameFrame.setVisible(true);
+            requestBoardSync(); // Tahta sürümlerini al; sonraki senkronizasyonlar yalnızca değişiklikleri getirir
         });
     }
 
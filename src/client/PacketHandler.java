@@ -1,24 +1,27 @@
 package client;
 
 import shared.Packet;
+import shared.PacketConnection;
+import shared.PacketType;
 
-import java.io.BufferedReader;
-import java.io.PrintWriter;
+import java.io.IOException;
 
 public class PacketHandler {
-    private BufferedReader in;
-    private PrintWriter out;
+    private PacketConnection connection;
 
-    public PacketHandler(BufferedReader in, PrintWriter out) {
-        this.in = in;
-        this.out = out;
+    public PacketHandler(PacketConnection connection) {
+        this.connection = connection;
     }
 
     public void sendPacket(Packet packet) {
-        out.println(packet.serialize());
+        try {
+            connection.send(packet);
+        } catch (IOException e) {
+            System.err.println("Error sending packet " + packet.getType() + ": " + e.getMessage());
+        }
     }
 
-    public void sendMessage(String type, String data) {
+    public void sendMessage(PacketType type, String data) {
         Packet packet = new Packet(type,data);
         sendPacket(packet);
     }
@@ -0,0 +1,255 @@
+package client.ui;
+
+import shared.Coordinates;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+
+/**
+ * Tahtayı tek bir bileşen olarak çizer: hücre başına buton yoktur ve yalnızca görünen (kırpma alanındaki) hücreler
+ * boyanır. {@link #createScrollPane()} ile kaydırılabilir bir görünüm içine konur; satır harfleri ve sütun
+ * numaraları kaydırmayla birlikte hareket eden başlıklarda gösterilir. Böylece 1000x1000 gibi büyük tahtalar da
+ * küçük tahtalarla aynı maliyetle çizilir.
+ */
+@SuppressWarnings("serial") // Swing bileşeni; hiçbir zaman serileştirilmez
+public final class BoardCanvas extends JComponent implements Scrollable {
+    private static final int LARGE_BOARD = 20; // Bu kenarın üzerindeki tahtalarda hücreler küçülür
+    private static final int LARGE_CELL_SIZE = 24;
+    private static final Color GRID_COLOR = new Color(100, 100, 100);
+    private static final Color HEADER_BACKGROUND = new Color(230, 240, 250);
+    private static final Color HEADER_FOREGROUND = new Color(25, 25, 112);
+
+    /**
+     * Tek bir hücreyi (x, y) konumunda, size x size alanına çizer.
+     */
+    public interface CellPainter {
+        void paintCell(Graphics2D g, int row, int col, int x, int y, int size);
+    }
+
+    /**
+     * Hücrelerin üzerine çizilen katman (ör. gemi gövdeleri); hücreler çizildikten sonra çağrılır.
+     */
+    public interface OverlayPainter {
+        void paintOverlay(Graphics2D g, int cellSize);
+    }
+
+    /**
+     * Fare olayları; hover'da fare tahtadan çıkınca row ve col -1 olur.
+     */
+    public interface CellListener {
+        void cellClicked(int row, int col);
+
+        default void cellHovered(int row, int col) {
+        }
+    }
+
+    private final int rows;
+    private final int cols;
+    private final int cellSize;
+    private final CellPainter cellPainter;
+    private OverlayPainter overlayPainter;
+    private CellListener cellListener;
+    private int hoverRow = -1;
+    private int hoverCol = -1;
+
+    /**
+     * @param preferredCellSize Küçük tahtalarda hücre kenarı (piksel); büyük tahtalarda hücreler küçültülür.
+     */
+    public BoardCanvas(int rows, int cols, int preferredCellSize, CellPainter cellPainter) {
+        this.rows = rows;
+        this.cols = cols;
+        this.cellSize = Math.max(rows, cols) > LARGE_BOARD ? Math.min(preferredCellSize, LARGE_CELL_SIZE) : preferredCellSize;
+        this.cellPainter = cellPainter;
+        setOpaque(true);
+        setFocusable(false);
+
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = e.getY() / cellSize;
+                int col = e.getX() / cellSize;
+                if (cellListener != null && isEnabled() && row < rows && col < cols) {
+                    cellListener.cellClicked(row, col);
+                }
+            }
+
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                int row = e.getY() / cellSize;
+                int col = e.getX() / cellSize;
+                if (row >= rows || col >= cols) {
+                    row = -1;
+                    col = -1;
+                }
+                updateHover(row, col);
+            }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                updateHover(-1, -1);
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+    }
+
+    public void setOverlayPainter(OverlayPainter overlayPainter) {
+        this.overlayPainter = overlayPainter;
+    }
+
+    public void setCellListener(CellListener cellListener) {
+        this.cellListener = cellListener;
+    }
+
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    private void updateHover(int row, int col) {
+        if (row == hoverRow && col == hoverCol) {
+            return;
+        }
+        hoverRow = row;
+        hoverCol = col;
+        if (cellListener != null && isEnabled()) {
+            cellListener.cellHovered(row, col);
+        }
+    }
+
+    /**
+     * Verilen hücre aralığını (her iki uç dahil) yeniden çizer.
+     */
+    public void repaintCells(int fromRow, int fromCol, int toRow, int toCol) {
+        repaint(fromCol * cellSize, fromRow * cellSize, (toCol - fromCol + 1) * cellSize, (toRow - fromRow + 1) * cellSize);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2d = (Graphics2D) g;
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        // Yalnızca kırpma alanına düşen hücreler
+        int fromRow = Math.max(0, clip.y / cellSize);
+        int toRow = Math.min(rows - 1, (clip.y + clip.height - 1) / cellSize);
+        int fromCol = Math.max(0, clip.x / cellSize);
+        int toCol = Math.min(cols - 1, (clip.x + clip.width - 1) / cellSize);
+
+        for (int row = fromRow; row <= toRow; row++) {
+            for (int col = fromCol; col <= toCol; col++) {
+                cellPainter.paintCell(g2d, row, col, col * cellSize, row * cellSize, cellSize);
+            }
+        }
+        g2d.setColor(GRID_COLOR);
+        for (int row = fromRow; row <= toRow + 1 && row <= rows; row++) {
+            g2d.drawLine(fromCol * cellSize, row * cellSize, (toCol + 1) * cellSize, row * cellSize);
+        }
+        for (int col = fromCol; col <= toCol + 1 && col <= cols; col++) {
+            g2d.drawLine(col * cellSize, fromRow * cellSize, col * cellSize, (toRow + 1) * cellSize);
+        }
+        if (overlayPainter != null) {
+            overlayPainter.paintOverlay(g2d, cellSize);
+        }
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(cols * cellSize + 1, rows * cellSize + 1);
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        Dimension full = getPreferredSize();
+        // Küçük tahtalar tamamen görünür; büyükler için en fazla LARGE_BOARD hücrelik bir pencere
+        return new Dimension(Math.min(full.width, LARGE_BOARD * cellSize), Math.min(full.height, LARGE_BOARD * cellSize));
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return cellSize;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        int visible = orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+        return Math.max(cellSize, visible - cellSize);
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return false;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+
+    /**
+     * Tahtayı satır (harf) ve sütun (sayı) başlıklarıyla kaydırılabilir bir görünüme koyar.
+     */
+    public JScrollPane createScrollPane() {
+        JScrollPane scrollPane = new JScrollPane(this);
+        scrollPane.setColumnHeaderView(new Header(true));
+        scrollPane.setRowHeaderView(new Header(false));
+        scrollPane.setBorder(BorderFactory.createEmptyBorder());
+        return scrollPane;
+    }
+
+    /**
+     * Koordinat başlığı; tahta gibi yalnızca görünen etiketleri çizer.
+     */
+    private final class Header extends JComponent {
+        private final boolean columns; // true: üstte sütun numaraları, false: solda satır harfleri
+
+        Header(boolean columns) {
+            this.columns = columns;
+            setOpaque(true);
+            setFont(new Font("Arial", Font.BOLD, Math.max(10, Math.min(14, cellSize / 3 + 4))));
+        }
+
+        @Override
+        public Dimension getPreferredSize() {
+            if (columns) {
+                return new Dimension(cols * cellSize + 1, cellSize);
+            }
+            // En uzun satır etiketine göre genişlik
+            int width = getFontMetrics(getFont()).stringWidth(Coordinates.rowLabel(rows - 1)) + 10;
+            return new Dimension(Math.max(cellSize, width), rows * cellSize + 1);
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            Rectangle clip = g.getClipBounds();
+            if (clip == null) {
+                clip = new Rectangle(0, 0, getWidth(), getHeight());
+            }
+            g.setColor(HEADER_BACKGROUND);
+            g.fillRect(clip.x, clip.y, clip.width, clip.height);
+            g.setColor(HEADER_FOREGROUND);
+            FontMetrics metrics = g.getFontMetrics();
+            int count = columns ? cols : rows;
+            int start = columns ? clip.x : clip.y;
+            int end = columns ? clip.x + clip.width : clip.y + clip.height;
+            // Sütun numaraları hücreden genişse yalnızca her step. numara yazılır (1, step, 2*step, ...)
+            int step = columns ? Math.max(1, (metrics.stringWidth(Integer.toString(cols)) + 4 + cellSize - 1) / cellSize) : 1;
+            for (int i = Math.max(0, start / cellSize); i < count && i * cellSize < end; i++) {
+                if (i != 0 && (i + 1) % step != 0) {
+                    continue;
+                }
+                String label = columns ? Integer.toString(i + 1) : Coordinates.rowLabel(i);
+                int offset = i * cellSize;
+                if (columns) {
+                    g.drawString(label, offset + (cellSize - metrics.stringWidth(label)) / 2,
+                            (cellSize + metrics.getAscent() - metrics.getDescent()) / 2);
+                } else {
+                    g.drawString(label, (getWidth() - metrics.stringWidth(label)) / 2,
+                            offset + (cellSize + metrics.getAscent() - metrics.getDescent()) / 2);
+                }
+            }
+        }
+    }
+}
@@ -2,137 +2,139 @@ package client.ui;
 
 import client.GameClient;
 import shared.Board;
+import shared.BoardSnapshot;
 import shared.CellStatus;
 
 
 import javax.swing.*;
 import java.awt.*;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 
-public class BoardPanel extends JPanel implements ActionListener {
+/**
+ * Oyun sırasında bir tahtayı gösterir. Hücreler tek bir {@link BoardCanvas} üzerinde çizilir; büyük tahtalar
+ * kaydırılarak oynanır.
+ */
+public class BoardPanel extends JPanel {
+
+    private static final int CELL_SIZE = 35; // Küçük tahtalarda hücre kenarı (piksel)
+    private static final Color HOVER_COLOR = new Color(135, 206, 250);
 
-    private static final int GRID_SIZE = 10; // Tahta boyutu (10x10)
     private final Board board; // Bu panelin gösterdiği tahta verisi
     private final boolean isOpponentBoard; // Bu panel rakip tahtası mı? (Tıklanabilirlik için)
     private final GameClient gameClient; // Oyun mantığına erişim için
-    private final JButton[][] buttons; // Grid hücrelerini temsil eden butonlar
+    private final BoardCanvas canvas; // Tüm hücreleri çizen tek bileşen
+    private final Font markFont; // İsabet/ıska işaretleri
+    private transient BoardSnapshot snapshot; // Tüm hücreler aynı tahta sürümünden boyanır
+    private boolean turnActive; // Rakip tahtasında ateş edilebilir mi?
+    private int hoverRow = -1;
+    private int hoverCol = -1;
 
     public BoardPanel(Board board, boolean isOpponentBoard, GameClient gameClient) {
         this.board = board;
         this.isOpponentBoard = isOpponentBoard; // 'clickable' yerine daha açıklayıcı bir isim
         this.gameClient = gameClient;
-        this.buttons = new JButton[GRID_SIZE][GRID_SIZE];
-
-        setLayout(new GridLayout(GRID_SIZE, GRID_SIZE));
-        initializeButtons();
-        refreshBoard(); // Başlangıç durumunu butonlara yansıt
-    }
-
-    private void initializeButtons() {
-        for (int row = 0; row < GRID_SIZE; row++) {
-            for (int col = 0; col < GRID_SIZE; col++) {
-                JButton button = new JButton();
-                button.setPreferredSize(new Dimension(35, 35));
-                button.setFont(new Font("Arial", Font.BOLD, 16));
-                button.setActionCommand(row + "," + col);
-
-                if (isOpponentBoard) {
-                    button.addActionListener(this);
-                    // Başlangıçta butonların etkinliği setTurnActive ile ayarlanacak
-                    button.setEnabled(false); // Başlangıçta pasif yapalım
-                } else {
-                    button.setEnabled(false); // Kendi tahtamız her zaman pasif
+        this.canvas = new BoardCanvas(board.getRows(), board.getCols(), CELL_SIZE, this::paintCell);
+        this.markFont = new Font("Arial", Font.BOLD, Math.max(10, canvas.getCellSize() / 2));
+
+        if (isOpponentBoard) {
+            canvas.setCellListener(new BoardCanvas.CellListener() {
+                @Override
+                public void cellClicked(int row, int col) {
+                    fireAt(row, col);
                 }
 
-                buttons[row][col] = button;
-                add(button);
-            }
+                @Override
+                public void cellHovered(int row, int col) {
+                    hover(row, col);
+                }
+            });
         }
+
+        setLayout(new BorderLayout());
+        add(canvas.createScrollPane(), BorderLayout.CENTER);
+        refreshBoard(); // Başlangıç durumunu yansıt
     }
 
-    @Override
-    public void actionPerformed(ActionEvent e) {
+    private void fireAt(int row, int col) {
         // Bu kontrol hala önemli, çift tıklama veya beklenmedik durumlar için
-        if (!isOpponentBoard || !gameClient.isPlayerTurn()) {
-            // İsteğe bağlı: Burada tekrar mesaj göstermeye gerek olmayabilir,
-            // çünkü buton zaten etkin olmayacak. Ama güvenlik için kalabilir.
-             JOptionPane.showMessageDialog(this, "Sıra rakipte!", "Bekle", JOptionPane.INFORMATION_MESSAGE);
+        if (!turnActive || !gameClient.isPlayerTurn()) {
+            JOptionPane.showMessageDialog(this, "Sıra rakipte!", "Bekle", JOptionPane.INFORMATION_MESSAGE);
             return;
         }
 
-        String command = e.getActionCommand();
-        String[] parts = command.split(",");
-        int row = Integer.parseInt(parts[0]);
-        int col = Integer.parseInt(parts[1]);
-
-        CellStatus currentStatus = board.getCellStatus(row, col);
+        CellStatus currentStatus = snapshot.getCellStatus(row, col);
         if (currentStatus == CellStatus.HIT || currentStatus == CellStatus.MISS || currentStatus == CellStatus.SUNK) {
-             JOptionPane.showMessageDialog(this, "Bu hücreye zaten ateş ettiniz!", "Geçersiz Hamle", JOptionPane.WARNING_MESSAGE);
-            // Buton zaten pasif olmalı, bu mesaj da isteğe bağlı.
+            JOptionPane.showMessageDialog(this, "Bu hücreye zaten ateş ettiniz!", "Geçersiz Hamle", JOptionPane.WARNING_MESSAGE);
             return;
         }
 
         System.out.println("Ateş ediliyor: (" + row + ", " + col + ")");
         gameClient.sendFireCommand(row, col);
-        // Ateş ettikten sonra sıra değişene kadar tekrar tıklamayı engellemek için
-        // tüm tahtayı pasif hale getirebiliriz (opsiyonel ama iyi bir pratik).
-         setTurnActive(false); // Sunucudan cevap gelene kadar tekrar tıklamayı önler
+        // Sunucudan cevap gelene kadar tekrar tıklamayı önler
+        turnActive = false;
+        canvas.repaint();
     }
 
-    public void refreshBoard() {
-        boolean isMyTurn = gameClient.isPlayerTurn(); // Mevcut sıra durumunu al
-        for (int row = 0; row < GRID_SIZE; row++) {
-            for (int col = 0; col < GRID_SIZE; col++) {
-                CellStatus status = board.getCellStatus(row, col);
-                JButton button = buttons[row][col];
-                updateButtonAppearance(button, status, isMyTurn); // Sıra bilgisini de gönder
-            }
+    private void hover(int row, int col) {
+        int oldRow = hoverRow;
+        int oldCol = hoverCol;
+        hoverRow = row;
+        hoverCol = col;
+        if (oldRow >= 0) {
+            canvas.repaintCells(oldRow, oldCol, oldRow, oldCol);
+        }
+        if (row >= 0) {
+            canvas.repaintCells(row, col, row, col);
         }
-        revalidate();
-        repaint();
     }
 
-    // updateButtonAppearance metodunu sıra bilgisini alacak şekilde güncelle
-    private void updateButtonAppearance(JButton button, CellStatus status, boolean isPlayerTurnNow) {
-        button.setText("");
-        button.setBackground(null); // Reset background
-        boolean enableButton = false; // Buton etkinleştirilecek mi?
+    public void refreshBoard() {
+        turnActive = isOpponentBoard && gameClient.isPlayerTurn(); // Mevcut sıra durumunu al
+        snapshot = board.snapshot();
+        canvas.repaint(); // Yalnızca görünen hücreler yeniden çizilir
+    }
+
+    private void paintCell(Graphics2D g, int row, int col, int x, int y, int size) {
+        CellStatus status = snapshot.getCellStatus(row, col);
+        Color background;
+        String text = null;
 
         switch (status) {
             case EMPTY:
             case SHIP: // Rakip tahtasındaki SHIP, oyuncu için EMPTY gibidir
-                button.setBackground(Color.CYAN);
-                // Sadece rakip tahtasındaysa, boşsa ve sıra oyuncudaysa etkinleştir
-                enableButton = isOpponentBoard && isPlayerTurnNow;
+                background = Color.CYAN;
+                // Kendi tahtamızda gemileri farklı göster
+                if (!isOpponentBoard && status == CellStatus.SHIP) {
+                    background = Color.GRAY;
+                } else if (turnActive && row == hoverRow && col == hoverCol) {
+                    background = HOVER_COLOR; // Ateş edilebilecek hücre
+                }
                 break;
             case HIT:
-                button.setBackground(Color.RED);
-                button.setText("X");
-                enableButton = false; // Vurulan yerler her zaman pasif
+                background = Color.RED;
+                text = "X";
                 break;
             case MISS:
-                button.setBackground(Color.BLUE);
-                button.setText("O");
-                enableButton = false; // Iska geçilen yerler her zaman pasif
+                background = Color.BLUE;
+                text = "O";
                 break;
             case SUNK:
-                button.setBackground(Color.DARK_GRAY);
-                button.setText("X");
-                enableButton = false; // Batırılan yerler her zaman pasif
+                background = Color.DARK_GRAY;
+                text = "X";
                 break;
             default:
-                button.setBackground(null);
-                enableButton = false;
+                background = getBackground();
                 break;
         }
 
-        // Kendi tahtamızdaysa gemileri farklı göster (isteğe bağlı)
-        if (!isOpponentBoard && status == CellStatus.SHIP) {
-            button.setBackground(Color.GRAY);
+        g.setColor(background);
+        g.fillRect(x, y, size, size);
+        if (text != null) {
+            g.setColor(Color.WHITE);
+            g.setFont(markFont);
+            FontMetrics metrics = g.getFontMetrics();
+            g.drawString(text, x + (size - metrics.stringWidth(text)) / 2,
+                    y + (size + metrics.getAscent() - metrics.getDescent()) / 2);
         }
-
-        button.setEnabled(enableButton);
     }
 
 
@@ -141,4 +143,4 @@ public class BoardPanel extends JPanel implements ActionListener {
         refreshBoard();
 
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package client.ui;
 
 import client.Client;
+import shared.Board;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
@@ -9,12 +10,14 @@ import java.awt.event.KeyEvent;
 import java.awt.image.BufferedImage;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Set;
 
 public class LobbyFrame extends JFrame {
     private Client client;
     private DefaultListModel<String> clientListModel;
     private JList<String> clientList;
     private JButton inviteButton;
+    private JComboBox<Integer> boardSizeComboBox;
     private JLabel statusLabel;
     private JPanel mainPanel;
     private List<Integer> clientsList;
@@ -28,6 +31,7 @@ public class LobbyFrame extends JFrame {
     // Ship definitions
     private final String[] SHIP_NAMES = {"carrier", "battleship", "cruiser", "submarine", "destroyer"};
     private final int[] SHIP_LENGTHS = {5, 4, 3, 3, 2};
+    private final Integer[] BOARD_SIZES = {Board.DEFAULT_SIZE, 12, 15, 20, 50, 100, Board.MAX_SIZE}; // Büyük tahtalar kaydırılarak oynanır
     private final Color[] SHIP_COLORS = {
             new Color(60, 60, 60),    // Carrier (dark gray)
             new Color(80, 80, 80),    // Battleship
@@ -242,7 +246,20 @@ public class LobbyFrame extends JFrame {
         inviteButton.setMnemonic(KeyEvent.VK_I); // Alt+I shortcut
         inviteButton.addActionListener(e -> sendInvite());
 
+        // Davet edilen oyunun tahta boyutu
+        JLabel boardSizeLabel = new JLabel("Tahta:");
+        boardSizeLabel.setForeground(NAVY_BLUE);
+        boardSizeComboBox = new JComboBox<>(BOARD_SIZES);
+        boardSizeComboBox.setRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value,
+                                                          int index, boolean isSelected, boolean cellHasFocus) {
+                return super.getListCellRendererComponent(list, value + "x" + value, index, isSelected, cellHasFocus);
+            }
+        });
 
+        buttonPanel.add(boardSizeLabel);
+        buttonPanel.add(boardSizeComboBox);
         buttonPanel.add(inviteButton);
 
         return buttonPanel;
@@ -262,7 +279,7 @@ public class LobbyFrame extends JFrame {
                     return;
                 }
 
-                client.sendInvite(targetClientId);
+                client.sendInvite(targetClientId, (Integer) boardSizeComboBox.getSelectedItem());
                 statusLabel.setText("Oyuncu " + targetClientId + "'e davet gönderildi...");
             } catch (IndexOutOfBoundsException e) {
                 JOptionPane.showMessageDialog(this,
@@ -278,12 +295,65 @@ public class LobbyFrame extends JFrame {
 
         clientListModel.clear();
         for (Integer clientId : clients) {
-            if (clientId == myClientId) {
-                clientListModel.addElement("Oyuncu " + clientId + " (Ben)");
-            } else {
-                clientListModel.addElement("Oyuncu " + clientId);
+            clientListModel.addElement(playerLabel(clientId, myClientId));
+        }
+    }
+
+    /**
+     * Yeni oyuncuları listenin sonuna ekler; mevcut satırlar ve seçim olduğu gibi kalır.
+     */
+    public void addClients(List<Integer> joined, int myClientId) {
+        if (clientsList == null) {
+            clientsList = new ArrayList<>();
+        }
+        for (Integer clientId : joined) {
+            clientsList.add(clientId);
+            clientListModel.addElement(playerLabel(clientId, myClientId));
+        }
+    }
+
+    /**
+     * Ayrılan oyuncuların satırlarını kaldırır; seçili oyuncu ayrılmadıysa seçili kalır.
+     */
+    public void removeClients(Set<Integer> left) {
+        if (clientsList == null || left.isEmpty()) {
+            return;
+        }
+        int selectedIndex = clientList.getSelectedIndex();
+        Integer selectedId = selectedIndex >= 0 ? clientsList.get(selectedIndex) : null;
+        boolean inviteEnabled = inviteButton.isEnabled();
+
+        // Kalan satırlar tek geçişte toplanır; satır satır silmek her seferinde listeyi kaydırırdı
+        List<Integer> remaining = new ArrayList<>(clientsList.size());
+        List<String> labels = new ArrayList<>(clientsList.size());
+        int newSelectedIndex = -1;
+        for (int i = 0; i < clientsList.size(); i++) {
+            Integer clientId = clientsList.get(i);
+            if (left.contains(clientId)) {
+                continue;
+            }
+            if (clientId.equals(selectedId)) {
+                newSelectedIndex = remaining.size();
             }
+            remaining.add(clientId);
+            labels.add(clientListModel.get(i));
         }
+        if (remaining.size() == clientsList.size()) {
+            return; // Listede olmayan oyuncular
+        }
+
+        clientsList = remaining;
+        clientListModel.clear();
+        clientListModel.addAll(labels);
+        if (newSelectedIndex >= 0) {
+            clientList.setSelectedIndex(newSelectedIndex);
+        }
+        // Seçim dinleyicisi butonu açmış olabilir; bekleyen davet varsa kapalı kalır
+        inviteButton.setEnabled(inviteEnabled && newSelectedIndex >= 0);
+    }
+
+    private static String playerLabel(int clientId, int myClientId) {
+        return clientId == myClientId ? "Oyuncu " + clientId + " (Ben)" : "Oyuncu " + clientId;
     }
 
     // Davet durumunu güncellemek için yeni bir metot
@@ -1,7 +1,10 @@
 package client.ui;
 
 import client.GameClient;
+import shared.FleetGenerator;
+import shared.PlacementEngine;
 import shared.Ship;
+import shared.ShipLayoutCodec;
 import shared.ShipType;
 
 import javax.swing.*;
@@ -11,24 +14,21 @@ import javax.swing.border.EmptyBorder;
 import javax.swing.border.TitledBorder;
 
 import java.awt.*;
-import java.awt.event.MouseAdapter;
-import java.awt.event.MouseEvent;
-import java.awt.GradientPaint;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Random;
 
 public class ShipPlacementFrame extends JFrame {
     private final GameClient gameClient;
-    private JPanel boardPanel;
-    private JButton[][] boardButtons;
+    private BoardCanvas boardCanvas; // Tahtanın tamamı tek bileşende çizilir; büyük tahtalar kaydırılır
     private JPanel shipSelectionPanel;
     private JLabel statusLabel;
     private JButton readyButton;
     private JComboBox<String> orientationComboBox;
 
-    private static final int BOARD_SIZE = 10;
+    private final int boardSize; // Oyun başına belirlenen tahta boyutu
 
     // Gemi boyutları ve sayıları
     private final int[] shipSizes = {5, 4, 3, 3, 2};
@@ -46,7 +46,15 @@ public class ShipPlacementFrame extends JFrame {
     private List<Ship> placedShips = new ArrayList<>();
 
     // Gemi yerleştirme ilgili durum
-    private boolean[][] boardState = new boolean[BOARD_SIZE][BOARD_SIZE];
+    private boolean[][] boardState;
+    private int hoverRow = -1; // Farenin üzerinde olduğu hücre; yoksa -1
+    private int hoverCol = -1;
+    private transient Ship pendingShip; // Onay bekleyen geçici gemi
+
+    // Yasal yerleştirme tabloları (önizleme, tıklama ve rastgele yerleştirme için)
+    private final PlacementEngine placementEngine;
+    private final FleetGenerator fleetGenerator; // Rastgele yerleştirme: tüm yasal yerleşimler eşit olasılıklı
+    private final Random random = new Random();
 
 	private boolean[] shipPlaced; // Hangi gemilerin yerleştirildiğini takip etmek için
 
@@ -55,11 +63,16 @@ public class ShipPlacementFrame extends JFrame {
     private Color lightBlue = new Color(173, 216, 230);
     private Color darkBlue = new Color(25, 25, 112);
     private Color hoverBlue = new Color(135, 206, 250);
+    private Color previewGreen = new Color(144, 238, 144); // Açık yeşil önizleme
     private Color waterBackground = new Color(0, 105, 148);
 
     public ShipPlacementFrame(GameClient gameClient) {
         Objects.requireNonNull(gameClient, "GameClient cannot be null");
         this.gameClient = gameClient;
+        this.boardSize = gameClient.getBoardSize();
+        this.boardState = new boolean[boardSize][boardSize];
+        this.placementEngine = new PlacementEngine(boardSize, boardSize);
+        this.fleetGenerator = new FleetGenerator(boardSize, boardSize);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setSize(900, 700);
         setLocationRelativeTo(null);
@@ -116,87 +129,23 @@ public class ShipPlacementFrame extends JFrame {
         statusLabel.setOpaque(true);
         statusLabel.setBackground(new Color(240, 248, 255));
 
-        // Tahta paneli
-        boardPanel = new JPanel(new GridLayout(BOARD_SIZE, BOARD_SIZE)) {
+        // Tahta: koordinat başlıkları kaydırma görünümünde
+        boardCanvas = new BoardCanvas(boardSize, boardSize, 45, this::paintCell);
+        boardCanvas.setOverlayPainter(this::paintShips);
+        boardCanvas.setCellListener(new BoardCanvas.CellListener() {
             @Override
-            protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-                Graphics2D g2d = (Graphics2D) g;
-                
-                // Deniz arka planı - dalga efekti
-                int w = getWidth();
-                int h = getHeight();
-                GradientPaint gp = new GradientPaint(
-                    0, 0, new Color(0, 105, 148), 
-                    0, h, new Color(0, 150, 200)
-                );
-                g2d.setPaint(gp);
-                g2d.fillRect(0, 0, w, h);
+            public void cellClicked(int row, int col) {
+                handleBoardClick(row, col);
             }
-        };
-        boardPanel.setBorder(new LineBorder(darkBlue, 2));
 
-        // Koordinat göstergeleri
-        JPanel boardWithCoordinates = new JPanel(new BorderLayout(0, 0));
-        JPanel hCoord = new JPanel(new GridLayout(1, BOARD_SIZE));
-        JPanel vCoord = new JPanel(new GridLayout(BOARD_SIZE, 1));
-        
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            JLabel hLabel = new JLabel(Character.toString((char)('A' + i)), JLabel.CENTER);
-            hLabel.setFont(new Font("Arial", Font.BOLD, 14));
-            hLabel.setForeground(darkBlue);
-            hCoord.add(hLabel);
-            
-            JLabel vLabel = new JLabel(Integer.toString(i+1), JLabel.CENTER);
-            vLabel.setFont(new Font("Arial", Font.BOLD, 14));
-            vLabel.setForeground(darkBlue);
-            vCoord.add(vLabel);
-        }
-        
-        hCoord.setBackground(new Color(230, 240, 250));
-        vCoord.setBackground(new Color(230, 240, 250));
-        
-        boardWithCoordinates.add(hCoord, BorderLayout.NORTH);
-        boardWithCoordinates.add(vCoord, BorderLayout.WEST);
-        boardWithCoordinates.add(boardPanel, BorderLayout.CENTER);
-        
-        boardButtons = new JButton[BOARD_SIZE][BOARD_SIZE];
-
-        // Tahta butonlarını oluştur
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                final int row = i;
-                final int col = j;
-                boardButtons[i][j] = new JButton();
-                boardButtons[i][j].setPreferredSize(new Dimension(45, 45));
-                boardButtons[i][j].setBackground(lightBlue);
-                boardButtons[i][j].setFocusPainted(false);
-                boardButtons[i][j].setBorderPainted(true);
-                boardButtons[i][j].setBorder(new LineBorder(new Color(100, 100, 100), 1));
-                boardButtons[i][j].addActionListener(e -> handleBoardClick(row, col));
-                
-                // Fare üzerine gelme efekti
-                boardButtons[i][j].addMouseListener(new MouseAdapter() {
-                    @Override
-                    public void mouseEntered(MouseEvent e) {
-                        if (!boardState[row][col]) {
-                            boardButtons[row][col].setBackground(hoverBlue);
-                            previewShipPlacement(row, col);
-                        }
-                    }
-                    
-                    @Override
-                    public void mouseExited(MouseEvent e) {
-                        if (!boardState[row][col]) {
-                            boardButtons[row][col].setBackground(lightBlue);
-                            clearShipPreview();
-                        }
-                    }
-                });
-                
-                boardPanel.add(boardButtons[i][j]);
+            // Fare üzerine gelme efekti ve gemi önizlemesi
+            @Override
+            public void cellHovered(int row, int col) {
+                hoverRow = row;
+                hoverCol = col;
+                boardCanvas.repaint();
             }
-        }
+        });
 
         // Gemi seçim paneli
         shipSelectionPanel = new JPanel();
@@ -248,7 +197,7 @@ public class ShipPlacementFrame extends JFrame {
         orientationComboBox = new JComboBox<>(new String[]{"Yatay", "Dikey"});
         orientationComboBox.setFont(new Font("Arial", Font.PLAIN, 14));
         orientationComboBox.setPreferredSize(new Dimension(100, 30));
-        orientationComboBox.addActionListener(e -> clearShipPreview());
+        orientationComboBox.addActionListener(e -> boardCanvas.repaint());
         orientationPanel.add(orientationComboBox);
 
         // Rastgele yerleştirme butonu
@@ -348,7 +297,9 @@ public class ShipPlacementFrame extends JFrame {
             darkBlue
         ));
         boardWrapper.setOpaque(false);
-        boardWrapper.add(boardPanel, BorderLayout.CENTER);
+        JScrollPane boardScrollPane = boardCanvas.createScrollPane();
+        boardScrollPane.setBorder(new LineBorder(darkBlue, 2));
+        boardWrapper.add(boardScrollPane, BorderLayout.CENTER);
         centerPanel.add(boardWrapper, BorderLayout.CENTER);
 
         // Gemi seçim panelini sağda göster
@@ -372,86 +323,96 @@ public class ShipPlacementFrame extends JFrame {
         add(infoPanel, BorderLayout.SOUTH);
     }
     
-    // Fare üzerinde geçici önizleme göster
-    private void previewShipPlacement(int row, int col) {
+    /**
+     * Bir hücrenin zeminini çizer: boş su, fare altındaki hücre ve seçili geminin yasal önizlemesi.
+     * Gemiler {@link #paintShips} ile hücrelerin üzerine çizilir.
+     */
+    private void paintCell(Graphics2D g2d, int row, int col, int x, int y, int size) {
+        Color color = lightBlue;
+        if (!boardState[row][col] && boardCanvas.isEnabled()) {
+            if (isInPreview(row, col)) {
+                color = previewGreen;
+            } else if (row == hoverRow && col == hoverCol) {
+                color = hoverBlue;
+            }
+        }
+        g2d.setColor(color);
+        g2d.fillRect(x, y, size, size);
+    }
+
+    // Fare üzerindeki hücreden başlayan, seçili geminin yasal önizlemesi bu hücreyi kapsıyor mu?
+    private boolean isInPreview(int row, int col) {
+        if (hoverRow < 0 || pendingShip != null || shipPlaced[selectedShipIndex]) {
+            return false;
+        }
         int shipSize = shipSizes[selectedShipIndex];
         boolean isHorizontal = orientationComboBox.getSelectedIndex() == 0;
-        
-        if (!shipPlaced[selectedShipIndex] && canPlaceShip(row, col, shipSize, isHorizontal)) {
-            showTemporaryShipPreview(row, col, shipSize, isHorizontal);
-        }
+        boolean covered = isHorizontal
+                ? row == hoverRow && col >= hoverCol && col < hoverCol + shipSize
+                : col == hoverCol && row >= hoverRow && row < hoverRow + shipSize;
+        return covered && canPlaceShip(hoverRow, hoverCol, shipSize, isHorizontal);
     }
-    
-    private void showTemporaryShipPreview(int row, int col, int shipSize, boolean isHorizontal) {
-        // Geçici gemi önizlemesi
-        for (int i = 0; i < shipSize; i++) {
-            int r = isHorizontal ? row : row + i;
-            int c = isHorizontal ? col + i : col;
-            
-            if (r < BOARD_SIZE && c < BOARD_SIZE && !boardState[r][c]) {
-                boardButtons[r][c].setBackground(new Color(144, 238, 144, 150)); // Yarı-saydam yeşil
-            }
+
+    // Yerleştirilmiş gemileri ve onay bekleyen gemiyi çizer
+    private void paintShips(Graphics2D g2d, int cellSize) {
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        Rectangle clip = g2d.getClipBounds();
+        for (Ship ship : placedShips) {
+            paintShip(g2d, ship, cellSize, clip);
         }
+        if (pendingShip != null) {
+            paintShip(g2d, pendingShip, cellSize, clip);
+        }
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
     }
-    
-    private void clearShipPreview() {
-        // Tüm geçici önizlemeleri temizle
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                if (!boardState[i][j]) {
-                    boardButtons[i][j].setBackground(lightBlue);
-                }
-            }
+
+    private void paintShip(Graphics2D g2d, Ship ship, int cellSize, Rectangle clip) {
+        int margin = Math.max(2, cellSize / 10);
+        int x = ship.getCol() * cellSize;
+        int y = ship.getRow() * cellSize;
+        int width = (ship.isHorizontal() ? ship.getLength() : 1) * cellSize;
+        int height = (ship.isHorizontal() ? 1 : ship.getLength()) * cellSize;
+        if (clip != null && !clip.intersects(x, y, width, height)) {
+            return; // Görünmüyor
         }
+
+        // Gemi gövdesi için koyu gri renk
+        g2d.setColor(new Color(80, 80, 80));
+        g2d.fillRoundRect(x + margin, y + margin, width - 2 * margin, height - 2 * margin, cellSize / 2, cellSize / 2);
+
+        // Geminin ortasına yuvarlak bir komuta merkezi ekle (daha açık gri ton)
+        g2d.setColor(new Color(120, 120, 120));
+        int circleSize = cellSize / 3;
+        g2d.fillOval(x + (width - circleSize) / 2, y + (height - circleSize) / 2, circleSize, circleSize);
     }
-    
+
     // Rastgele gemi yerleştirme
     private void randomPlaceShips() {
         // Önce tüm gemileri temizle
         clearAllShips();
         
-        // Her gemi için rastgele yerleştirme dene
-        for (int i = 0; i < shipSizes.length; i++) {
+        // Filo sırası gemi butonlarıyla aynıdır (ShipType.values())
+        Ship[] layout = fleetGenerator.generate(random);
+        for (int i = 0; i < layout.length; i++) {
             selectedShipIndex = i;
-            boolean placed = false;
-            int maxAttempts = 100; // Sonsuz döngüye girmemek için
-            
-            while (!placed && maxAttempts > 0) {
-                boolean isHorizontal = Math.random() > 0.5;
-                int maxRow = isHorizontal ? BOARD_SIZE - 1 : BOARD_SIZE - shipSizes[i];
-                int maxCol = isHorizontal ? BOARD_SIZE - shipSizes[i] : BOARD_SIZE - 1;
-                
-                int row = (int)(Math.random() * (maxRow + 1));
-                int col = (int)(Math.random() * (maxCol + 1));
-                
-                if (canPlaceShip(row, col, shipSizes[i], isHorizontal)) {
-                    placeShip(row, col, shipSizes[i], isHorizontal, ShipType.values()[i]);
-                    shipPlaced[i] = true;
-                    placed = true;
-                }
-                
-                maxAttempts--;
-            }
+            Ship ship = layout[i];
+            placeShip(ship.getRow(), ship.getCol(), ship.getLength(), ship.isHorizontal(), ship.getType());
+            shipPlaced[i] = true;
         }
-        
+
         // Tüm gemileri yerleştirme kontrolü
         checkAllShipsPlaced();
     }
     
     // Tüm gemileri temizle
     private void clearAllShips() {
-        // Tüm gemi yerleşimlerini sıfırla
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                boardState[i][j] = false;
-                boardButtons[i][j].setIcon(null);
-                boardButtons[i][j].setOpaque(true);
-                boardButtons[i][j].setContentAreaFilled(true);
-                boardButtons[i][j].setBorderPainted(true);
-                boardButtons[i][j].setBackground(lightBlue);
-                boardButtons[i][j].setEnabled(true);
-            }
+        // Tüm gemi yerleşimlerini sıfırla; yalnızca gemilerin hücreleri doluydu
+        for (Ship ship : placedShips) {
+            markShipCells(ship, false);
         }
+        pendingShip = null;
+        boardCanvas.setEnabled(true);
+        boardCanvas.repaint();
         
         // Gemi butonlarını etkinleştir
         JPanel shipButtonsPanel = (JPanel) shipSelectionPanel.getComponent(0);
@@ -462,6 +423,7 @@ public class ShipPlacementFrame extends JFrame {
         
         // Yerleştirilen gemileri temizle
         placedShips.clear();
+        placementEngine.clear();
         
         // İlk gemiyi seç
         selectShip(0);
@@ -487,6 +449,7 @@ private void selectShip(int index) {
     selectedButton.setBackground(new Color(144, 238, 144)); // Açık yeşil
 
     statusLabel.setText(shipNames[selectedShipIndex] + " gemisini yerleştirin");
+    boardCanvas.repaint(); // Önizleme yeni gemiyle çizilir
 }
 
 private void handleBoardClick(int row, int col) {
@@ -506,6 +469,7 @@ private void handleBoardClick(int row, int col) {
             "Gemiyi buraya yerleştirmek istiyor musunuz?",
             "Yerleştirme Onayı",
             JOptionPane.YES_NO_OPTION);
+        pendingShip = null; // Onay penceresi kapandı; gemi yerleşir ya da kaldırılır
 
         if (response == JOptionPane.YES_OPTION) {
             placeShip(row, col, shipSize, isHorizontal, ShipType.values()[selectedShipIndex]);
@@ -515,7 +479,7 @@ private void handleBoardClick(int row, int col) {
             selectNextUnplacedShip();
         } else {
             // Geçici görünümü temizle
-            clearTemporaryShip(row, col, shipSize, isHorizontal);
+            boardCanvas.repaint();
         }
     } else {
         statusLabel.setText("Gemi buraya yerleştirilemez! Başka bir yer deneyin.");
@@ -526,120 +490,28 @@ private void placeShip(int startRow, int startCol, int shipSize, boolean isHoriz
     // Yeni gemiyi oluştur
     Ship ship = new Ship(startRow, startCol, shipSize, isHorizontal, shipType);
     placedShips.add(ship);
+    placementEngine.place(ship);
 
-    // Gemi desenini oluştur ve butonlarda göster
-    for (int i = 0; i < shipSize; i++) {
-        int row = isHorizontal ? startRow : startRow + i;
-        int col = isHorizontal ? startCol + i : startCol;
-        boardState[row][col] = true;
-        
-        JButton button = boardButtons[row][col];
-        button.setOpaque(false);
-        button.setContentAreaFilled(false);
-        button.setBorderPainted(false);
-        
-        // Gemi görünümünü ayarla
-        button.setIcon(createShipIcon(i, shipSize, isHorizontal));
-    }
+    markShipCells(ship, true);
+    boardCanvas.repaint();
 
     // Bu gemi butonunu devre dışı bırak çünkü yerleştirildi
     JPanel shipButtonsPanel = (JPanel) shipSelectionPanel.getComponent(0);
     shipButtonsPanel.getComponent(selectedShipIndex).setEnabled(false);
 }
 
-// Gemi ikonlarını oluştur
-private ImageIcon createShipIcon(int position, int shipSize, boolean isHorizontal) {
-    int width = boardButtons[0][0].getWidth();
-    int height = boardButtons[0][0].getHeight();
-    
-    if (width <= 0) width = 45;
-    if (height <= 0) height = 45;
-    
-    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-    Graphics2D g2d = image.createGraphics();
-    
-    // Kenar yumuşatma
-    g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-    
-    // Gemi gövdesi için koyu gri renk
-    Color shipColor = new Color(80, 80, 80);
-    g2d.setColor(shipColor);
-    
-    int margin = 4;
-    int shipWidth = isHorizontal ? width - 2 * margin : width - 2 * margin;
-    int shipHeight = isHorizontal ? height - 2 * margin : height - 2 * margin;
-    
-    // Gemi gövdesini çiz
-    if (isHorizontal) {
-        if (position == 0) { // Başlangıç (baş kısmı)
-            g2d.fillRoundRect(margin, margin, shipWidth, shipHeight, 10, 10);
-            g2d.fillRect(shipWidth / 2, margin, shipWidth / 2, shipHeight);
-        } else if (position == shipSize - 1) { // Bitiş (kıç kısmı)
-            g2d.fillRoundRect(margin, margin, shipWidth, shipHeight, 10, 10);
-            g2d.fillRect(margin, margin, shipWidth / 2, shipHeight);
-        } else { // Orta kısım
-            g2d.fillRect(margin, margin, shipWidth, shipHeight);
-        }
-    } else { // Dikey
-        if (position == 0) { // Üst kısım
-            g2d.fillRoundRect(margin, margin, shipWidth, shipHeight, 10, 10);
-            g2d.fillRect(margin, shipHeight / 2, shipWidth, shipHeight / 2);
-        } else if (position == shipSize - 1) { // Alt kısım
-            g2d.fillRoundRect(margin, margin, shipWidth, shipHeight, 10, 10);
-            g2d.fillRect(margin, margin, shipWidth, shipHeight / 2);
-        } else { // Orta kısım
-            g2d.fillRect(margin, margin, shipWidth, shipHeight);
-        }
+private void markShipCells(Ship ship, boolean occupied) {
+    for (int i = 0; i < ship.getLength(); i++) {
+        int row = ship.isHorizontal() ? ship.getRow() : ship.getRow() + i;
+        int col = ship.isHorizontal() ? ship.getCol() + i : ship.getCol();
+        boardState[row][col] = occupied;
     }
-    
-    // Geminin ortasına yuvarlak bir komuta merkezi ekle
-    if ((position == shipSize / 2) || (shipSize > 3 && position == 1)) {
-        // Daha açık gri ton
-        g2d.setColor(new Color(120, 120, 120));
-        int circleSize = Math.min(width, height) / 3;
-        int circleX = (width - circleSize) / 2;
-        int circleY = (height - circleSize) / 2;
-        g2d.fillOval(circleX, circleY, circleSize, circleSize);
-    }
-    
-    g2d.dispose();
-    return new ImageIcon(image);
 }
 
 private void showTemporaryShip(int row, int col, int shipSize, boolean isHorizontal) {
-    // Geminin geçici görünümünü oluştur
-    for (int i = 0; i < shipSize; i++) {
-        int r = isHorizontal ? row : row + i;
-        int c = isHorizontal ? col + i : col;
-        
-        if (r < BOARD_SIZE && c < BOARD_SIZE) {
-            JButton button = boardButtons[r][c];
-            if (!boardState[r][c]) {
-                button.setIcon(createShipIcon(i, shipSize, isHorizontal));
-                button.setOpaque(false);
-                button.setContentAreaFilled(false);
-                button.setBorderPainted(false);
-            }
-        }
-    }
-}
-
-private void clearTemporaryShip(int row, int col, int shipSize, boolean isHorizontal) {
-    for (int i = 0; i < shipSize; i++) {
-        int r = isHorizontal ? row : row + i;
-        int c = isHorizontal ? col + i : col;
-        
-        if (r < BOARD_SIZE && c < BOARD_SIZE) {
-            JButton button = boardButtons[r][c];
-            if (!boardState[r][c]) { // Eğer hücrede başka gemi yoksa
-                button.setIcon(null);
-                button.setOpaque(true);
-                button.setContentAreaFilled(true);
-                button.setBorderPainted(true);
-                button.setBackground(lightBlue);
-            }
-        }
-    }
+    // Geminin geçici görünümü; onay penceresi açıkken çizilir
+    pendingShip = new Ship(row, col, shipSize, isHorizontal, ShipType.values()[selectedShipIndex]);
+    boardCanvas.repaint(); // Modal pencere açıkken de çizilir
 }
 
 private void selectNextUnplacedShip() {
@@ -654,37 +526,8 @@ private void selectNextUnplacedShip() {
 }
 
     private boolean canPlaceShip(int startRow, int startCol, int shipSize, boolean isHorizontal) {
-        // Tahtanın sınırları içinde mi kontrol et
-        if (isHorizontal) {
-            if (startCol + shipSize > BOARD_SIZE) return false;
-        } else {
-            if (startRow + shipSize > BOARD_SIZE) return false;
-        }
-
-        // Diğer gemilerle çakışma kontrolü
-        for (int i = 0; i < shipSize; i++) {
-            int row = isHorizontal ? startRow : startRow + i;
-            int col = isHorizontal ? startCol + i : startCol;
-
-            // Hücre zaten kullanılmış mı veya komşu hücrelerde gemi var mı kontrol et
-            if (boardState[row][col] || hasAdjacentShip(row, col)) {
-                return false;
-            }
-        }
-
-        return true;
-    }
-
-    private boolean hasAdjacentShip(int row, int col) {
-        // Komşu hücrelerde gemi var mı kontrol et (çapraz hücreler dahil)
-        for (int r = Math.max(0, row - 1); r <= Math.min(BOARD_SIZE - 1, row + 1); r++) {
-            for (int c = Math.max(0, col - 1); c <= Math.min(BOARD_SIZE - 1, col + 1); c++) {
-                if (boardState[r][c]) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        // Sınır, çakışma ve komşuluk kontrolü motorun tablolarından tek bit okumasıdır
+        return placementEngine.isLegal(shipSize, startRow, startCol, isHorizontal);
     }
 
     private void checkAllShipsPlaced() {
@@ -711,22 +554,13 @@ private void sendReady() {
 
     int clientId = gameClient.getClientId();
 
-    StringBuilder shipData = new StringBuilder();
-
     for (Ship ship : placedShips) {
-        String shipInfo = String.format("%d,%d,%d,%s",
-            ship.getRow(), ship.getCol(), ship.getLength(), ship.isHorizontal() ? "H" : "V");
-        shipData.append(shipInfo).append(";");
-
-        System.out.printf("Gemi gönderiliyor: Satır=%d, Sütun=%d, Boyut=%d, Yatay mı=%b%n",
-            ship.getRow(), ship.getCol(), ship.getLength(), ship.isHorizontal());
+        System.out.printf("Gemi gönderiliyor: %s Satır=%d, Sütun=%d, Boyut=%d, Yatay mı=%b%n",
+            ship.getType(), ship.getRow(), ship.getCol(), ship.getLength(), ship.isHorizontal());
     }
 
-    if (shipData.length() > 0 && shipData.charAt(shipData.length() - 1) == ';') {
-        shipData.setLength(shipData.length() - 1);
-    }
-
-    String finalData = shipData.toString();
+    // Gemi tipi, konum ve yön gemi başına 5 baytta kodlanır; CRUISER/SUBMARINE ayrımı korunur
+    String finalData = ShipLayoutCodec.toText(ShipLayoutCodec.encode(placedShips));
     System.out.println("Gönderen Client ID: " + clientId); // Loglama için kalabilir
     System.out.println("Gönderilen veri: " + finalData); // Artık clientId| içermeyecek
     gameClient.sendShipsReady(finalData);
@@ -737,12 +571,9 @@ private void sendReady() {
 }
 
     private void disableBoard() {
-        // Tahta hücrelerini devre dışı bırak
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                boardButtons[i][j].setEnabled(false);
-            }
-        }
+        // Tahta artık tıklamaya ve önizlemeye kapalı
+        boardCanvas.setEnabled(false);
+        boardCanvas.repaint();
     }
 
 
@@ -1,120 +1,292 @@
 package server;
 
+import shared.BinaryProtocol;
+import shared.BoardStateCodec;
+import shared.EncodedPacket;
 import shared.Packet;
+import shared.PacketConnection;
+import shared.PacketDispatcher;
+import shared.PacketType;
+import shared.PacketView;
+import shared.ShipType;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
 import java.net.Socket;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class ClientHandler implements Runnable {
+    // Offer the binary protocol after CLIENT_ID unless started with -Dbattleship.protocol=text
+    private static final boolean OFFER_BINARY = !"text".equalsIgnoreCase(System.getProperty("battleship.protocol"));
+    // Offer frame compression to binary clients unless started with -Dbattleship.compression=off
+    private static final boolean OFFER_COMPRESSION = !"off".equalsIgnoreCase(System.getProperty("battleship.compression"));
+
+    // Handlers for packets a client may send; FIRE reads the view directly, the rest get a copied Packet
+    private static final PacketDispatcher<ClientHandler, PacketView> DISPATCHER =
+            new PacketDispatcher<ClientHandler, PacketView>(Server.PACKET_STATS)
+                    .on(PacketType.FIRE, ClientHandler::handleFire)
+                    .on(PacketType.PROTOCOL, (handler, view) -> handler.handleProtocol(view.toPacket()))
+                    .on(PacketType.INVITE, (handler, view) -> handler.handleInvite(view.toPacket()))
+                    .on(PacketType.INVITE_RESPONSE, (handler, view) -> handler.handleInviteResponse(view.toPacket()))
+                    .on(PacketType.SHIPS_READY, (handler, view) -> handler.handleShipsReady(view.toPacket()))
+                    .on(PacketType.INVITE_STATE_CANCELED, (handler, view) -> handler.handleInviteStateCanceled(view.toPacket()))
+                    .on(PacketType.BOARD_SYNC, (handler, view) -> handler.handleBoardSync(view.toPacket()));
+
     private int clientId;
-    private Socket socket;
     private Server server;
-    private BufferedReader in;
-    private PrintWriter out;
-    private boolean running;
+    private PacketConnection connection;
+    private OutboundQueue outboundQueue; // Thread modes only; null when an event loop sends
+    private volatile boolean running;
+    private final AtomicBoolean removed = new AtomicBoolean(); // disconnected() runs once
+    // Set while in a game; FIRE goes straight to its shard
+    private final AtomicReference<GameSession> gameSession = new AtomicReference<>();
 
 
+    /**
+     * Thread-per-connection mode: {@link #run()} reads the socket on its own thread, and a second thread sends
+     * what the {@link OutboundQueue} collects, so sending to this client never blocks the sender.
+     */
     public ClientHandler(int clientId, Socket socket, Server server) {
         this.clientId = clientId;
-        this.socket = socket;
         this.server = server;
         this.running = true;
 
         try {
-            this.in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            this.out = new PrintWriter(socket.getOutputStream(), true);
+            this.outboundQueue = new OutboundQueue(clientId, socket);
+            this.connection = new PacketConnection(outboundQueue, socket.getInputStream(), outboundQueue);
+            this.connection.setStats(Server.PACKET_STATS);
         } catch (IOException e) {
             System.err.println("Error setting up client handler: " + e.getMessage());
             running = false;
         }
     }
 
+    /**
+     * Event loop mode: the {@link NioConnection} owning {@code connection} feeds packets to
+     * {@link #processPacket(PacketView)}.
+     */
+    ClientHandler(int clientId, PacketConnection connection, Server server) {
+        this.clientId = clientId;
+        this.server = server;
+        this.connection = connection;
+        this.running = true;
+    }
+
     @Override
     public void run() {
+        if (outboundQueue != null) {
+            // The writer is the same kind of thread as this reader
+            Thread.Builder writer = Thread.currentThread().isVirtual() ? Thread.ofVirtual() : Thread.ofPlatform().daemon();
+            writer.name("client-" + clientId + "-writer").start(outboundQueue);
+        }
         try {
-            // Send the client their ID
-            sendPacket(new Packet("CLIENT_ID", Integer.toString(clientId)));
+            greet();
 
-            // Process client messages
-            String message;
-            while (running && (message = in.readLine()) != null) {
-                processMessage(message);
+            // Process client messages; the view is reused for every packet
+            PacketView view = new PacketView();
+            while (running) {
+                if (!connection.read(view)) {
+                    break;
+                }
+                processPacket(view);
             }
         } catch (IOException e) {
             System.err.println("Error handling client " + clientId + ": " + e.getMessage());
         } finally {
+            disconnected();
+        }
+    }
+
+    /**
+     * Sends the client its ID, the protocol offer and the lobby list; the first things a new connection receives.
+     */
+    @SuppressWarnings("try") // batch only scopes the sends; closing it flushes them
+    void greet() {
+        try (OutboundBatch batch = OutboundBatch.of(this)) {
+            sendPacket(new Packet(PacketType.CLIENT_ID, Integer.toString(clientId)));
+            if (OFFER_BINARY) {
+                // Old clients ignore this; new ones accept and both sides switch to binary frames
+                sendPacket(new Packet(PacketType.PROTOCOL, BinaryProtocol.BINARY_OFFER));
+            }
+        }
+        // Outside the batch: the server takes its lobby lock before any connection's write lock
+        server.lobbyJoined(this);
+    }
+
+    /**
+     * Closes the connection and removes the client from the server. Runs once, however the connection ended.
+     */
+    void disconnected() {
+        if (removed.compareAndSet(false, true)) {
             close();
             server.removeClient(clientId);
         }
     }
 
-    private void processMessage(String message) {
+    void processPacket(PacketView view) throws IOException {
         try {
-            Packet packet = Packet.deserialize(message);
+            PacketType type = view.packetType();
+            if (!DISPATCHER.dispatch(this, type, view, view.wireLength())) {
+                System.err.println((type == null ? "Unknown" : "Unexpected") + " packet type from client " + clientId + ": " + view.type());
+            }
+        } catch (IOException e) {
+            throw e; // Connection failure, handled by run()
+        } catch (Exception e) {
+            // Malformed packet; its line or frame was consumed, so the stream is still in sync
+            System.err.println("Error processing message from client " + clientId + ": " + e.getMessage());
+        }
+    }
 
-            switch (packet.getType()) {
-                case "INVITE":
-                    int toClientId = Integer.parseInt(packet.getData());
-                    server.handleInvitation(clientId, toClientId);
-                    break;
-                case "INVITE_RESPONSE":
-                    String[] parts = packet.getData().split("\\|");
-                    int fromClientId = Integer.parseInt(parts[0]);
-                    boolean accepted = Boolean.parseBoolean(parts[1]);
-                    server.handleInviteResponse(fromClientId, clientId, accepted);
-                    break;
-                // YENİ CASE EKLEYİN
-                case "SHIPS_READY":
-                    String shipPositions = packet.getData();
-                    server.handleShipsReady(clientId, shipPositions);
-                    break;
-                case "INVITE_STATE_CANCELED":
-                    System.out.println("Client " + clientId + " canceled the invitation.");
-                    server.handleInviteCanceled(clientId);
-                    break;
-                case "FIRE":
-                    System.out.println("Client " + clientId + " fired.");
-                    String[] fireParts = packet.getData().split(",");
-                    int row = Integer.parseInt(fireParts[0]);
-                    int col = Integer.parseInt(fireParts[1]);
-                    GameSession gameSession = server.findGameSessionByPlayerId(clientId);
-                    if (gameSession != null) {
-                        gameSession.processFireCommand(clientId, row, col);
-                    } else {
-                        System.err.println("Client " + clientId + " için aktif oyun bulunamadı (FIRE işlemi).");
-                    }
-                    break;
+    private void handleProtocol(Packet packet) throws IOException {
+        if (OFFER_BINARY && BinaryProtocol.BINARY_OFFER.equals(packet.getData()) && !connection.isBinaryInput()) {
+            // Everything after the client's acceptance is binary; our ack is the last text line
+            connection.switchInputToBinary();
+            connection.sendAndSwitchToBinary(new Packet(PacketType.PROTOCOL, BinaryProtocol.BINARY_ACK));
+            System.out.println("Client " + clientId + " switched to the binary protocol.");
+            if (OFFER_COMPRESSION) {
+                sendPacket(new Packet(PacketType.PROTOCOL, BinaryProtocol.COMPRESSION_OFFER));
+            }
+        } else if (OFFER_COMPRESSION && BinaryProtocol.COMPRESSION_OFFER.equals(packet.getData()) && connection.isBinaryInput()) {
+            // The client accepted: large frames to it are compressed from now on
+            connection.enableOutputCompression(BinaryProtocol.COMPRESSION_THRESHOLD);
+            System.out.println("Client " + clientId + " enabled frame compression.");
+        }
+    }
 
+    private void handleInvite(Packet packet) {
+        // Format: "toClientId" veya "toClientId|boardSize"
+        String[] inviteParts = packet.getData().split("\\|");
+        int toClientId = Integer.parseInt(inviteParts[0]);
+        if (inviteParts.length > 1) {
+            server.handleInvitation(clientId, toClientId, Integer.parseInt(inviteParts[1]));
+        } else {
+            server.handleInvitation(clientId, toClientId);
+        }
+    }
 
+    private void handleInviteResponse(Packet packet) {
+        String[] parts = packet.getData().split("\\|");
+        int fromClientId = Integer.parseInt(parts[0]);
+        boolean accepted = Boolean.parseBoolean(parts[1]);
+        server.handleInviteResponse(fromClientId, clientId, accepted);
+    }
 
+    private void handleShipsReady(Packet packet) {
+        String shipPositions = packet.getData();
+        server.handleShipsReady(clientId, shipPositions);
+    }
 
+    private void handleInviteStateCanceled(Packet packet) {
+        System.out.println("Client " + clientId + " canceled the invitation.");
+        server.handleInviteCanceled(clientId);
+    }
 
+    private void handleBoardSync(Packet packet) {
+        // Format: "side|lastKnownVersion"
+        String[] parts = packet.getData().split("\\|");
+        boolean ownBoard = parts[0].equals(BoardStateCodec.SIDE_OWN);
+        long knownVersion = Long.parseLong(parts[1]);
+        GameSession gameSession = this.gameSession.get();
+        if (gameSession != null) {
+            // Queued behind the shots already received, so the reply includes them
+            gameSession.execute(() -> gameSession.sendBoardSync(clientId, ownBoard, knownVersion));
+        } else {
+            System.err.println("Client " + clientId + " için aktif oyun bulunamadı (BOARD_SYNC işlemi).");
+        }
+    }
 
+    private void handleFire(PacketView view) {
+        int row = view.row(); // Hot path: read straight from the buffer, no Packet or strings
+        int col = view.col();
+        if (GameSession.LOG_SHOTS) {
+            System.out.println("Client " + clientId + " fired.");
+        }
+        GameSession gameSession = this.gameSession.get(); // No lookup in a shared map on the shot path
+        if (gameSession != null) {
+            // Runs on the session's shard, so FIREs from both players are never processed at once
+            gameSession.execute(() -> gameSession.processFireCommand(clientId, row, col));
+        } else {
+            System.err.println("Client " + clientId + " için aktif oyun bulunamadı (FIRE işlemi).");
+        }
+    }
 
+    /**
+     * Routes this client's game commands to {@code session} (and so to its {@link GameShard}).
+     */
+    void joinGame(GameSession session) {
+        gameSession.set(session);
+    }
 
+    /**
+     * Stops routing commands to {@code session}; does nothing if the client has moved on to another game.
+     */
+    void leaveGame(GameSession session) {
+        gameSession.compareAndSet(session, null);
+    }
 
-                default:
-                    break;
+    /**
+     * Sends a pre-encoded packet; see {@link PacketCache}.
+     */
+    public void sendPacket(EncodedPacket packet) {
+        if (connection != null && running) {
+            try {
+                connection.send(packet);
+            } catch (IOException e) {
+                System.err.println("Error sending to client " + clientId + ": " + e.getMessage());
+            }
         }
-    } catch (Exception e) {
-        System.err.println("Error processing message from client " + clientId + ": " + e.getMessage());
     }
-}
+
+    /**
+     * Sends SHOT_RESULT without building the packet string; see {@link PacketConnection#sendShotResult}.
+     */
+    public void sendShotResult(int result, int row, int col, ShipType shipType) {
+        if (connection != null && running) {
+            try {
+                connection.sendShotResult(result, row, col, shipType);
+            } catch (IOException e) {
+                System.err.println("Error sending to client " + clientId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Sends OPPONENT_SHOT without building the packet string; see {@link PacketConnection#sendOpponentShot}.
+     */
+    public void sendOpponentShot(int result, int row, int col, ShipType shipType) {
+        if (connection != null && running) {
+            try {
+                connection.sendOpponentShot(result, row, col, shipType);
+            } catch (IOException e) {
+                System.err.println("Error sending to client " + clientId + ": " + e.getMessage());
+            }
+        }
+    }
+
     public void sendPacket(Packet packet) {
-        if (out != null && !socket.isClosed()) {
-            out.println(packet.serialize());
+        if (connection != null && running) {
+            try {
+                connection.send(packet);
+            } catch (IOException e) {
+                System.err.println("Error sending to client " + clientId + ": " + e.getMessage());
+            }
         }
     }
 
+    /**
+     * Buffers everything sent to this client until the returned batch is closed; see
+     * {@link PacketConnection#beginBatch()}. Game code uses {@link OutboundBatch} instead.
+     *
+     * @return The open batch, or null if the connection could not be set up.
+     */
+    PacketConnection.Batch beginBatch() {
+        return connection != null ? connection.beginBatch() : null;
+    }
+
     public void close() {
         running = false;
         try {
-            if (in != null) in.close();
-            if (out != null) out.close();
-            if (socket != null && !socket.isClosed()) socket.close();
+            if (connection != null) connection.close(); // Closes the socket or channel
         } catch (IOException e) {
             System.err.println("Error closing client handler: " + e.getMessage());
         }
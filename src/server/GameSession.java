@@ -1,7 +1,15 @@
 package server;
 
 import shared.Board; // Board kullanılıyorsa import kalsın
+import shared.BoardSnapshot;
+import shared.BoardStateCodec;
+import shared.Coordinates;
 import shared.Packet;
+import shared.PacketType;
+import shared.PacketView;
+import shared.ShipLayoutCodec;
+import shared.ShipType;
+
 import java.util.Random; // Random importu ekleyin
 
 public class GameSession {
@@ -10,8 +18,10 @@ public class GameSession {
     private ClientHandler player2;
     private int player1Id;
     private int player2Id;
-    private String player1Ships;
-    private String player2Ships;
+    private byte[] player1Layout; // ShipLayoutCodec biçiminde doğrulanmış filo
+    private byte[] player2Layout;
+    private boolean player1LegacyLayout; // Oyuncu eski "row,col,size,H;" biçimini kullanıyorsa yerleşimler ona o biçimde gönderilir
+    private boolean player2LegacyLayout;
     private boolean player1Ready = false;
     private boolean player2Ready = false;
     private Server server; // Server referansı kalsın
@@ -19,15 +29,107 @@ public class GameSession {
     private Board player1Board;
     private Board player2Board;
     private boolean gameOver = false;
+    private boolean started = false; // startGameLogic çalıştı; yerleşimler artık değişmez
+    // Oturumun sahibi olan parça: komutlar (hazır, atış, senkronizasyon) onun iş parçacığında sırayla çalışır;
+    // yukarıdaki oyun durumu yalnızca bu komutlar içinde değiştirildiği için kilit gerekmez
+    private final GameShard shard;
+    // Atış başına günlük satırı yalnızca -Dbattleship.log.shots=true ile yazılır; atış yolunda dize oluşturulmasın
+    static final boolean LOG_SHOTS = Boolean.getBoolean("battleship.log.shots");
 
 
     public GameSession(String gameId, ClientHandler player1, ClientHandler player2) {
+        this(gameId, player1, player2, Board.DEFAULT_SIZE);
+    }
+
+    public GameSession(String gameId, ClientHandler player1, ClientHandler player2, int boardSize) {
+        this(gameId, player1, player2, boardSize, null);
+    }
+
+    /**
+     * @param shard Oturumun komutlarını çalıştıracak parça; null ise komutlar çağıranın iş parçacığında çalışır.
+     */
+    GameSession(String gameId, ClientHandler player1, ClientHandler player2, int boardSize, GameShard shard) {
         this.gameId = gameId;
         this.player1 = player1;
         this.player2 = player2;
-        this.player1Board = new Board();
-        this.player2Board = new Board();
+        this.player1Board = new Board(boardSize);
+        this.player2Board = new Board(boardSize);
+        this.shard = shard;
+    }
+
+    /**
+     * Komutu oturumun parçasına ({@link GameShard}) gönderir. Bir oturumun komutları hiçbir zaman aynı anda
+     * çalışmaz ve geliş sırasıyla işlenir; farklı parçalardaki oyunlar paralel çalışır. Oyuncuların okuyucu
+     * iş parçacıkları oyun durumuna doğrudan dokunmaz, yalnızca komut gönderir.
+     */
+    public void execute(Runnable command) {
+        if (shard != null) {
+            shard.execute(command);
+        } else {
+            command.run();
+        }
+    }
+
+    GameShard getShard() {
+        return shard;
+    }
 
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    /**
+     * İki oyuncunun da bağlantısını kapatır (ör. sunucu kapanırken).
+     */
+    void closePlayers() {
+        if (player1 != null) {
+            player1.close();
+        }
+        if (player2 != null) {
+            player2.close();
+        }
+    }
+
+    public int getBoardSize() {
+        return player1Board.getSize();
+    }
+
+    /**
+     * Oyuncunun tahtasının en son yayımlanan değişmez görüntüsünü döndürür.
+     * İzleyiciler ve kayıt tutucular oturumu kilitlemeden, atış işlemeyi bekletmeden okuyabilir.
+     * @return Görüntü; oyuncu bu oturumda değilse veya henüz gemi yerleştirmediyse null.
+     */
+    public BoardSnapshot getBoardSnapshot(int playerId) {
+        Board board = playerId == player1Id ? player1Board : playerId == player2Id ? player2Board : null;
+        return board != null ? board.getLastSnapshot() : null;
+    }
+
+    /**
+     * Oyuncunun istediği tahtanın görünür durumunu gönderir: bildirdiği sürümden delta verilebiliyorsa yalnızca
+     * değişen hücreleri (BOARD_DELTA), verilemiyorsa tam durumu (BOARD_STATE). Yayımlanmış görüntüden okunur,
+     * bu yüzden atış işleyen iş parçacığıyla yarışmaz. Rakip tahtasında gemi konumları gönderilmez.
+     *
+     * @param ownBoard     true ise oyuncunun kendi tahtası, false ise rakibin tahtası.
+     * @param knownVersion İstemcinin en son uyguladığı sürüm; {@link BoardStateCodec#NO_VERSION} tam durum ister.
+     */
+    public void sendBoardSync(int playerId, boolean ownBoard, long knownVersion) {
+        ClientHandler handler = getPlayerHandler(playerId);
+        if (handler == null) {
+            return;
+        }
+        BoardSnapshot snapshot = getBoardSnapshot(ownBoard ? playerId : getOpponentId(playerId));
+        if (snapshot == null) {
+            handler.sendPacket(PacketCache.ERROR_BOARD_NOT_READY);
+            return;
+        }
+        String side = ownBoard ? BoardStateCodec.SIDE_OWN : BoardStateCodec.SIDE_OPPONENT;
+        byte[] delta = knownVersion == BoardStateCodec.NO_VERSION ? null : BoardStateCodec.encodeDelta(snapshot, knownVersion);
+        if (delta != null) {
+            handler.sendPacket(new Packet(PacketType.BOARD_DELTA, side + "|" + BoardStateCodec.toText(delta)));
+        } else {
+            byte[] state = BoardStateCodec.encodeState(snapshot);
+            handler.sendPacket(new Packet(PacketType.BOARD_STATE, side + "|" + BoardStateCodec.toText(state)));
+        }
     }
 
     public boolean hasPlayer(int playerId) {
@@ -63,25 +165,95 @@ public class GameSession {
         this.player1Id = player1Id;
         this.player2Id = player2Id;
     }
+
+    public int getPlayer1Id() {
+        return player1Id;
+    }
+
+    public int getPlayer2Id() {
+        return player2Id;
+    }
     
     public boolean areBothPlayersReady() {
         return player1Ready && player2Ready;
     }
 
-    public void setPlayerReady(int clientId, String shipPositions) {
+    /**
+     * Oyuncu henüz gemilerini yerleştirebilir mi? Hazır olduktan, oyun başladıktan veya bittikten sonra
+     * yeni bir SHIPS_READY kabul edilmez.
+     */
+    public boolean canPlaceShips(int clientId) {
+        if (gameOver || started) {
+            return false;
+        }
+        if (clientId == player1Id) {
+            return !player1Ready;
+        }
+        return clientId == player2Id && !player2Ready;
+    }
+
+    /**
+     * Oyuncunun gemi yerleşimini doğrular, oyuncunun tahtasına yerleştirir ve oyuncuyu hazır işaretler.
+     * @return Yerleşim geçersizse (eksik/fazla gemi, taşma, çakışma veya temas) veya oyuncu artık gemi
+     *         yerleştiremiyorsa ({@link #canPlaceShips(int)}) false; oyuncunun tahtası değişmez.
+     */
+    public boolean setPlayerReady(int clientId, String shipPositions) {
+        Board board = clientId == player1Id ? player1Board : clientId == player2Id ? player2Board : null;
+        byte[] layout = board != null && canPlaceShips(clientId) ? placeFleet(board, shipPositions) : null;
+        if (layout == null) {
+            System.err.println("Game " + gameId + ": Oyuncu " + clientId + " geçersiz gemi yerleşimi gönderdi: " + shipPositions);
+            return false;
+        }
+        board.snapshot(); // Yerleşimi okuyuculara yayımla
+        boolean legacy = !ShipLayoutCodec.isCompactText(shipPositions);
+
         if (clientId == player1Id) {
-            player1Ships = shipPositions;
+            player1Layout = layout;
+            player1LegacyLayout = legacy;
             player1Ready = true;
             System.out.println("Game " + gameId + ": Oyuncu " + player1Id + " hazır.");
         } else if (clientId == player2Id) {
-            player2Ships = shipPositions;
+            player2Layout = layout;
+            player2LegacyLayout = legacy;
             player2Ready = true;
             System.out.println("Game " + gameId + ": Oyuncu " + player2Id + " hazır.");
         }
+        return true;
+    }
+
+    /**
+     * Yerleşimi ({@link ShipLayoutCodec} metni veya eski "row,col,size,H;..." biçimi) çözer, aynı boyutta
+     * geçici bir tahtada doğrular ve ancak geçerliyse filoyu asıl tahtaya yerleştirir. Her gemi tipi tam olarak
+     * bir kez bulunmalıdır. Başarısız olursa asıl tahtaya dokunulmaz.
+     * @return Doğrulanmış yerleşim; geçersizse null.
+     */
+    private static byte[] placeFleet(Board board, String shipPositions) {
+        if (shipPositions == null || shipPositions.isEmpty()) {
+            return null;
+        }
+        byte[] layout;
+        try {
+            layout = ShipLayoutCodec.parse(shipPositions);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (ShipLayoutCodec.shipCount(layout.length) != ShipType.values().length
+                || !ShipLayoutCodec.placeAll(new Board(board.getRows(), board.getCols()), layout)) {
+            return null; // Eksik/tekrarlanan gemi veya kurala aykırı konum
+        }
+        board.resetBoard();
+        ShipLayoutCodec.placeAll(board, layout); // Geçici tahtada doğrulandı, başarısız olamaz
+        return layout;
+    }
+
+    private static String layoutText(byte[] layout, boolean legacy) {
+        return legacy ? ShipLayoutCodec.toLegacyText(layout) : ShipLayoutCodec.toText(layout);
     }
 
+    @SuppressWarnings("try") // batch yalnızca kapsamı belirler; kapanınca hepsini gönderir
     public void startGameLogic() {
         System.out.println("Game " + gameId + ": Her iki oyuncu da hazır. Oyun başlıyor!");
+        started = true;
 
         Random random = new Random();
         boolean player1GoesFirst = random.nextBoolean();
@@ -92,27 +264,31 @@ public class GameSession {
         ClientHandler p1Handler = getPlayerHandler(player1Id);
         ClientHandler p2Handler = getPlayerHandler(player2Id);
 
-        if (p1Handler != null) {
-            System.out.println("Game " + gameId + ": Oyuncu 1'e gemi pozisyonları gönderiliyor.");
-            p1Handler.sendPacket(new Packet(player1GoesFirst ? "YOUR_TURN" : "WAIT_TURN", ""));
-            p1Handler.sendPacket(new Packet("GAME_READY", player1GoesFirst ? "YOUR_TURN" : "WAIT_TURN"));
-            p1Handler.sendPacket(new Packet("MY_SHIPS", player1Ships));
-            p1Handler.sendPacket(new Packet("OPPONENT_SHIPS", player2Ships));
-        }
-        if (p2Handler != null) {
-            System.out.println("Game " + gameId + ": Oyuncu 2'ye gemi pozisyonları gönderiliyor.");
-            p2Handler.sendPacket(new Packet(player1GoesFirst ? "WAIT_TURN" : "YOUR_TURN", "") );
-            p2Handler.sendPacket(new Packet("GAME_READY", ""));
-            p2Handler.sendPacket(new Packet("MY_SHIPS", player2Ships));
-            p2Handler.sendPacket(new Packet("OPPONENT_SHIPS", player1Ships));
+        // Dört paketin tamamı her oyuncuya tek seferde gönderilir
+        try (OutboundBatch batch = OutboundBatch.of(p1Handler, p2Handler)) {
+            if (p1Handler != null) {
+                System.out.println("Game " + gameId + ": Oyuncu 1'e gemi pozisyonları gönderiliyor.");
+                p1Handler.sendPacket(player1GoesFirst ? PacketCache.YOUR_TURN : PacketCache.WAIT_TURN);
+                p1Handler.sendPacket(player1GoesFirst ? PacketCache.GAME_READY_YOUR_TURN : PacketCache.GAME_READY_WAIT_TURN);
+                p1Handler.sendPacket(new Packet(PacketType.MY_SHIPS, layoutText(player1Layout, player1LegacyLayout)));
+                p1Handler.sendPacket(new Packet(PacketType.OPPONENT_SHIPS, layoutText(player2Layout, player1LegacyLayout)));
+            }
+            if (p2Handler != null) {
+                System.out.println("Game " + gameId + ": Oyuncu 2'ye gemi pozisyonları gönderiliyor.");
+                p2Handler.sendPacket(player1GoesFirst ? PacketCache.WAIT_TURN : PacketCache.YOUR_TURN);
+                p2Handler.sendPacket(PacketCache.GAME_READY);
+                p2Handler.sendPacket(new Packet(PacketType.MY_SHIPS, layoutText(player2Layout, player2LegacyLayout)));
+                p2Handler.sendPacket(new Packet(PacketType.OPPONENT_SHIPS, layoutText(player1Layout, player2LegacyLayout)));
+            }
         }
     }
+    @SuppressWarnings("try") // batch yalnızca kapsamı belirler; kapanınca hepsini gönderir
     public void processFireCommand(int shooterId, int row, int col) {
         // Eğer oyun bittiyse veya sıra atış yapan oyuncuda değilse işlemi reddet
         if (gameOver || currentPlayerId != shooterId) {
             ClientHandler shooter = getPlayerHandler(shooterId);
             if (shooter != null) {
-                shooter.sendPacket(new Packet("ERROR", "Sıra sizde değil!"));
+                shooter.sendPacket(PacketCache.ERROR_NOT_YOUR_TURN);
             }
             return;
         }
@@ -132,64 +308,62 @@ public class GameSession {
 
         // Daha önce atış yapılmış bir hücre mi kontrol et
         if (targetBoard.isAlreadyShot(row, col)) {
-            attacker.sendPacket(new Packet("ERROR", "Bu hücreye zaten ateş edilmiş!"));
+            attacker.sendPacket(PacketCache.ERROR_ALREADY_SHOT);
             return;
         }
 
         // Atışı işle (vuruş mu ıska mı?)
         boolean isHit = targetBoard.processShot(row, col);
-
-        // Koordinatları A1 formatına çevir (arayüz gösterimi için)
-        String cellPosition = (char)('A' + row) + "" + (col + 1);
-
-        if (isHit) {
-            // İsabet - Vurulan geminin tipini ve batıp batmadığını kontrol et
-            String shipType = targetBoard.getShipTypeAt(row, col);
-            boolean isSunk = targetBoard.isShipSunk(row, col);
-
-            // Atış yapana sonucu bildir
-            if (isSunk) {
-                attacker.sendPacket(new Packet("SHOT_RESULT", "HIT:" + cellPosition + ":" + shipType + ":SUNK"));
+        targetBoard.snapshot(); // Yeni durumu izleyicilere yayımla
+
+        // Bu atışın tüm paketleri (sonuç, sıra, oyun sonu) her oyuncuya tek seferde gönderilir
+        try (OutboundBatch batch = OutboundBatch.of(attacker, target)) {
+            if (isHit) {
+                // İsabet - Vurulan geminin tipini ve batıp batmadığını kontrol et
+                ShipType shipType = targetBoard.getShipAt(row, col).getType();
+                int result = targetBoard.isShipSunk(row, col) ? PacketView.RESULT_SUNK : PacketView.RESULT_HIT;
+
+                // Sonucu iki oyuncuya da bildir; paketler ara metin oluşturulmadan doğrudan yazılır
+                attacker.sendShotResult(result, row, col, shipType);
+                target.sendOpponentShot(result, row, col, shipType);
+
+                // Tüm gemiler batmış mı kontrol et (oyun sonu)
+                if (targetBoard.areAllShipsSunk()) {
+                    gameOver = true;
+
+                    // Oyun sonu bilgilerini her iki oyuncuya da gönder
+                    attacker.sendPacket(PacketCache.GAME_OVER_WIN);
+                    target.sendPacket(PacketCache.GAME_OVER_LOSE);
+
+                    System.out.println("Game " + gameId + ": Oyun bitti! Kazanan: Oyuncu " + shooterId);
+                    if (server != null) {
+                        server.removeGameSession(this); // Biten oyun dizinde ve aktif oyunlarda kalmasın
+                    }
+                    return; // Oyun bitti, fonksiyonu sonlandır
+                }
+
+                // Başarılı atıştan sonra sıra değişmez, aynı oyuncu devam eder
+                if (LOG_SHOTS) {
+                    System.out.println("Game " + gameId + ": İsabet! Oyuncu " + shooterId +
+                            " -> " + Coordinates.format(row, col) + ", sıra değişmedi");
+                }
             } else {
-                attacker.sendPacket(new Packet("SHOT_RESULT", "HIT:" + cellPosition + ":" + shipType));
-            }
+                // Iskalama durumu
+                attacker.sendShotResult(PacketView.RESULT_MISS, row, col, null);
+                target.sendOpponentShot(PacketView.RESULT_MISS, row, col, null);
 
-            // Atış yapılana sonucu bildir
-            if (isSunk) {
-                target.sendPacket(new Packet("OPPONENT_SHOT", cellPosition + ":HIT:" + shipType + ":SUNK"));
-            } else {
-                target.sendPacket(new Packet("OPPONENT_SHOT", cellPosition + ":HIT:" + shipType));
-            }
-
-            // Tüm gemiler batmış mı kontrol et (oyun sonu)
-            if (targetBoard.areAllShipsSunk()) {
-                gameOver = true;
+                // Iskalamadan sonra sıra rakibe geçer
+                currentPlayerId = targetId;
 
-                // Oyun sonu bilgilerini her iki oyuncuya da gönder
-                attacker.sendPacket(new Packet("GAME_OVER", "WIN"));
-                target.sendPacket(new Packet("GAME_OVER", "LOSE"));
+                // Yeni sıra bilgisini oyunculara gönder
+                attacker.sendPacket(PacketCache.WAIT_TURN);
+                target.sendPacket(PacketCache.YOUR_TURN);
 
-                System.out.println("Game " + gameId + ": Oyun bitti! Kazanan: Oyuncu " + shooterId);
-                return; // Oyun bitti, fonksiyonu sonlandır
+                if (LOG_SHOTS) {
+                    System.out.println("Game " + gameId + ": Iskalama! Oyuncu " + shooterId +
+                            " -> " + Coordinates.format(row, col) + ", sıra oyuncu " + targetId + "'e geçti");
+                }
             }
-
-            // Başarılı atıştan sonra sıra değişmez, aynı oyuncu devam eder
-            System.out.println("Game " + gameId + ": İsabet! Oyuncu " + shooterId +
-                    " -> " + cellPosition + ", sıra değişmedi");
-        } else {
-            // Iskalama durumu
-            attacker.sendPacket(new Packet("SHOT_RESULT", "MISS:" + cellPosition));
-            target.sendPacket(new Packet("OPPONENT_SHOT", cellPosition + ":MISS"));
-
-            // Iskalamadan sonra sıra rakibe geçer
-            currentPlayerId = targetId;
-
-            // Yeni sıra bilgisini oyunculara gönder
-            attacker.sendPacket(new Packet("WAIT_TURN", ""));
-            target.sendPacket(new Packet("YOUR_TURN", ""));
-
-            System.out.println("Game " + gameId + ": Iskalama! Oyuncu " + shooterId +
-                    " -> " + cellPosition + ", sıra oyuncu " + targetId + "'e geçti");
         }
     }
 
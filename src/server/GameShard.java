@@ -0,0 +1,98 @@
+package server;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One thread that owns a share of the running games. The server starts one shard per core and gives each new
+ * {@link GameSession} to one of them; from then on every command of that game (ships ready, FIRE, board sync,
+ * game over) runs on the shard's thread, in arrival order. Game state is therefore only touched by one thread and
+ * needs no locks, and games on different shards run in parallel.
+ * <p>
+ * Other threads (connection readers, event loops, the lobby) hand work over through {@link #execute(Runnable)},
+ * which appends to a lock-free queue and unparks the shard. The shard's game table is a plain map that only the
+ * shard thread reads or writes; on shutdown the shard closes the players of the games still in it.
+ */
+final class GameShard implements Executor, Runnable {
+    private final String name;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Map<String, GameSession> games = new HashMap<>(); // Shard thread only
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    GameShard(String name) {
+        this.name = name;
+        this.thread = new Thread(this, name);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Runs a task on the shard thread, after every task submitted before it. Callable from any thread.
+     */
+    @Override
+    public void execute(Runnable task) {
+        tasks.add(task);
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Makes the shard the owner of a new game.
+     */
+    void addGame(GameSession session) {
+        execute(() -> games.put(session.getGameId(), session));
+    }
+
+    /**
+     * Drops a finished or abandoned game; removing it twice is harmless.
+     */
+    void removeGame(GameSession session) {
+        execute(() -> games.remove(session.getGameId(), session));
+    }
+
+    /**
+     * Number of games the shard owns. Shard thread only.
+     */
+    int gameCount() {
+        return games.size();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Task failed on " + name + ": " + e);
+                }
+            }
+            if (running && tasks.isEmpty()) {
+                // An execute() between the check and the park leaves a permit, so park returns at once
+                LockSupport.park(this);
+            }
+        }
+    }
+
+    /**
+     * Stops the shard once the tasks queued before this call have run. Players of games still open are
+     * disconnected; the server only closes the connections in its lobby.
+     */
+    void shutdown() {
+        execute(() -> {
+            for (GameSession session : games.values()) {
+                session.closePlayers();
+            }
+            games.clear();
+            running = false;
+        });
+    }
+}
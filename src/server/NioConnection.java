@@ -0,0 +1,236 @@
+package server;
+
+import shared.PacketConnection;
+import shared.PacketView;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One client socket served by a {@link NioEventLoop}: its non-blocking channel, its outbound buffer and the
+ * {@link ClientHandler} that runs the same lobby and game logic as in thread-per-connection mode.
+ * <p>
+ * Reads happen only on the loop thread. Senders on any thread append to the outbound buffer under the
+ * connection's write lock; a flush writes as much as the socket accepts right away and leaves the rest to the
+ * loop, which is woken for {@link SelectionKey#OP_WRITE}. No thread ever blocks on a slow client, and what a
+ * client leaves unread is bounded by {@link OutboundLimits}.
+ */
+final class NioConnection implements Closeable {
+    private static final int INITIAL_OUTPUT_CAPACITY = 256;
+    private static final int MAX_IDLE_OUTPUT_CAPACITY = 64 * 1024; // Larger buffers are dropped once drained
+
+    private final NioEventLoop loop;
+    private final SocketChannel channel;
+    private final PacketConnection connection;
+    private final ClientHandler handler;
+    private final PacketView view = new PacketView(); // Loop thread only
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile SelectionKey key; // Set once registered with the loop's selector
+
+    // Bytes written by senders and not yet accepted by the socket; the buffer is kept in write mode
+    private final ReentrantLock outputLock = new ReentrantLock();
+    private ByteBuffer output; // Guarded by outputLock
+    private final OutboundLimits limits; // Guarded by outputLock
+
+    NioConnection(NioEventLoop loop, SocketChannel channel, int clientId, Server server) {
+        this.loop = loop;
+        this.channel = channel;
+        this.limits = new OutboundLimits(clientId);
+        this.connection = new PacketConnection(this, new ChannelOutput());
+        this.connection.setStats(Server.PACKET_STATS);
+        this.handler = new ClientHandler(clientId, connection, server);
+    }
+
+    ClientHandler getHandler() {
+        return handler;
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Called by the loop once the channel is registered. Asks for write readiness too if senders already left
+     * bytes the socket did not take.
+     */
+    void registered(SelectionKey key) {
+        outputLock.lock();
+        try {
+            this.key = key;
+            if (output != null && output.position() > 0) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        } finally {
+            outputLock.unlock();
+        }
+    }
+
+    /**
+     * Loop thread: reads what the socket has into the loop's shared buffer and handles every complete packet.
+     *
+     * @return false if the client disconnected or the stream is corrupt.
+     */
+    boolean onReadable(ByteBuffer readBuffer) {
+        try {
+            readBuffer.clear();
+            int count = channel.read(readBuffer);
+            if (count < 0) {
+                return false;
+            }
+            readBuffer.flip();
+            connection.receive(readBuffer);
+            while (!closed.get() && connection.poll(view)) {
+                handler.processPacket(view);
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error handling client " + handler.getClientId() + ": " + e.getMessage());
+            return false;
+        } catch (IllegalArgumentException e) {
+            // A text line without a separator; it was consumed, so the stream is still in sync
+            System.err.println("Error processing message from client " + handler.getClientId() + ": " + e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * Loop thread: writes pending output and stops watching for write readiness once it is all sent.
+     *
+     * @return false if the socket failed.
+     */
+    boolean onWritable() {
+        outputLock.lock();
+        try {
+            if (drainOutput()) {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+            limits.drained(output == null ? 0 : output.position());
+            return true;
+        } catch (IOException | CancelledKeyException e) {
+            System.err.println("Error sending to client " + handler.getClientId() + ": " + e.getMessage());
+            return false;
+        } finally {
+            outputLock.unlock();
+        }
+    }
+
+    /**
+     * Writes as much pending output as the socket accepts. Caller holds outputLock.
+     *
+     * @return true if nothing is left.
+     */
+    private boolean drainOutput() throws IOException {
+        if (output == null || output.position() == 0) {
+            return true;
+        }
+        output.flip();
+        channel.write(output);
+        output.compact();
+        if (output.position() > 0) {
+            return false;
+        }
+        if (output.capacity() > MAX_IDLE_OUTPUT_CAPACITY) {
+            output = null;
+        }
+        return true;
+    }
+
+    /**
+     * Closes the channel and lets the loop run the disconnect logic, whichever thread closes the connection
+     * (the client hanging up, a read error, or the server ending the opponent's game).
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed.compareAndSet(false, true)) {
+            try {
+                channel.close();
+            } finally {
+                loop.execute(handler::disconnected);
+            }
+        }
+    }
+
+    /**
+     * The connection's output stream: buffers writes, and on flush hands the bytes to the socket without
+     * blocking. Called with the {@link PacketConnection} write lock held.
+     */
+    private final class ChannelOutput extends OutputStream implements PacketConnection.Backpressure {
+        @Override
+        public void write(int b) throws IOException {
+            outputLock.lock();
+            try {
+                ensureOutputCapacity(1).put((byte) b);
+            } finally {
+                outputLock.unlock();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            outputLock.lock();
+            try {
+                ensureOutputCapacity(len).put(b, off, len);
+            } finally {
+                outputLock.unlock();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            outputLock.lock();
+            try {
+                if (closed.get()) {
+                    throw new IOException("Connection closed");
+                }
+                if (drainOutput()) {
+                    return;
+                }
+                if (!limits.overflowed(output.position())) {
+                    if (key != null) {
+                        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                        loop.wakeup();
+                    }
+                    return;
+                }
+            } catch (CancelledKeyException e) {
+                throw new IOException("Connection closed");
+            } finally {
+                outputLock.unlock();
+            }
+            NioConnection.this.close();
+            throw new IOException("Disconnected as a slow consumer");
+        }
+
+        @Override
+        public boolean dropOutbound() {
+            outputLock.lock();
+            try {
+                return limits.dropOutbound();
+            } finally {
+                outputLock.unlock();
+            }
+        }
+
+        /**
+         * The output buffer, grown if needed to take {@code extra} more bytes.
+         */
+        private ByteBuffer ensureOutputCapacity(int extra) {
+            if (output == null) {
+                output = ByteBuffer.allocate(Math.max(INITIAL_OUTPUT_CAPACITY, extra));
+            } else if (output.remaining() < extra) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(output.capacity() * 2, output.position() + extra));
+                output.flip();
+                larger.put(output);
+                output = larger;
+            }
+            return output;
+        }
+    }
+}
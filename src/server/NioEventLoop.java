@@ -0,0 +1,137 @@
+package server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A selector thread serving many {@link NioConnection}s. The server runs a small, fixed number of these in
+ * {@code -Dbattleship.server.io=nio} mode, so the thread count no longer grows with the number of clients.
+ * <p>
+ * Packet handlers run on the loop thread, so they must not block; sends only append to buffers (see
+ * {@link NioConnection}). Work from other threads is handed over with {@link #execute(Runnable)}.
+ */
+final class NioEventLoop implements Runnable {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    // Shared by every connection of this loop; received bytes are copied to the connection's own buffer
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    NioEventLoop(String name) throws IOException {
+        this.selector = Selector.open();
+        this.thread = new Thread(this, name);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Registers an accepted, non-blocking channel from any thread. Reading starts once the loop picks it up.
+     */
+    void register(NioConnection connection) {
+        execute(() -> {
+            try {
+                SelectionKey key = connection.getChannel().register(selector, SelectionKey.OP_READ, connection);
+                connection.registered(key);
+            } catch (ClosedChannelException e) {
+                connection.getHandler().disconnected(); // Closed before it was registered
+            }
+        });
+    }
+
+    /**
+     * Runs a task on the loop thread.
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    void wakeup() {
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                selector.select();
+                runTasks();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+            } catch (IOException e) {
+                System.err.println("Event loop error: " + e.getMessage());
+            }
+        }
+        runTasks();
+    }
+
+    private void handle(SelectionKey key) {
+        NioConnection connection = (NioConnection) key.attachment();
+        boolean open;
+        try {
+            open = key.isValid();
+            if (open && key.isWritable()) {
+                open = connection.onWritable();
+            }
+            if (open && key.isValid() && key.isReadable()) {
+                open = connection.onReadable(readBuffer);
+            }
+        } catch (CancelledKeyException e) {
+            open = false; // Closed by another thread meanwhile
+        }
+        if (!open) {
+            closeQuietly(connection);
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.err.println("Event loop task failed: " + e);
+            }
+        }
+    }
+
+    private static void closeQuietly(NioConnection connection) {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            System.err.println("Error closing client " + connection.getHandler().getClientId() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops the loop after its current iteration and closes the selector; connections are closed by the server.
+     */
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+            selector.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Error closing event loop: " + e.getMessage());
+        }
+    }
+}
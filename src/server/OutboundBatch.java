@@ -0,0 +1,64 @@
+package server;
+
+import shared.PacketConnection;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * Groups the packets of one game event for one or more players into a single flush per connection.
+ * While the batch is open, other threads cannot send to these players, so each player receives the
+ * event's packets back to back. Use with try-with-resources:
+ * <pre>
+ * try (OutboundBatch batch = OutboundBatch.of(attacker, target)) {
+ *     attacker.sendShotResult(...);
+ *     target.sendOpponentShot(...);
+ * }
+ * </pre>
+ */
+final class OutboundBatch implements AutoCloseable {
+    private final ClientHandler[] handlers;
+    private final PacketConnection.Batch[] batches;
+
+    private OutboundBatch(ClientHandler[] handlers) {
+        this.handlers = handlers;
+        this.batches = new PacketConnection.Batch[handlers.length];
+    }
+
+    /**
+     * Opens a batch on every given handler. Null handlers are skipped. Connections are locked in client id
+     * order, so two batches over the same players can never deadlock.
+     */
+    static OutboundBatch of(ClientHandler... handlers) {
+        ClientHandler[] sorted = Arrays.stream(handlers)
+                .filter(Objects::nonNull)
+                .distinct()
+                .sorted(Comparator.comparingInt(ClientHandler::getClientId))
+                .toArray(ClientHandler[]::new);
+        OutboundBatch batch = new OutboundBatch(sorted);
+        for (int i = 0; i < sorted.length; i++) {
+            batch.batches[i] = sorted[i].beginBatch();
+        }
+        return batch;
+    }
+
+    /**
+     * Flushes every connection and releases them in reverse order. A failing connection is logged and does not
+     * keep the others from being flushed.
+     */
+    @Override
+    public void close() {
+        for (int i = batches.length - 1; i >= 0; i--) {
+            if (batches[i] == null) {
+                continue;
+            }
+            try {
+                batches[i].close();
+            } catch (IOException e) {
+                System.err.println("Error sending to client " + handlers[i].getClientId() + ": " + e.getMessage());
+            }
+        }
+    }
+}
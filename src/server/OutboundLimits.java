@@ -0,0 +1,85 @@
+package server;
+
+/**
+ * Bounds on the bytes queued for one client that its socket has not taken yet, applied by both outbound paths
+ * ({@link OutboundQueue} and {@link NioConnection}):
+ * <ul>
+ * <li>{@code -Dbattleship.outbound.high} (bytes, default 1 MiB): a client with more queued is a slow consumer.</li>
+ * <li>{@code -Dbattleship.outbound.low} (bytes, default 256 KiB): a client that is being dropped is served normally
+ * again once its queue drains to this.</li>
+ * <li>{@code -Dbattleship.outbound.policy=disconnect|drop}: a slow consumer is disconnected (the default), or
+ * packets to it are dropped until it drains. A client that lost game packets is out of sync until it sends
+ * BOARD_SYNC, so {@code drop} suits lobby traffic better than games.</li>
+ * </ul>
+ * One instance per connection; not thread-safe, callers use it under their output lock.
+ */
+final class OutboundLimits {
+    enum Policy {
+        DISCONNECT,
+        DROP
+    }
+
+    static final int HIGH_WATERMARK = Integer.getInteger("battleship.outbound.high", 1024 * 1024);
+    static final int LOW_WATERMARK = Math.min(HIGH_WATERMARK, Integer.getInteger("battleship.outbound.low", 256 * 1024));
+    static final Policy POLICY = policyFromProperty();
+
+    private final int clientId;
+    private boolean dropping;
+    private long droppedPackets;
+
+    OutboundLimits(int clientId) {
+        this.clientId = clientId;
+    }
+
+    private static Policy policyFromProperty() {
+        String value = System.getProperty("battleship.outbound.policy", "disconnect");
+        for (Policy policy : Policy.values()) {
+            if (policy.name().equalsIgnoreCase(value)) {
+                return policy;
+            }
+        }
+        System.err.println("Unknown battleship.outbound.policy: " + value + ", using disconnect.");
+        return Policy.DISCONNECT;
+    }
+
+    /**
+     * Called after a flush, with everything now queued for the client.
+     *
+     * @return true if the client must be disconnected.
+     */
+    boolean overflowed(int queuedBytes) {
+        if (queuedBytes <= HIGH_WATERMARK) {
+            return false;
+        }
+        if (POLICY == Policy.DISCONNECT) {
+            System.err.println("Client " + clientId + " is not reading (" + queuedBytes + " bytes queued); disconnecting.");
+            return true;
+        }
+        if (!dropping) {
+            dropping = true;
+            System.err.println("Client " + clientId + " is not reading (" + queuedBytes + " bytes queued); dropping packets.");
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the next packet must be dropped.
+     */
+    boolean dropOutbound() {
+        if (dropping) {
+            droppedPackets++;
+        }
+        return dropping;
+    }
+
+    /**
+     * Called after the socket took some bytes, with what is still queued.
+     */
+    void drained(int queuedBytes) {
+        if (dropping && queuedBytes <= LOW_WATERMARK) {
+            dropping = false;
+            System.out.println("Client " + clientId + " caught up after " + droppedPackets + " dropped packets.");
+            droppedPackets = 0;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package server;
+
+import shared.PacketConnection;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Output of a thread-per-connection client: senders append to this stream and return at once, and the
+ * connection's own writer thread ({@link #run()}) moves flushed bytes to the socket. A client that stops reading
+ * therefore only fills its own queue, bounded by {@link OutboundLimits}, instead of blocking whoever sends to it
+ * (the opponent's reader thread during a game, or a lobby broadcast).
+ * <p>
+ * Senders fill one buffer while the writer sends the other, and the two are swapped, so steady traffic does not
+ * allocate. Only flushed bytes are handed to the writer; a batch still being written stays behind, so packets
+ * leave whole and in order.
+ */
+final class OutboundQueue extends OutputStream implements PacketConnection.Backpressure, Runnable {
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int MAX_IDLE_CAPACITY = 64 * 1024; // Larger buffers are dropped once sent
+    private static final long CLOSE_LINGER_MILLIS = 2000; // How long close() lets the writer finish
+
+    private final int clientId;
+    private final Socket socket;
+    private final OutputStream socketOut;
+    private final OutboundLimits limits;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+    private byte[] filling = new byte[INITIAL_CAPACITY]; // Guarded by lock
+    private int fillLength; // Guarded by lock
+    private int flushedLength; // Guarded by lock; leading bytes of filling that are ready to send
+    private byte[] spare = new byte[INITIAL_CAPACITY]; // Guarded by lock; swapped with filling by the writer
+    private int sending; // Guarded by lock; bytes the writer took and has not finished writing
+    private boolean closed; // Guarded by lock
+
+    OutboundQueue(int clientId, Socket socket) throws IOException {
+        this.clientId = clientId;
+        this.socket = socket;
+        this.socketOut = socket.getOutputStream();
+        this.limits = new OutboundLimits(clientId);
+    }
+
+    @Override
+    public void write(int b) {
+        lock.lock();
+        try {
+            ensureCapacity(1);
+            filling[fillLength++] = (byte) b;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        lock.lock();
+        try {
+            ensureCapacity(len);
+            System.arraycopy(b, off, filling, fillLength, len);
+            fillLength += len;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void ensureCapacity(int extra) {
+        if (filling.length - fillLength < extra) {
+            filling = Arrays.copyOf(filling, Math.max(filling.length * 2, fillLength + extra));
+        }
+    }
+
+    /**
+     * Hands everything written so far to the writer. Never blocks on the socket.
+     *
+     * @throws IOException If the connection is closed, or was just closed for not reading.
+     */
+    @Override
+    public void flush() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IOException("Connection closed");
+            }
+            if (flushedLength == fillLength) {
+                return;
+            }
+            flushedLength = fillLength;
+            if (!limits.overflowed(flushedLength + sending)) {
+                flushed.signal();
+                return;
+            }
+            closed = true;
+            flushed.signal();
+        } finally {
+            lock.unlock();
+        }
+        closeSocket(); // The reader thread then fails and runs the disconnect logic
+        throw new IOException("Disconnected as a slow consumer");
+    }
+
+    @Override
+    public boolean dropOutbound() {
+        lock.lock();
+        try {
+            return limits.dropOutbound();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The writer thread: sends flushed bytes until the connection is closed and everything flushed before that
+     * is sent.
+     */
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                byte[] chunk;
+                int length;
+                lock.lock();
+                try {
+                    while (flushedLength == 0 && !closed) {
+                        flushed.await();
+                    }
+                    if (flushedLength == 0) {
+                        break; // Closed and drained
+                    }
+                    // Take the flushed bytes; an unflushed batch tail moves to the start of the other buffer
+                    chunk = filling;
+                    length = flushedLength;
+                    int tail = fillLength - flushedLength;
+                    if (spare.length < tail) {
+                        spare = new byte[Math.max(INITIAL_CAPACITY, tail)];
+                    }
+                    System.arraycopy(filling, flushedLength, spare, 0, tail);
+                    filling = spare;
+                    fillLength = tail;
+                    flushedLength = 0;
+                    sending = length;
+                } finally {
+                    lock.unlock();
+                }
+
+                socketOut.write(chunk, 0, length);
+
+                lock.lock();
+                try {
+                    sending = 0;
+                    spare = chunk.length > MAX_IDLE_CAPACITY ? new byte[INITIAL_CAPACITY] : chunk;
+                    limits.drained(flushedLength);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (IOException e) {
+            if (!isClosed()) {
+                System.err.println("Error sending to client " + clientId + ": " + e.getMessage());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeSocket();
+        }
+    }
+
+    private boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the connection. Reading ends at once; packets flushed before the close (such as the notice that
+     * the opponent left) are still sent, for at most {@link #CLOSE_LINGER_MILLIS}, then the socket is closed.
+     */
+    @Override
+    public void close() throws IOException {
+        boolean pending;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pending = flushedLength > 0 || sending > 0;
+            flushed.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (!pending) {
+            socket.close();
+            return;
+        }
+        if (!socket.isInputShutdown()) {
+            socket.shutdownInput();
+        }
+        // A client that is not reading would keep the writer blocked; close the socket under it after a while
+        Thread.ofVirtual().start(() -> {
+            try {
+                Thread.sleep(CLOSE_LINGER_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            closeSocket();
+        });
+    }
+
+    private void closeSocket() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            System.err.println("Error closing socket: " + e.getMessage());
+        }
+    }
+}
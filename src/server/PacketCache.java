@@ -0,0 +1,32 @@
+package server;
+
+import shared.EncodedPacket;
+import shared.PacketType;
+
+/**
+ * Pre-encoded constant packets. They are serialised once at class load and shared by every connection,
+ * instead of being rebuilt and re-serialised on each send.
+ */
+final class PacketCache {
+    static final EncodedPacket YOUR_TURN = EncodedPacket.of(PacketType.YOUR_TURN, "");
+    static final EncodedPacket WAIT_TURN = EncodedPacket.of(PacketType.WAIT_TURN, "");
+    static final EncodedPacket GAME_READY = EncodedPacket.of(PacketType.GAME_READY, "");
+    static final EncodedPacket GAME_READY_YOUR_TURN = EncodedPacket.of(PacketType.GAME_READY, "YOUR_TURN");
+    static final EncodedPacket GAME_READY_WAIT_TURN = EncodedPacket.of(PacketType.GAME_READY, "WAIT_TURN");
+    static final EncodedPacket GAME_OVER_WIN = EncodedPacket.of(PacketType.GAME_OVER, "WIN");
+    static final EncodedPacket GAME_OVER_LOSE = EncodedPacket.of(PacketType.GAME_OVER, "LOSE");
+    static final EncodedPacket WAIT_OPPONENT =
+            EncodedPacket.of(PacketType.WAIT_OPPONENT, "Rakibin gemilerini yerleştirmesi bekleniyor...");
+    static final EncodedPacket ERROR_NOT_YOUR_TURN = EncodedPacket.of(PacketType.ERROR, "Sıra sizde değil!");
+    static final EncodedPacket ERROR_ALREADY_SHOT = EncodedPacket.of(PacketType.ERROR, "Bu hücreye zaten ateş edilmiş!");
+    static final EncodedPacket ERROR_INVALID_LAYOUT = EncodedPacket.of(PacketType.ERROR, "Geçersiz gemi yerleşimi!");
+    static final EncodedPacket ERROR_SHIPS_LOCKED = EncodedPacket.of(PacketType.ERROR, "Gemiler zaten yerleştirildi!");
+    static final EncodedPacket ERROR_BOARD_NOT_READY = EncodedPacket.of(PacketType.ERROR, "Tahta henüz hazır değil!");
+    static final EncodedPacket OPPONENT_DISCONNECTED =
+            EncodedPacket.of(PacketType.OPPONENT_DISCONNECTED, "Rakibiniz oyundan ayrıldı. Oyun bitti.");
+    static final EncodedPacket INVITE_CANCELED =
+            EncodedPacket.of(PacketType.INVITE_CANCELED, "Davet eden/edilen oyuncu çıkış yaptı.");
+
+    private PacketCache() {
+    }
+}
@@ -1,35 +1,120 @@
 package server;
 
+import shared.Board;
+import shared.EncodedPacket;
 import shared.Packet;
+import shared.PacketStats;
+import shared.PacketType;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class Server {
     private static final int PORT = 12345;
+    private static final int ACCEPT_BACKLOG = 1024; // Bağlantı patlamalarında SYN'ler düşmesin (varsayılan 50)
+    // Paket istatistiklerinin yazdırılma aralığı (saniye); 0 ise yalnızca kapanışta yazdırılır
+    private static final long STATS_INTERVAL_SECONDS = Long.getLong("battleship.stats.interval", 60);
+    // NIO modunda olay döngüsü (Selector iş parçacığı) sayısı
+    private static final int NIO_LOOPS = Integer.getInteger("battleship.nio.loops",
+            Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    // Lobi değişikliklerinin toplanıp tek pakette gönderilmeden önce beklendiği süre (ms); 0 ise hemen gönderilir
+    private static final long LOBBY_UPDATE_DELAY_MILLIS = Long.getLong("battleship.lobby.delay", 100);
+
+    // Oyunların dağıtıldığı parça (iş parçacığı) sayısı; varsayılan çekirdek başına bir parça
+    private static final int GAME_SHARDS = Integer.getInteger("battleship.game.shards",
+            Runtime.getRuntime().availableProcessors());
+
+    // Tüm bağlantıların tür bazında paket sayaçları
+    static final PacketStats PACKET_STATS = new PacketStats();
+
+    /**
+     * İstemci bağlantılarının çalıştırılma biçimi; varsayılan {@code -Dbattleship.server.io} ile seçilir
+     * ({@code thread}, {@code virtual} veya {@code nio}).
+     */
+    public enum IoMode {
+        THREAD,  // Bağlantı başına platform iş parçacığı, bloklanan G/Ç
+        VIRTUAL, // Bağlantı başına sanal iş parçacığı; aynı bloklanan kod, iş parçacığı yığını maliyeti olmadan
+        NIO;     // Birkaç Selector iş parçacığı, bloklanmayan G/Ç
+
+        static IoMode fromProperty() {
+            String value = System.getProperty("battleship.server.io", "thread");
+            for (IoMode mode : values()) {
+                if (mode.name().equalsIgnoreCase(value)) {
+                    return mode;
+                }
+            }
+            System.err.println("Bilinmeyen battleship.server.io değeri: " + value + ", thread kullanılıyor.");
+            return THREAD;
+        }
+    }
+
+    private final IoMode ioMode;
     private ServerSocket serverSocket;
+    private ServerSocketChannel serverChannel; // Yalnızca NIO modunda
+    private NioEventLoop[] eventLoops;
     private boolean running;
+    private ScheduledExecutorService statsReporter;
+    private ScheduledExecutorService lobbyTimer; // Lobi değişikliklerini toplayıp geciktirerek gönderir
 
     // Oyuncuların davet durumlarını takip etmek için
     private Map<Integer, Boolean> playerInviteStatus = new ConcurrentHashMap<>();
+    // Davet edenin istediği tahta boyutu (davet kabul edilince oyuna aktarılır)
+    private Map<Integer, Integer> pendingBoardSizes = new ConcurrentHashMap<>();
+
+    // Lobi değişiklikleri: gönderilmeyi bekleyen katılan/ayrılan istemciler; lobbyLock ile korunur
+    private final ReentrantLock lobbyLock = new ReentrantLock();
+    private final Set<Integer> pendingJoined = new LinkedHashSet<>();
+    private final Set<Integer> pendingLeft = new LinkedHashSet<>();
+    private boolean lobbyUpdateScheduled;
 
     // Track connected clients
     private Map<Integer, ClientHandler> connectedClients = new ConcurrentHashMap<>();
     private AtomicInteger nextClientId = new AtomicInteger(1);
 
-    // Track active games
-    private Map<String, GameSession> activeGames = new ConcurrentHashMap<>();
+    // Track active games: her parça (çekirdek başına bir) kendi oyunlarını yalnızca kendi iş parçacığında tutar
+    private GameShard[] gameShards;
+    // Oyuncu ID'sinden oturuma dizin; her FIRE'da tüm oyunları taramamak için. Oturum yayımlanmadan önce
+    // doldurulur ve yalnızca aynı oturumu gösteren girdiler silinir, böylece eski bir oturuma işaret etmez.
+    private Map<Integer, GameSession> sessionsByPlayer = new ConcurrentHashMap<>();
+    // Oyuncuların lobiden oyuna geçişini (davet kabulü) ve ayrılışını (removeClient) sıraya koyar: ayrılan oyuncu
+    // ya oturum yayımlanmadan önce lobiden çıkar ve davet iptal olur, ya da yayımlanmış oturumu bulur.
+    // Kilit tutulurken paket gönderilmez.
+    private final ReentrantLock sessionLock = new ReentrantLock();
     private AtomicInteger gameIdCounter = new AtomicInteger(1);
 
+    public Server() {
+        this(IoMode.fromProperty());
+    }
+
+    public Server(IoMode ioMode) {
+        this.ioMode = ioMode;
+    }
+
     public void start() {
+        if (ioMode == IoMode.NIO) {
+            startNio();
+            return;
+        }
         try {
-            serverSocket = new ServerSocket(PORT);
-            System.out.println("Server started on port " + PORT);
+            serverSocket = new ServerSocket(PORT, ACCEPT_BACKLOG);
+            System.out.println("Server started on port " + PORT + (ioMode == IoMode.VIRTUAL ? " (virtual threads)" : ""));
             running = true;
+            startServices();
 
             while (running) {
                 Socket clientSocket = serverSocket.accept();
@@ -37,11 +122,14 @@ public class Server {
                 System.out.println("Client " + clientId + " connected");
 
                 ClientHandler clientHandler = new ClientHandler(clientId, clientSocket, this);
-                connectedClients.put(clientId, clientHandler);
-
-                new Thread(clientHandler).start();
+                addClient(clientHandler);
 
-                broadcastClientList();
+                if (ioMode == IoMode.VIRTUAL) {
+                    // Bloklanan okumada taşıyıcı iş parçacığı serbest kalır (G/Ç yolunda synchronized yok)
+                    Thread.ofVirtual().name("client-" + clientId).start(clientHandler);
+                } else {
+                    new Thread(clientHandler).start(); // Lobi listesini greet() gönderir
+                }
             }
         } catch (IOException e) {
             System.out.println("Server error: " + e.getMessage());
@@ -50,46 +138,96 @@ public class Server {
         }
     }
 
-    public void removeClient(int clientId) {
-        System.out.println("Attempting to remove client: " + clientId);
+    /**
+     * Bloklanmayan mod: bağlantılar kabul edildikten sonra sırayla {@link NioEventLoop}'lara dağıtılır; iş parçacığı
+     * sayısı istemci sayısından bağımsızdır. Oyun ve lobi mantığı aynı {@link ClientHandler} üzerinden çalışır.
+     */
+    private void startNio() {
+        try {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(PORT), ACCEPT_BACKLOG);
+            eventLoops = new NioEventLoop[Math.max(1, NIO_LOOPS)];
+            for (int i = 0; i < eventLoops.length; i++) {
+                eventLoops[i] = new NioEventLoop("nio-loop-" + i);
+                eventLoops[i].start();
+            }
+            System.out.println("Server started on port " + PORT + " (NIO, " + eventLoops.length + " event loops)");
+            running = true;
+            startServices();
 
-        GameSession gameSession = findGameSessionByPlayerId(clientId);
+            while (running) {
+                SocketChannel channel = serverChannel.accept(); // Kabul bloklanır, okuma/yazma olay döngülerinde
+                channel.configureBlocking(false);
+                int clientId = nextClientId.getAndIncrement();
+                System.out.println("Client " + clientId + " connected");
 
-        if (gameSession != null) {
-            System.out.println("Client " + clientId + " was in game " + gameSession.getGameId());
-            int opponentId = gameSession.getOpponentId(clientId);
-            ClientHandler opponentHandler = gameSession.getPlayerHandler(opponentId); // GameSession'dan handler al
+                NioEventLoop loop = eventLoops[clientId % eventLoops.length];
+                NioConnection connection = new NioConnection(loop, channel, clientId, this);
+                ClientHandler clientHandler = connection.getHandler();
+                addClient(clientHandler);
 
-            if (opponentHandler != null) {
-                opponentHandler.sendPacket(new Packet("OPPONENT_DISCONNECTED", "Rakibiniz oyundan ayrıldı. Oyun bitti."));
-                System.out.println("Notified opponent " + opponentId + " about disconnection.");
+                clientHandler.greet(); // Lobi listesi dahil
+                loop.register(connection);
+            }
+        } catch (IOException e) {
+            System.out.println("Server error: " + e.getMessage());
+        } finally {
+            shutdown();
+        }
+    }
 
-                opponentHandler.close(); // Rakibin bağlantısını da kapat
-                System.out.println("Closed opponent's (" + opponentId + ") connection as game ended.");
+    /**
+     * İstatistik yazıcısını, lobi zamanlayıcısını ve oyun parçalarını başlatır; G/Ç modundan bağımsızdır.
+     */
+    void startServices() {
+        statsReporter = startStatsReporter();
+        lobbyTimer = startLobbyTimer();
+        gameShards = startGameShards();
+    }
 
-            } else {
-                System.out.println("Could not find opponent handler for client " + opponentId);
+    /**
+     * Yeni bağlanan istemciyi lobiye ekler.
+     */
+    void addClient(ClientHandler handler) {
+        connectedClients.put(handler.getClientId(), handler);
+    }
+
+    public void removeClient(int clientId) {
+        System.out.println("Attempting to remove client: " + clientId);
+
+        GameSession gameSession;
+        ClientHandler lobbyHandler = null;
+        sessionLock.lock();
+        try {
+            gameSession = findGameSessionByPlayerId(clientId);
+            if (gameSession == null) {
+                lobbyHandler = connectedClients.remove(clientId); // Lobiden çıkar
             }
+        } finally {
+            sessionLock.unlock();
+        }
 
-            activeGames.remove(gameSession.getGameId());
-            System.out.println("Removed game session " + gameSession.getGameId());
+        if (gameSession != null) {
+            System.out.println("Client " + clientId + " was in game " + gameSession.getGameId());
+            // Oyunun parçasında, daha önce gelen atışlardan ve oyun sonundan sonra işlenir
+            gameSession.execute(() -> playerLeftGame(gameSession, clientId));
 
         } else {
             System.out.println("Client " + clientId + " was not in an active game (disconnecting from lobby).");
-            ClientHandler handler = connectedClients.remove(clientId); // Lobiden çıkar
-            if (handler != null) {
-                handler.close(); // Soketi ve stream'leri kapatır
+            if (lobbyHandler != null) {
+                lobbyHandler.close(); // Soketi ve stream'leri kapatır
                 System.out.println("Closed handler for client " + clientId + " disconnecting from lobby.");
             } else {
                 System.out.println("Handler for client " + clientId + " was already removed or null (lobby).");
             }
 
             playerInviteStatus.remove(clientId);
+            pendingBoardSizes.remove(clientId);
             for (Map.Entry<Integer, Boolean> entry : playerInviteStatus.entrySet()) {
                 if (entry.getValue()) {
                     ClientHandler otherPlayer = connectedClients.get(entry.getKey());
                     if (otherPlayer != null) {
-                        otherPlayer.sendPacket(new Packet("INVITE_CANCELED", "Davet eden/edilen oyuncu çıkış yaptı."));
+                        otherPlayer.sendPacket(PacketCache.INVITE_CANCELED);
                     }
                     entry.setValue(false);
                 }
@@ -97,37 +235,162 @@ public class Server {
             System.out.println("Cleaned up invite status for client " + clientId);
         }
 
-        if (gameSession == null) {
-            broadcastClientList(); // Sadece lobiden ayrılma durumunda listeyi güncelle
+        if (lobbyHandler != null) {
+            lobbyLeft(clientId); // Yalnızca gerçekten lobide olan oyuncunun ayrılışı duyurulur
         }
 
         System.out.println("Finished removing client " + clientId + " context.");
     }
 
 
+    /**
+     * Oyundan ayrılan oyuncunun rakibine haber verir ve oturumu kaldırır. Oturumun parçasında çalışır; oyun bu
+     * arada bittiyse rakibe bildirilecek bir şey kalmamıştır.
+     */
+    private void playerLeftGame(GameSession gameSession, int clientId) {
+        if (!gameSession.isGameOver()) {
+            int opponentId = gameSession.getOpponentId(clientId);
+            ClientHandler opponentHandler = gameSession.getPlayerHandler(opponentId); // GameSession'dan handler al
+
+            if (opponentHandler != null) {
+                opponentHandler.sendPacket(PacketCache.OPPONENT_DISCONNECTED);
+                System.out.println("Notified opponent " + opponentId + " about disconnection.");
+
+                opponentHandler.close(); // Rakibin bağlantısını da kapat
+                System.out.println("Closed opponent's (" + opponentId + ") connection as game ended.");
+
+            } else {
+                System.out.println("Could not find opponent handler for client " + opponentId);
+            }
+        }
+
+        removeGameSession(gameSession);
+        System.out.println("Removed game session " + gameSession.getGameId());
+    }
+
     public void handleInviteCanceled(int clientId) {
         playerInviteStatus.put(clientId, false);
+        pendingBoardSizes.remove(clientId);
     }
 
 
 
-    public void broadcastClientList() {
-        StringBuilder clientList = new StringBuilder();
-        for (Integer clientId : connectedClients.keySet()) {
-            clientList.append(clientId).append(",");
+    /**
+     * Yeni bağlanan istemciye lobinin tam listesini (CLIENT_LIST) gönderir ve katılımını diğer oyunculara
+     * duyurulmak üzere kaydeder. Tam liste yalnızca burada gönderilir; istemci sonrasında yalnızca
+     * PLAYER_JOINED / PLAYER_LEFT değişikliklerini alır.
+     */
+    void lobbyJoined(ClientHandler handler) {
+        int clientId = handler.getClientId();
+        lobbyLock.lock();
+        try {
+            if (!connectedClients.containsKey(clientId)) {
+                return; // Karşılanmadan önce ayrıldı
+            }
+            handler.sendPacket(EncodedPacket.of(PacketType.CLIENT_LIST, joinIds(connectedClients.keySet())));
+            recordLobbyChange(clientId, true);
+        } finally {
+            lobbyLock.unlock();
         }
+    }
 
-        if (clientList.length() > 0) {
-            clientList.setLength(clientList.length() - 1);
+    /**
+     * İstemcinin lobiden ayrıldığını (bağlantı kopması veya oyuna başlama) duyurulmak üzere kaydeder.
+     */
+    void lobbyLeft(int clientId) {
+        lobbyLock.lock();
+        try {
+            recordLobbyChange(clientId, false);
+        } finally {
+            lobbyLock.unlock();
         }
+    }
+
+    /**
+     * Değişikliği bekleyenlere ekler; aynı pencerede hem katılıp hem ayrılan istemci hiç duyurulmaz.
+     * lobbyLock tutulurken çağrılır.
+     */
+    private void recordLobbyChange(int clientId, boolean joined) {
+        Set<Integer> opposite = joined ? pendingLeft : pendingJoined;
+        if (!opposite.remove(clientId)) {
+            (joined ? pendingJoined : pendingLeft).add(clientId);
+        }
+        if (lobbyUpdateScheduled) {
+            return;
+        }
+        if (lobbyTimer == null || LOBBY_UPDATE_DELAY_MILLIS <= 0) {
+            publishLobbyChanges();
+            return;
+        }
+        lobbyUpdateScheduled = true;
+        lobbyTimer.schedule(this::publishLobbyChanges, LOBBY_UPDATE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Bekleyen lobi değişikliklerini lobideki herkese gönderir: ayrılanlar tek bir PLAYER_LEFT, katılanlar tek
+     * bir PLAYER_JOINED paketinde. Her paket bir kez kodlanır. Gönderimler bloklanmadığı için (bkz.
+     * {@link OutboundQueue}) kilit altında yapılır; böylece her istemci tam listeyi ve değişiklikleri
+     * oluşturuldukları sırayla alır.
+     */
+    @SuppressWarnings("try") // batch yalnızca kapsamı belirler; kapanınca hepsini gönderir
+    private void publishLobbyChanges() {
+        lobbyLock.lock();
+        try {
+            lobbyUpdateScheduled = false;
+            if (pendingJoined.isEmpty() && pendingLeft.isEmpty()) {
+                return;
+            }
+            EncodedPacket left = pendingLeft.isEmpty() ? null : EncodedPacket.of(PacketType.PLAYER_LEFT, joinIds(pendingLeft));
+            EncodedPacket joined = pendingJoined.isEmpty() ? null : EncodedPacket.of(PacketType.PLAYER_JOINED, joinIds(pendingJoined));
+            pendingLeft.clear();
+            pendingJoined.clear();
+            for (ClientHandler handler : connectedClients.values()) {
+                try (OutboundBatch batch = OutboundBatch.of(handler)) {
+                    if (left != null) {
+                        handler.sendPacket(left);
+                    }
+                    if (joined != null) {
+                        handler.sendPacket(joined);
+                    }
+                }
+            }
+        } finally {
+            lobbyLock.unlock();
+        }
+    }
 
-        String message = clientList.toString();
-        for (ClientHandler handler : connectedClients.values()) {
-            handler.sendPacket(new Packet("CLIENT_LIST", message));
+    private static String joinIds(Collection<Integer> clientIds) {
+        StringBuilder ids = new StringBuilder();
+        for (Integer clientId : clientIds) {
+            if (ids.length() > 0) {
+                ids.append(',');
+            }
+            ids.append(clientId);
         }
+        return ids.toString();
     }
 
     public void handleInvitation(int fromClientId, int toClientId) {
+        handleInvitation(fromClientId, toClientId, Board.DEFAULT_SIZE);
+    }
+
+    /**
+     * Belirli bir tahta boyutuyla oyun daveti gönderir.
+     * {@link Board#DEFAULT_SIZE}..{@link Board#MAX_SIZE} dışındaki boyutlar reddedilir ve davet edene INVITE_ERROR
+     * gönderilir; davet edilen oyuncuya hiçbir şey gitmez.
+     */
+    public void handleInvitation(int fromClientId, int toClientId, int boardSize) {
+        if (boardSize < Board.DEFAULT_SIZE || boardSize > Board.MAX_SIZE) {
+            System.err.println("Client " + fromClientId + " geçersiz tahta boyutu istedi: " + boardSize);
+            ClientHandler sender = connectedClients.get(fromClientId);
+            if (sender != null) {
+                sender.sendPacket(new Packet(PacketType.INVITE_ERROR, "Geçersiz tahta boyutu: " + boardSize
+                        + " (" + Board.DEFAULT_SIZE + " ile " + Board.MAX_SIZE + " arasında olmalı)"));
+            }
+            return;
+        }
+        pendingBoardSizes.put(fromClientId, boardSize);
+
         ClientHandler receiver = connectedClients.get(toClientId);
 
 
@@ -136,34 +399,67 @@ public class Server {
         playerInviteStatus.put(toClientId, true);
 
         if (receiver != null) {
-            receiver.sendPacket(new Packet("GAME_INVITE", String.valueOf(fromClientId)));
+            receiver.sendPacket(new Packet(PacketType.GAME_INVITE, String.valueOf(fromClientId)));
         }
     }
     public void handleShipsReady(int clientId, String shipPositions) {
         GameSession session = findGameSessionByPlayerId(clientId);
         if (session != null) {
-            session.setPlayerReady(clientId, shipPositions);
+            // Hazır bayrakları ve oyunun başlatılması oturumun sırasında, diğer oyuncunun komutlarıyla yarışmadan
+            session.execute(() -> shipsReady(session, clientId, shipPositions));
+        } else {
+            System.err.println("Client " + clientId + " için aktif oyun bulunamadı (handleShipsReady).");
+        }
+    }
 
-            if (session.areBothPlayersReady()) {
-                session.startGameLogic();
-            } else {
-                ClientHandler readyPlayerHandler = session.getPlayerHandler(clientId);
-                if(readyPlayerHandler != null) {
-                    readyPlayerHandler.sendPacket(new Packet("WAIT_OPPONENT", "Rakibin gemilerini yerleştirmesi bekleniyor..."));
-                }
+    private void shipsReady(GameSession session, int clientId, String shipPositions) {
+        if (!session.canPlaceShips(clientId)) {
+            // Oyuncu zaten hazır ya da oyun başladı/bitti; yerleşim değiştirilemez
+            System.err.println("Game " + session.getGameId() + ": Oyuncu " + clientId + " için SHIPS_READY reddedildi.");
+            ClientHandler handler = session.getPlayerHandler(clientId);
+            if (handler != null) {
+                handler.sendPacket(PacketCache.ERROR_SHIPS_LOCKED);
             }
+            return;
+        }
+        if (!session.setPlayerReady(clientId, shipPositions)) {
+            ClientHandler handler = session.getPlayerHandler(clientId);
+            if (handler != null) {
+                handler.sendPacket(PacketCache.ERROR_INVALID_LAYOUT);
+            }
+            return;
+        }
+
+        if (session.areBothPlayersReady()) {
+            session.startGameLogic();
         } else {
-            System.err.println("Client " + clientId + " için aktif oyun bulunamadı (handleShipsReady).");
+            ClientHandler readyPlayerHandler = session.getPlayerHandler(clientId);
+            if(readyPlayerHandler != null) {
+                readyPlayerHandler.sendPacket(PacketCache.WAIT_OPPONENT);
+            }
         }
     }
 
     public GameSession findGameSessionByPlayerId(int playerId) {
-        for (GameSession session : activeGames.values()) {
-            if (session.hasPlayer(playerId)) {
-                return session;
+        return sessionsByPlayer.get(playerId);
+    }
+
+    /**
+     * Oturumu parçasından, oyuncu dizininden ve oyuncuların bağlantılarından kaldırır. Oyun bittiğinde ve bir
+     * oyuncu ayrıldığında çağrılır; ikinci çağrı etkisizdir. Oyuncu bu arada başka bir oturuma atanmışsa onun girdisine dokunulmaz.
+     */
+    void removeGameSession(GameSession session) {
+        if (session.getShard() != null) {
+            session.getShard().removeGame(session);
+        }
+        sessionsByPlayer.remove(session.getPlayer1Id(), session);
+        sessionsByPlayer.remove(session.getPlayer2Id(), session);
+        for (int playerId : new int[]{session.getPlayer1Id(), session.getPlayer2Id()}) {
+            ClientHandler handler = session.getPlayerHandler(playerId);
+            if (handler != null) {
+                handler.leaveGame(session);
             }
         }
-        return null;
     }
 
 
@@ -172,52 +468,153 @@ public class Server {
         // Her iki oyuncunun davet durumunu sıfırla
         playerInviteStatus.put(fromClientId, false);
         playerInviteStatus.put(toClientId, false);
+        Integer requestedBoardSize = pendingBoardSizes.remove(fromClientId);
 
         if (sender != null) {
             if (accepted) {
-                // Create a new game session
-                String gameId = "game-" + gameIdCounter.getAndIncrement();
-                ClientHandler player1 = connectedClients.get(fromClientId);
-                ClientHandler player2 = connectedClients.get(toClientId);
+                startGame(fromClientId, toClientId, requestedBoardSize != null ? requestedBoardSize : Board.DEFAULT_SIZE);
+            } else {
+                // Notify that invitation was declined
+                sender.sendPacket(new Packet(PacketType.INVITE_DECLINED, String.valueOf(fromClientId)));
+            }
+        }
+    }
 
+    /**
+     * Kabul edilen davetin oyununu kurar. İki oyuncu da hâlâ lobideyse lobiden çıkarılır ve oturum yayımlanır;
+     * biri bu arada ayrılmışsa oyun kurulmaz ve kalan oyuncuya davetin iptal edildiği bildirilir.
+     */
+    private void startGame(int fromClientId, int toClientId, int boardSize) {
+        int gameNumber = gameIdCounter.getAndIncrement();
+        String gameId = "game-" + gameNumber;
+        GameShard shard = gameShards[Math.floorMod(gameNumber, gameShards.length)];
+        ClientHandler player1;
+        ClientHandler player2;
+        boolean started = false;
+
+        sessionLock.lock();
+        try {
+            player1 = connectedClients.get(fromClientId);
+            player2 = connectedClients.get(toClientId);
+            if (player1 != null && player2 != null) {
                 // Oyuncuları aktif istemciler listesinden geçici olarak çıkaralım
                 connectedClients.remove(fromClientId);
                 connectedClients.remove(toClientId);
 
-                // Yeni oyun oturumu oluştur
-                GameSession gameSession = new GameSession(gameId, player1, player2);
-                activeGames.put(gameId, gameSession);
+                // Yeni oyun oturumu oluştur (davet edenin seçtiği tahta boyutuyla)
+                GameSession gameSession = new GameSession(gameId, player1, player2, boardSize, shard);
 
-                // Oyun bittiğinde oyuncuları tekrar listeye eklemek için bir referans kaydedelim
+                // Oyun bittiğinde oturumu kaldırabilmesi için bir referans kaydedelim
                 gameSession.setServer(this);
                 gameSession.setPlayerIds(fromClientId, toClientId);
 
-                // Notify both players that game has started
-                player1.sendPacket(new Packet("GAME_STARTED", gameId + "|1"));
-                player2.sendPacket(new Packet("GAME_STARTED", gameId + "|2"));
+                // Oturum tamamen kurulduktan sonra yayımlanır
+                sessionsByPlayer.put(fromClientId, gameSession);
+                sessionsByPlayer.put(toClientId, gameSession);
+                shard.addGame(gameSession);
+                // Oyuncuların komutları bundan sonra dizine bakmadan doğrudan oturumun parçasına gider
+                player1.joinGame(gameSession);
+                player2.joinGame(gameSession);
+                started = true;
+            }
+        } finally {
+            sessionLock.unlock();
+        }
 
-                // Tüm istemcilere güncellenmiş listeyi gönder
-                broadcastClientList();
+        if (!started) {
+            System.err.println("Davet kabul edildi ama oyunculardan biri ayrıldı (" + fromClientId + ", " + toClientId + ").");
+            ClientHandler remaining = player1 != null ? player1 : player2;
+            if (remaining != null) {
+                remaining.sendPacket(PacketCache.INVITE_CANCELED);
+            }
+            return;
+        }
 
-            } else {
-                // Notify that invitation was declined
-                sender.sendPacket(new Packet("INVITE_DECLINED", String.valueOf(fromClientId)));
+        // Notify both players that game has started
+        player1.sendPacket(new Packet(PacketType.GAME_STARTED, gameId + "|1|" + boardSize));
+        player2.sendPacket(new Packet(PacketType.GAME_STARTED, gameId + "|2|" + boardSize));
+
+        // İki oyuncu da lobiden ayrıldı
+        lobbyLeft(fromClientId);
+        lobbyLeft(toClientId);
+    }
+
+    /**
+     * Paket istatistiklerini düzenli aralıklarla, yalnızca trafik değiştiyse yazdırır.
+     */
+    private ScheduledExecutorService startStatsReporter() {
+        if (STATS_INTERVAL_SECONDS <= 0) {
+            return null;
+        }
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "packet-stats");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long[] lastTotal = {0};
+        reporter.scheduleAtFixedRate(() -> {
+            long total = PACKET_STATS.getTotalPackets();
+            if (total != lastTotal[0]) {
+                lastTotal[0] = total;
+                System.out.println("Packet stats:\n" + PACKET_STATS.report());
             }
+        }, STATS_INTERVAL_SECONDS, STATS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        return reporter;
+    }
+
+    private static GameShard[] startGameShards() {
+        GameShard[] shards = new GameShard[Math.max(1, GAME_SHARDS)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new GameShard("game-shard-" + i);
+            shards[i].start();
         }
+        return shards;
+    }
+
+    private static ScheduledExecutorService startLobbyTimer() {
+        return Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "lobby-updates");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static PacketStats getPacketStats() {
+        return PACKET_STATS;
     }
 
     private void shutdown() {
         running = false;
+        if (statsReporter != null) {
+            statsReporter.shutdownNow();
+        }
+        if (lobbyTimer != null) {
+            lobbyTimer.shutdownNow();
+        }
+        if (gameShards != null) {
+            for (GameShard shard : gameShards) {
+                shard.shutdown();
+            }
+        }
+        System.out.println("Packet stats:\n" + PACKET_STATS.report());
         try {
             if (serverSocket != null && !serverSocket.isClosed()) {
                 serverSocket.close();
             }
+            if (serverChannel != null && serverChannel.isOpen()) {
+                serverChannel.close();
+            }
 
             // Close all client connections
             for (ClientHandler handler : connectedClients.values()) {
                 handler.close();
             }
             connectedClients.clear();
+            if (eventLoops != null) {
+                for (NioEventLoop loop : eventLoops) {
+                    loop.shutdown();
+                }
+            }
         } catch (IOException e) {
             System.out.println("Error shutting down server: " + e.getMessage());
         }
@@ -0,0 +1,429 @@
+package shared;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Length-prefixed binary encoding of {@link Packet}s.
+ * <p>
+ * Frame layout: {@code [int length][byte type][payload]}, where {@code length} counts the type byte and the
+ * payload, and the type byte is {@link PacketType#getCode()}. Coordinates, shot results, ship layouts, board
+ * sync messages and client ids are written as typed fields; every other
+ * known type carries its data as a UTF-8 string, and unknown types fall back to {@link #GENERIC} with both
+ * the type name and the data. Decoding rebuilds the same {@code type}/{@code data} strings as the text format,
+ * so game logic does not depend on the wire format.
+ * <p>
+ * The format is negotiated per connection: after {@code CLIENT_ID} the server offers
+ * {@code PROTOCOL|BINARY}; a client that accepts replies with the same packet and switches its output, and
+ * the server answers {@code PROTOCOL|BINARY_ON} as its last text line. Clients that do not know the offer
+ * ignore it and stay on the text format.
+ * <p>
+ * Once both directions are binary the server offers {@code PROTOCOL|DEFLATE}. A client that accepts echoes it, and
+ * from then on each side may send frames of {@link #COMPRESSION_THRESHOLD} bytes or more as {@link #COMPRESSED}
+ * frames; see {@link PacketConnection#enableOutputCompression(int)}. Small frames are always sent as they are.
+ */
+public final class BinaryProtocol {
+    public static final String BINARY_OFFER = "BINARY";
+    public static final String BINARY_ACK = "BINARY_ON";
+    public static final String COMPRESSION_OFFER = "DEFLATE";
+    // Frame bodies below this size are not compressed; -Dbattleship.compression.threshold overrides it
+    public static final int COMPRESSION_THRESHOLD = Integer.getInteger("battleship.compression.threshold", 256);
+
+    public static final int MAX_FRAME_LENGTH = 1 << 20; // Guards against corrupt or hostile length prefixes
+
+    static final int GENERIC = 0; // Type code of frames that carry the type name as a string
+    static final int COMPRESSED = 0xFF; // Type code of frames whose payload is a deflated frame body
+
+    // Shot result codes
+    private static final int RESULT_MISS = PacketView.RESULT_MISS;
+    private static final int RESULT_HIT = PacketView.RESULT_HIT;
+    private static final int RESULT_SUNK = PacketView.RESULT_SUNK;
+    private static final int NO_SHIP_TYPE = 0xFF;
+
+    static final int SHOT_FRAME_LENGTH = Integer.BYTES + 7;
+
+    // Ship layout payload formats
+    private static final int LAYOUT_LEGACY = 0;
+    private static final int LAYOUT_COMPACT = 1;
+
+    // Board side codes of BOARD_STATE, BOARD_DELTA and BOARD_SYNC
+    private static final int SIDE_OWN = 0;
+    private static final int SIDE_OPPONENT = 1;
+
+    private static final ShipType[] SHIP_TYPES = ShipType.values();
+
+    private BinaryProtocol() {
+    }
+
+    /**
+     * Encodes a packet as a complete frame, including the length prefix.
+     * Packets whose data does not match the typed layout of their type are sent as {@link #GENERIC}.
+     */
+    public static byte[] encode(Packet packet) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0); // Length placeholder
+            PacketType type = packet.getPacketType();
+            boolean typed = false;
+            if (type != null) {
+                try {
+                    out.writeByte(type.getCode());
+                    writePayload(type, packet.getData(), out);
+                    typed = true;
+                } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                    bytes.reset(); // Unexpected data for this type: fall back to the generic layout
+                    out.writeInt(0);
+                }
+            }
+            if (!typed) {
+                out.writeByte(GENERIC);
+                writeString(packet.getType(), out);
+                writeString(packet.getData(), out);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // ByteArrayOutputStream does not throw
+        }
+        byte[] frame = bytes.toByteArray();
+        int length = frame.length - Integer.BYTES;
+        frame[0] = (byte) (length >>> 24);
+        frame[1] = (byte) (length >>> 16);
+        frame[2] = (byte) (length >>> 8);
+        frame[3] = (byte) length;
+        return frame;
+    }
+
+    /**
+     * Encodes a SHOT_RESULT or OPPONENT_SHOT frame straight into {@code frame} (at least
+     * {@link #SHOT_FRAME_LENGTH} bytes) without building the text form first.
+     *
+     * @return The number of bytes written.
+     */
+    static int encodeShot(boolean opponentShot, int result, int row, int col, ShipType shipType, byte[] frame) {
+        if (row < 0 || row > 0xFFFF || col < 0 || col > 0xFFFF) {
+            throw new IllegalArgumentException("Value out of range: " + row + "," + col);
+        }
+        frame[0] = 0;
+        frame[1] = 0;
+        frame[2] = 0;
+        frame[3] = 7;
+        frame[4] = (byte) (opponentShot ? PacketType.OPPONENT_SHOT : PacketType.SHOT_RESULT).getCode();
+        frame[5] = (byte) result;
+        frame[6] = (byte) (row >>> 8);
+        frame[7] = (byte) row;
+        frame[8] = (byte) (col >>> 8);
+        frame[9] = (byte) col;
+        frame[10] = (byte) (shipType != null ? shipType.ordinal() : NO_SHIP_TYPE);
+        return SHOT_FRAME_LENGTH;
+    }
+
+    /**
+     * Reads a frame's length prefix.
+     *
+     * @return The length of the frame body, or -1 at a clean end of stream before a frame starts.
+     * @throws IOException If the stream ends inside the prefix or the length is out of range.
+     */
+    static int readFrameLength(DataInputStream in) throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            return -1;
+        }
+        int length = (first << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+        if (length < 1 || length > MAX_FRAME_LENGTH) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+        return length;
+    }
+
+    /**
+     * Decodes the first {@code length} bytes of a frame body (type byte followed by the payload, without the
+     * length prefix).
+     *
+     * @throws IllegalArgumentException If the frame is malformed. The frame was already read completely, so
+     *                                  the stream is still in sync.
+     */
+    static Packet decode(byte[] frame, int length) {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame, 0, length));
+        try {
+            int code = in.readUnsignedByte();
+            if (code == GENERIC) {
+                return new Packet(readString(in), readString(in));
+            }
+            PacketType type = PacketType.fromCode(code);
+            if (type == null) {
+                throw new IllegalArgumentException("Unknown packet type code: " + code);
+            }
+            return new Packet(type, readPayload(type, in));
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Truncated frame");
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+
+    private static void writePayload(PacketType type, String data, DataOutputStream out) throws IOException {
+        switch (type) {
+            case CLIENT_ID:
+            case GAME_INVITE:
+                out.writeInt(Integer.parseInt(data));
+                break;
+            case CLIENT_LIST:
+            case PLAYER_JOINED:
+            case PLAYER_LEFT: {
+                String[] ids = data.isEmpty() ? new String[0] : data.split(",");
+                out.writeInt(ids.length);
+                for (String id : ids) {
+                    out.writeInt(Integer.parseInt(id));
+                }
+                break;
+            }
+            case INVITE: {
+                // "toClientId" or "toClientId|boardSize"; size 0 means the default
+                String[] parts = data.split("\\|");
+                out.writeInt(Integer.parseInt(parts[0]));
+                writeUnsignedShort(parts.length > 1 ? Integer.parseInt(parts[1]) : 0, out);
+                break;
+            }
+            case INVITE_RESPONSE: {
+                String[] parts = data.split("\\|");
+                out.writeInt(Integer.parseInt(parts[0]));
+                out.writeBoolean(Boolean.parseBoolean(parts[1]));
+                break;
+            }
+            case GAME_STARTED: {
+                // "gameId|playerNo|boardSize"
+                String[] parts = data.split("\\|");
+                writeString(parts[0], out);
+                writeUnsignedByte(Integer.parseInt(parts[1]), out);
+                writeUnsignedShort(parts.length > 2 ? Integer.parseInt(parts[2]) : 0, out);
+                break;
+            }
+            case SHIPS_READY:
+            case MY_SHIPS:
+            case OPPONENT_SHIPS:
+                writeLayout(data, out);
+                break;
+            case FIRE: {
+                String[] parts = data.split(",");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Invalid FIRE data: " + data);
+                }
+                writeUnsignedShort(Integer.parseInt(parts[0]), out);
+                writeUnsignedShort(Integer.parseInt(parts[1]), out);
+                break;
+            }
+            case SHOT_RESULT: {
+                // "MISS:A1" or "HIT:A1:TYPE[:SUNK]"
+                String[] parts = data.split(":");
+                writeShot(parts[0], parts[1], parts.length > 2 ? parts[2] : null, parts.length > 3, out);
+                break;
+            }
+            case OPPONENT_SHOT: {
+                // "A1:MISS" or "A1:HIT:TYPE[:SUNK]"
+                String[] parts = data.split(":");
+                writeShot(parts[1], parts[0], parts.length > 2 ? parts[2] : null, parts.length > 3, out);
+                break;
+            }
+            case BOARD_STATE:
+            case BOARD_DELTA: {
+                // "side|base64": side byte, then the raw BoardStateCodec bytes up to the end of the frame
+                String[] parts = data.split("\\|");
+                writeSide(parts[0], out);
+                out.write(BoardStateCodec.parse(parts[1]));
+                break;
+            }
+            case BOARD_SYNC: {
+                // "side|version"
+                String[] parts = data.split("\\|");
+                writeSide(parts[0], out);
+                out.writeLong(Long.parseLong(parts[1]));
+                break;
+            }
+            default:
+                writeString(data, out);
+                break;
+        }
+    }
+
+    private static String readPayload(PacketType type, DataInputStream in) throws IOException {
+        switch (type) {
+            case CLIENT_ID:
+            case GAME_INVITE:
+                return Integer.toString(in.readInt());
+            case CLIENT_LIST:
+            case PLAYER_JOINED:
+            case PLAYER_LEFT: {
+                int count = in.readInt();
+                StringBuilder ids = new StringBuilder();
+                for (int i = 0; i < count; i++) {
+                    if (i > 0) {
+                        ids.append(',');
+                    }
+                    ids.append(in.readInt());
+                }
+                return ids.toString();
+            }
+            case INVITE: {
+                int to = in.readInt();
+                int size = in.readUnsignedShort();
+                return size == 0 ? Integer.toString(to) : to + "|" + size;
+            }
+            case INVITE_RESPONSE:
+                return in.readInt() + "|" + in.readBoolean();
+            case GAME_STARTED: {
+                String gameId = readString(in);
+                int player = in.readUnsignedByte();
+                int size = in.readUnsignedShort();
+                return size == 0 ? gameId + "|" + player : gameId + "|" + player + "|" + size;
+            }
+            case SHIPS_READY:
+            case MY_SHIPS:
+            case OPPONENT_SHIPS:
+                return readLayout(in);
+            case FIRE:
+                return in.readUnsignedShort() + "," + in.readUnsignedShort();
+            case SHOT_RESULT:
+            case OPPONENT_SHOT: {
+                int result = in.readUnsignedByte();
+                String cell = Coordinates.format(in.readUnsignedShort(), in.readUnsignedShort());
+                int shipCode = in.readUnsignedByte();
+                if (result == RESULT_MISS) {
+                    return type == PacketType.SHOT_RESULT ? "MISS:" + cell : cell + ":MISS";
+                }
+                if (shipCode >= SHIP_TYPES.length) {
+                    throw new IOException("Invalid ship type code: " + shipCode);
+                }
+                String hit = SHIP_TYPES[shipCode].name() + (result == RESULT_SUNK ? ":SUNK" : "");
+                return type == PacketType.SHOT_RESULT ? "HIT:" + cell + ":" + hit : cell + ":HIT:" + hit;
+            }
+            case BOARD_STATE:
+            case BOARD_DELTA: {
+                String side = readSide(in);
+                return side + "|" + BoardStateCodec.toText(in.readAllBytes());
+            }
+            case BOARD_SYNC: {
+                String side = readSide(in);
+                return side + "|" + in.readLong();
+            }
+            default:
+                return readString(in);
+        }
+    }
+
+    private static void writeShot(String result, String cell, String shipType, boolean sunk, DataOutputStream out) throws IOException {
+        if (result.equals("MISS")) {
+            out.writeByte(RESULT_MISS);
+        } else if (result.equals("HIT") && shipType != null) {
+            out.writeByte(sunk ? RESULT_SUNK : RESULT_HIT);
+        } else {
+            throw new IllegalArgumentException("Invalid shot result: " + result);
+        }
+        writeUnsignedShort(Coordinates.parseRow(cell), out);
+        writeUnsignedShort(Coordinates.parseCol(cell), out);
+        out.writeByte(shipType != null ? ShipType.valueOf(shipType).ordinal() : NO_SHIP_TYPE);
+    }
+
+    /**
+     * A format byte, then either the raw {@link ShipLayoutCodec} bytes (ship count + 5 bytes per ship) or, for
+     * the legacy "row,col,size,H;..." form, a ship count followed by (row, col, size, horizontal) per ship.
+     */
+    private static void writeLayout(String data, DataOutputStream out) throws IOException {
+        if (ShipLayoutCodec.isCompactText(data)) {
+            byte[] layout = ShipLayoutCodec.parse(data);
+            out.writeByte(LAYOUT_COMPACT);
+            writeUnsignedShort(ShipLayoutCodec.shipCount(layout.length), out);
+            out.write(layout);
+            return;
+        }
+        String[] ships = data.isEmpty() ? new String[0] : data.split(";");
+        out.writeByte(LAYOUT_LEGACY);
+        writeUnsignedShort(ships.length, out);
+        for (String ship : ships) {
+            String[] parts = ship.split(",");
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Invalid ship entry: " + ship);
+            }
+            writeUnsignedShort(Integer.parseInt(parts[0]), out);
+            writeUnsignedShort(Integer.parseInt(parts[1]), out);
+            writeUnsignedByte(Integer.parseInt(parts[2]), out);
+            out.writeBoolean(parts[3].equalsIgnoreCase("H"));
+        }
+    }
+
+    private static String readLayout(DataInputStream in) throws IOException {
+        int format = in.readUnsignedByte();
+        int count = in.readUnsignedShort();
+        if (format == LAYOUT_COMPACT) {
+            byte[] layout = new byte[count * ShipLayoutCodec.BYTES_PER_SHIP];
+            in.readFully(layout);
+            return ShipLayoutCodec.toText(layout);
+        }
+        if (format != LAYOUT_LEGACY) {
+            throw new IOException("Invalid layout format: " + format);
+        }
+        StringBuilder layout = new StringBuilder(count * 10);
+        for (int i = 0; i < count; i++) {
+            layout.append(in.readUnsignedShort()).append(',')
+                    .append(in.readUnsignedShort()).append(',')
+                    .append(in.readUnsignedByte()).append(',')
+                    .append(in.readBoolean() ? 'H' : 'V').append(';');
+        }
+        return layout.toString();
+    }
+
+    private static void writeSide(String side, DataOutputStream out) throws IOException {
+        if (side.equals(BoardStateCodec.SIDE_OWN)) {
+            out.writeByte(SIDE_OWN);
+        } else if (side.equals(BoardStateCodec.SIDE_OPPONENT)) {
+            out.writeByte(SIDE_OPPONENT);
+        } else {
+            throw new IllegalArgumentException("Invalid board side: " + side);
+        }
+    }
+
+    private static String readSide(DataInputStream in) throws IOException {
+        int side = in.readUnsignedByte();
+        if (side == SIDE_OWN) {
+            return BoardStateCodec.SIDE_OWN;
+        }
+        if (side == SIDE_OPPONENT) {
+            return BoardStateCodec.SIDE_OPPONENT;
+        }
+        throw new IOException("Invalid board side code: " + side);
+    }
+
+    private static void writeUnsignedShort(int value, DataOutputStream out) throws IOException {
+        if (value < 0 || value > 0xFFFF) {
+            throw new IllegalArgumentException("Value out of range: " + value);
+        }
+        out.writeShort(value);
+    }
+
+    private static void writeUnsignedByte(int value, DataOutputStream out) throws IOException {
+        if (value < 0 || value > 0xFF) {
+            throw new IllegalArgumentException("Value out of range: " + value);
+        }
+        out.writeByte(value);
+    }
+
+    private static void writeString(String value, DataOutputStream out) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_FRAME_LENGTH) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
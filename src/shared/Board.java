@@ -5,47 +5,130 @@ import java.util.Arrays;
 /**
  * Amiral Battı oyun tahtasını temsil eder.
  * Hücre durumlarını ve gemi yerleştirme/saldırı mantığını yönetir.
+ * <p>
+ * Tahta boyutu oyun başına belirlenir (varsayılan 10x10, en fazla {@value #MAX_SIZE}x{@value #MAX_SIZE}).
+ * Hücreler nesne referansları yerine bitboard olarak tutulur: küçük tahtalar yoğun maskeler
+ * ({@link DenseCellStore}), büyük "mega" tahtalar ise yalnızca gemi ve atış içeren 8x8 parçaları
+ * saklayan seyrek bir depolama ({@link SparseCellStore}) kullanır.
+ * <p>
+ * Tahta tek bir iş parçacığı tarafından değiştirilmek üzere tasarlanmıştır. Diğer iş parçacıkları
+ * tahtanın kendisini değil, {@link #snapshot()} ile yayımlanan değişmez {@link BoardSnapshot}
+ * nesnelerini okur.
+ * <p>
+ * Tahta, görünür durumunun (isabet, ıska, batık hücreler) artımlı 64-bit Zobrist özetini tutar.
+ * Özet her simetri için ayrıca güncellenir; {@link #getCanonicalHash()} simetrik konumları aynı
+ * anahtara katlar. Böylece yapay zeka transpozisyon tabloları ve tekrar/analiz önbellekleri
+ * ızgarayı serileştirmeden konum anahtarı elde eder.
+ * <p>
+ * Görünür durum değişiklikleri sürüm numaralarıyla birlikte sınırlı bir değişiklik günlüğüne yazılır.
+ * {@link BoardSnapshot#changesSince(long)} bu günlükten, istemcinin bildiği sürümden sonra değişen
+ * hücreleri verir; böylece senkronizasyon tüm tahtayı göndermeden yapılabilir ({@link BoardStateCodec}).
  */
 public class Board {
-    private static final int SIZE = 10; // Tahta boyutu (sabit)
-    private final CellStatus[][] grid; // Hücre durumlarını tutan 2D dizi
+    public static final int DEFAULT_SIZE = 10; // Standart tahta boyutu
+    public static final int MAX_SIZE = 1000; // Mega tahta modları için üst sınır
+    private static final int DENSE_MAX_CELLS = 64 * 64; // Bu hücre sayısının üzerinde seyrek depolama
+
+    private final int rows;
+    private final int cols;
+    // Bayraklar: bir hücrede birden fazla bit set olabilir (ör. gemi + isabet),
+    // getCellStatus öncelik sırasıyla SUNK > HIT > MISS > SHIP > EMPTY döndürür.
+    private final CellStore cells;
     private Ship [] ships;
+    private int shipCount; // ships dizisindeki dolu eleman sayısı
+    private int remainingShipCells; // Durumu hala SHIP olan (vurulmamış) hücre sayısı
+    private long version; // Her durum değişikliğinde artar
+    private volatile BoardSnapshot lastSnapshot; // En son yayımlanan görüntü (diğer iş parçacıkları için)
+
+    // Zobrist özetleri: anahtarlar tablo yerine (tohum, hücre, durum) üçlüsünün karıştırılmasıyla üretilir,
+    // böylece 1000x1000 tahtalar için de bellek gerekmez.
+    private static final int SHIP_LAYER = 4; // Gizli gemi katmanının durum kodu (görünür durumlar 1..3)
+    private final long zobristSeed;
+    private final BoardSymmetry[] symmetries; // Bu tahta şeklini koruyan simetriler
+    private final long[] symmetryHashes = new long[BoardSymmetry.values().length]; // ordinal -> görünür özet
+    private long shipLayerHash; // Gemi yerleşiminin özeti (yalnızca IDENTITY)
+
+    // Görünür durum değişiklik günlüğü (halka): her kayıt (sürüm << 22) | (hücre << 2) | durum
+    private static final int CHANGE_LOG_CAPACITY = 256;
+    static final int CHANGE_CELL_BITS = 22; // 1000x1000 hücre indeksi + 2 bit durum
+    private final long[] changeLog = new long[CHANGE_LOG_CAPACITY];
+    private int changeCount; // Günlükteki kayıt sayısı (en fazla kapasite)
+    private int changeStart; // En eski kaydın halkadaki yeri
+    private long changeLogFloor; // Bu sürümden sonraki tüm değişiklikler günlükte
 
     /**
      * Yeni bir Board nesnesi oluşturur ve tüm hücreleri EMPTY olarak başlatır.
      */
     public Board() {
-        grid = new CellStatus[SIZE][SIZE];
-        ships = new Ship[5];
-        for (int i = 0; i < SIZE; i++) {
-            Arrays.fill(grid[i], CellStatus.EMPTY); // Tüm hücreleri başlangıçta EMPTY yap
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * Kare bir tahta oluşturur.
+     * @param size Kenar uzunluğu (1..MAX_SIZE).
+     */
+    public Board(int size) {
+        this(size, size);
+    }
+
+    /**
+     * Verilen boyutlarda bir tahta oluşturur.
+     * @param rows Satır sayısı (1..MAX_SIZE).
+     * @param cols Sütun sayısı (1..MAX_SIZE).
+     */
+    public Board(int rows, int cols) {
+        if (rows <= 0 || cols <= 0 || rows > MAX_SIZE || cols > MAX_SIZE) {
+            throw new IllegalArgumentException("Tahta boyutu 1 ile " + MAX_SIZE + " arasında olmalıdır: " + rows + "x" + cols);
         }
+        this.rows = rows;
+        this.cols = cols;
+        this.cells = rows * cols <= DENSE_MAX_CELLS ? new DenseCellStore(rows, cols) : new SparseCellStore(rows, cols);
+        ships = new Ship[5];
+        this.zobristSeed = mix64(((long) rows << 32) | cols); // Farklı boyutlardaki tahtalar çakışmasın
+        this.symmetries = BoardSymmetry.forShape(rows, cols);
     }
 
     /**
      * Tahtanın boyutunu döndürür (genellikle 10).
+     * Kare olmayan tahtalarda satır sayısını döndürür; {@link #getRows()} ve {@link #getCols()} tercih edilmelidir.
      * @return Tahtanın boyutu.
      */
     public int getSize() {
-        return SIZE;
+        return rows;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
     }
 
     /**
      * Belirtilen koordinattaki hücrenin durumunu döndürür.
      * Geçersiz koordinatlar için EMPTY döndürür.
-     * @param row Satır indeksi (0-9).
-     * @param col Sütun indeksi (0-9).
+     * @param row Satır indeksi (0..rows-1).
+     * @param col Sütun indeksi (0..cols-1).
      * @return Hücrenin durumu (CellStatus).
      */
     public CellStatus getCellStatus(int row, int col) {
         if (isValidCoordinate(row, col)) {
-            return grid[row][col];
+            return toStatus(cells.flags(row, col));
         }
         // Geçersiz koordinat durumunda hata vermek yerine EMPTY döndürmek
         // bazı durumlarda daha güvenli olabilir. Veya exception fırlatılabilir.
         return CellStatus.EMPTY; // Veya null veya exception
     }
 
+    static CellStatus toStatus(int flags) {
+        if ((flags & CellStore.SUNK) != 0) return CellStatus.SUNK;
+        if ((flags & CellStore.HIT) != 0) return CellStatus.HIT;
+        if ((flags & CellStore.MISS) != 0) return CellStatus.MISS;
+        if ((flags & CellStore.SHIP) != 0) return CellStatus.SHIP;
+        return CellStatus.EMPTY;
+    }
+
     /**
      * Belirtilen koordinata bir gemi yerleştirmeye çalışır.
      * Geminin sınırlara taşıp taşmadığını ve diğer gemilerle veya kenarlarıyla çakışıp çakışmadığını kontrol eder.
@@ -70,15 +153,21 @@ public class Board {
         }
 
         // 3. Yerleştirme
+        if (shipCount == Byte.MAX_VALUE) {
+            return false; // Gemi indeksi tablosu byte tutar, en fazla 127 gemi
+        }
+        if (shipCount == ships.length) {
+            ships = Arrays.copyOf(ships, shipCount * 2); // Standart filodan büyük filolar için
+        }
+        ships[shipCount++] = ship;
+
+        cells.markShip(row, col, length, horizontal, shipCount);
         for (int i = 0; i < length; i++) {
-            if (horizontal) {
-                grid[row][col + i] = CellStatus.SHIP;
-                ship.addOccupiedCell(row, col + i); // Gemiye hangi hücreleri kapladığını söyle
-            } else {
-                grid[row + i][col] = CellStatus.SHIP;
-                 ship.addOccupiedCell(row+i, col); // Gemiye hangi hücreleri kapladığını söyle
-            }
+            int cellIndex = horizontal ? row * cols + col + i : (row + i) * cols + col;
+            shipLayerHash ^= zobristKey(cellIndex, SHIP_LAYER);
         }
+        remainingShipCells += length;
+        version++;
         return true;
     }
 
@@ -86,40 +175,31 @@ public class Board {
      * Belirtilen başlangıç noktası, uzunluk ve yöne göre geminin tahta sınırları içinde kalıp kalmadığını kontrol eder.
      */
     private boolean isValidPlacement(int row, int col, int length, boolean horizontal) {
-        if (row < 0 || col < 0 || row >= SIZE || col >= SIZE) {
+        if (row < 0 || col < 0 || row >= rows || col >= cols) {
             return false; // Başlangıç noktası geçersiz
         }
         if (horizontal) {
-            return col + length <= SIZE; // Yatayda sığıyor mu?
+            return col + length <= cols; // Yatayda sığıyor mu?
         } else {
-            return row + length <= SIZE; // Dikeyde sığıyor mu?
+            return row + length <= rows; // Dikeyde sığıyor mu?
         }
     }
 
     /**
     * Belirtilen konuma geminin yerleştirilip yerleştirilemeyeceğini kontrol eder.
     * (Başka gemiyle veya komşu hücrelerle çakışma var mı?)
+    * Geminin bir hücre genişletilmiş çerçevesi, depolamaya tek bir dikdörtgen sorgusu olarak sorulur.
     */
    private boolean canPlaceShipAt(int row, int col, int length, boolean horizontal) {
-       for (int i = 0; i < length; i++) {
-           int currentRow = horizontal ? row : row + i;
-           int currentCol = horizontal ? col + i : col;
-
-           // Yerleştirilecek hücrenin ve çevresindeki 8 komşusunun EMPTY olup olmadığını kontrol et
-           for (int rOffset = -1; rOffset <= 1; rOffset++) {
-               for (int cOffset = -1; cOffset <= 1; cOffset++) {
-                   int checkRow = currentRow + rOffset;
-                   int checkCol = currentCol + cOffset;
-
-                   if (isValidCoordinate(checkRow, checkCol)) {
-                       if (grid[checkRow][checkCol] != CellStatus.EMPTY) {
-                           return false; // Başka bir gemi veya gemi komşuluğu var
-                       }
-                   }
-               }
-           }
-       }
-       return true;
+       int lastRow = horizontal ? row : row + length - 1;
+       int lastCol = horizontal ? col + length - 1 : col;
+
+       int fromRow = Math.max(0, row - 1);
+       int toRow = Math.min(rows - 1, lastRow + 1);
+       int fromCol = Math.max(0, col - 1);
+       int toCol = Math.min(cols - 1, lastCol + 1);
+
+       return !cells.isAnyOccupied(fromRow, fromCol, toRow, toCol);
    }
 
 
@@ -128,16 +208,14 @@ public class Board {
             return CellStatus.EMPTY; // Veya exception fırlat
         }
 
-        CellStatus currentStatus = grid[row][col];
+        CellStatus currentStatus = getCellStatus(row, col);
 
         if (currentStatus == CellStatus.SHIP) {
-            grid[row][col] = CellStatus.HIT;
-            // TODO: Gemi batıp batmadığını kontrol et ve gerekirse SUNK yap.
-            // Bu, hangi hücrenin hangi gemiye ait olduğunu bilmeyi gerektirir.
-            // Şimdilik sadece HIT döndürüyoruz.
+            applyHit(row, col);
             return CellStatus.HIT;
         } else if (currentStatus == CellStatus.EMPTY) {
-            grid[row][col] = CellStatus.MISS;
+            version++; // Günlük kaydı yeni sürümle etiketlensin
+            writeFlags(row, col, CellStore.MISS);
             return CellStatus.MISS;
         } else {
             // Zaten vurulmuş bir hücre (HIT, MISS veya SUNK)
@@ -145,38 +223,244 @@ public class Board {
         }
     }
 
-
-    public boolean allShipsSunk() {
-        for (int i = 0; i < SIZE; i++) {
-            for (int j = 0; j < SIZE; j++) {
-                if (grid[i][j] == CellStatus.SHIP) {
-                    return false; // Hala vurulmamış gemi parçası var
-                }
+    /**
+     * SHIP durumundaki bir hücreyi vurur: sahibi olan gemiye isabeti kaydeder, sayaçları günceller
+     * ve gemi son parçasıyla battıysa tüm hücrelerini SUNK yapar.
+     */
+    private void applyHit(int row, int col) {
+        version++; // İsabet ve batan geminin hücreleri aynı sürümde kaydedilir
+        writeFlags(row, col, cells.flags(row, col) | CellStore.HIT);
+        remainingShipCells--;
+
+        Ship ship = getShipAt(row, col);
+        if (ship != null && ship.registerHit(row, col) && ship.isSunk()) {
+            for (int i = 0; i < ship.getLength(); i++) {
+                int r = ship.getCellRow(i);
+                int c = ship.getCellCol(i);
+                writeFlags(r, c, cells.flags(r, c) | CellStore.SUNK);
             }
         }
-        return true; // Vurulmamış gemi parçası kalmadı
+    }
+
+
+    public boolean allShipsSunk() {
+        return remainingShipCells == 0; // Vurulmamış gemi parçası kalmadı mı?
     }
 
 
     public void updateCellStatus(int row, int col, CellStatus status) {
         if (isValidCoordinate(row, col)) {
-            grid[row][col] = status;
+            if (getCellStatus(row, col) == CellStatus.SHIP) {
+                remainingShipCells--;
+            }
+            if (status == CellStatus.SHIP) {
+                remainingShipCells++;
+            }
+            version++;
+            switch (status) {
+                case SHIP:
+                    writeFlags(row, col, CellStore.SHIP);
+                    break;
+                case HIT:
+                    writeFlags(row, col, CellStore.HIT);
+                    break;
+                case MISS:
+                    writeFlags(row, col, CellStore.MISS);
+                    break;
+                case SUNK:
+                    writeFlags(row, col, CellStore.SUNK);
+                    break;
+                default:
+                    writeFlags(row, col, 0); // EMPTY: tüm bayraklar temizlenir
+                    break;
+            }
         }
     }
 
 
     private boolean isValidCoordinate(int row, int col) {
-        return row >= 0 && row < SIZE && col >= 0 && col < SIZE;
+        return row >= 0 && row < rows && col >= 0 && col < cols;
+    }
+
+    /**
+     * Hücre bayraklarını değiştiren tek yol (gemi yerleştirme hariç): görünür durum değiştiyse
+     * her simetrinin Zobrist özetini günceller ve değişikliği günlüğe yazar, SHIP biti değiştiyse
+     * gemi katmanı özetini günceller. Çağıran sürümü yazmadan önce artırmalıdır.
+     */
+    private void writeFlags(int row, int col, int newFlags) {
+        int oldFlags = cells.flags(row, col);
+        if (oldFlags == newFlags) {
+            return;
+        }
+        int oldState = visibleState(oldFlags);
+        int newState = visibleState(newFlags);
+        if (oldState != newState) {
+            for (BoardSymmetry symmetry : symmetries) {
+                int cellIndex = symmetry.cellIndex(row, col, rows, cols);
+                long delta = 0;
+                if (oldState != 0) delta ^= zobristKey(cellIndex, oldState);
+                if (newState != 0) delta ^= zobristKey(cellIndex, newState);
+                symmetryHashes[symmetry.ordinal()] ^= delta;
+            }
+            logChange(row * cols + col, newState);
+        }
+        if (((oldFlags ^ newFlags) & CellStore.SHIP) != 0) {
+            shipLayerHash ^= zobristKey(row * cols + col, SHIP_LAYER);
+        }
+        cells.setFlags(row, col, newFlags);
+    }
+
+    /**
+     * Görünür durum değişikliğini mevcut sürümle günlüğe ekler; günlük doluysa en eski kaydın yerine yazar
+     * ve o kaydın sürümünü, delta verilebilecek en eski sürüm yapar.
+     */
+    private void logChange(int cellIndex, int state) {
+        long entry = version << CHANGE_CELL_BITS | (long) cellIndex << 2 | state;
+        if (changeCount == CHANGE_LOG_CAPACITY) {
+            changeLogFloor = changeLog[changeStart] >>> CHANGE_CELL_BITS;
+            changeLog[changeStart] = entry;
+            changeStart = (changeStart + 1) % CHANGE_LOG_CAPACITY;
+        } else {
+            changeLog[(changeStart + changeCount++) % CHANGE_LOG_CAPACITY] = entry;
+        }
+    }
+
+    /**
+     * Günlük kayıtlarını eskiden yeniye sıralı olarak kopyalar (görüntüler için).
+     */
+    private long[] copyChangeLog() {
+        long[] copy = new long[changeCount];
+        for (int i = 0; i < changeCount; i++) {
+            copy[i] = changeLog[(changeStart + i) % CHANGE_LOG_CAPACITY];
+        }
+        return copy;
+    }
+
+    /**
+     * Rakibin görebildiği durum kodu: 0 bilinmiyor (EMPTY/SHIP), 1 MISS, 2 HIT, 3 SUNK.
+     */
+    static int visibleState(int flags) {
+        if ((flags & CellStore.SUNK) != 0) return 3;
+        if ((flags & CellStore.HIT) != 0) return 2;
+        if ((flags & CellStore.MISS) != 0) return 1;
+        return 0;
+    }
+
+    private long zobristKey(int cellIndex, int state) {
+        return mix64(zobristSeed + ((long) cellIndex * 5 + state) * 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * SplitMix64 son karıştırma adımı; ardışık girdileri bağımsız görünen 64-bit anahtarlara dağıtır.
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Görünür durumun (isabet, ıska, batık hücreler) Zobrist özeti. Gemi yerleşimini içermez; böylece
+     * rakibin bildiği konum olarak her iki tarafta da aynı anahtarı verir. Boş tahtada 0'dır.
+     */
+    public long getZobristHash() {
+        return symmetryHashes[BoardSymmetry.IDENTITY.ordinal()];
+    }
+
+    /**
+     * Görünür durumla birlikte gizli gemi yerleşimini de kapsayan özet (tekrar kayıtlarını ayırt etmek için).
+     */
+    public long getFullZobristHash() {
+        return getZobristHash() ^ shipLayerHash;
+    }
+
+    /**
+     * Görünür durumun verilen simetriyle dönüştürülmüş halinin özeti.
+     * @throws IllegalArgumentException Simetri bu tahta şeklini korumuyorsa (kare olmayan tahtada eksen değişimi).
+     */
+    public long getSymmetryHash(BoardSymmetry symmetry) {
+        if (symmetry.swapsAxes() && rows != cols) {
+            throw new IllegalArgumentException("Kare olmayan tahtada geçersiz simetri: " + symmetry);
+        }
+        return symmetryHashes[symmetry.ordinal()];
+    }
+
+    /**
+     * Simetrik konumları tek anahtara katlayan kanonik özet: geçerli simetri özetlerinin en küçüğü.
+     * Birbirinin döndürülmüşü veya yansıması olan tahtalar aynı değeri verir.
+     */
+    public long getCanonicalHash() {
+        return symmetryHashes[getCanonicalSymmetry().ordinal()];
+    }
+
+    /**
+     * Kanonik özeti veren simetri; transpozisyon tablosundaki hamleleri bu tahtaya geri çevirmek için kullanılır.
+     * Eşitlikte enum sırasındaki ilk simetri seçilir.
+     */
+    public BoardSymmetry getCanonicalSymmetry() {
+        BoardSymmetry best = BoardSymmetry.IDENTITY;
+        for (BoardSymmetry symmetry : symmetries) {
+            if (Long.compareUnsigned(symmetryHashes[symmetry.ordinal()], symmetryHashes[best.ordinal()]) < 0) {
+                best = symmetry;
+            }
+        }
+        return best;
     }
 
 
     public void resetBoard() {
-        for (int i = 0; i < SIZE; i++) {
-            Arrays.fill(grid[i], CellStatus.EMPTY); // Tüm hücreleri başlangıçta EMPTY yap
+        cells.clear(); // Tüm hücreleri başlangıçta EMPTY yap
+        Arrays.fill(ships, 0, shipCount, null);
+        shipCount = 0;
+        remainingShipCells = 0;
+        Arrays.fill(symmetryHashes, 0L);
+        shipLayerHash = 0;
+        version++;
+        changeCount = 0; // Temizlenen hücreler günlüğe yazılmaz, eski sürümlerden delta verilemez
+        changeStart = 0;
+        changeLogFloor = version;
+    }
+
+    /**
+     * Tahtanın durum sürümü; her yerleştirme, atış, durum güncellemesi ve sıfırlamada artar.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Tahtanın o anki durumunun değişmez bir görüntüsünü alır ve {@link #getLastSnapshot()} için yayımlar.
+     * Tahtayı değiştiren iş parçacığından çağrılmalıdır. Son görüntüden bu yana değişiklik yoksa aynı
+     * nesne döner; aksi halde maliyet yoğun tahtalarda birkaç dizi klonu, seyrek tahtalarda ise
+     * dolu parça sayısı kadardır (parçalar yazma anında kopyalanır).
+     */
+    public BoardSnapshot snapshot() {
+        BoardSnapshot snapshot = lastSnapshot;
+        if (snapshot != null && snapshot.getVersion() == version) {
+            return snapshot;
         }
+        ShipType[] shipTypes = new ShipType[shipCount];
+        for (int i = 0; i < shipCount; i++) {
+            shipTypes[i] = ships[i].getType();
+        }
+        snapshot = new BoardSnapshot(rows, cols, version, cells.copy(), shipTypes, remainingShipCells,
+                getZobristHash(), getCanonicalHash(), copyChangeLog(), changeLogFloor);
+        lastSnapshot = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * En son {@link #snapshot()} ile yayımlanan görüntüyü döndürür; herhangi bir iş parçacığından
+     * kilitsiz çağrılabilir. Henüz görüntü alınmadıysa null.
+     */
+    public BoardSnapshot getLastSnapshot() {
+        return lastSnapshot;
     }
     public boolean isAlreadyShot(int row, int col) {
-        return grid[row][col] == CellStatus.HIT || grid[row][col] == CellStatus.MISS;
+        if (!isValidCoordinate(row, col)) {
+            throw new IllegalArgumentException("Geçersiz koordinat: (" + row + "," + col + ")");
+        }
+        return (cells.flags(row, col) & (CellStore.HIT | CellStore.MISS | CellStore.SUNK)) != 0;
     }
     public boolean processShot(int row, int col) {
         CellStatus result = attack(row, col);
@@ -187,40 +471,77 @@ public class Board {
         }
         return false; // Geçersiz durum
     }
-    public String getShipTypeAt(int row, int col) {
-        for (Ship ship : ships) {
-            if (ship.isHitAt(row, col)) {
-                return ship.getType().name(); // Gemi tipini döndür
-            }
+    /**
+     * Belirtilen hücreyi kaplayan gemiyi döndürür.
+     * @return Gemi, hücre boşsa veya koordinat geçersizse null.
+     */
+    public Ship getShipAt(int row, int col) {
+        if (!isValidCoordinate(row, col)) {
+            return null;
         }
-        return null;
+        int shipId = cells.shipId(row, col);
+        return shipId == 0 ? null : ships[shipId - 1];
+    }
+
+    public String getShipTypeAt(int row, int col) {
+        Ship ship = getShipAt(row, col);
+        return ship != null ? ship.getType().name() : null; // Gemi tipini döndür
     }
 
     public boolean isShipSunk(int row, int col) {
-        for (Ship ship : ships) {
-            if (ship.isHitAt(row, col)) {
-                return ship.isSunk(); // Geminin batıp batmadığını kontrol et
-            }
-        }
-        return false;
+        Ship ship = getShipAt(row, col);
+        return ship != null && ship.isSunk(); // Geminin batıp batmadığını kontrol et
     }
     public boolean areAllShipsSunk() {
-        for (Ship ship : ships) {
-            if (!ship.isSunk()) {
-                return false; // Hala batmamış gemi var
-            }
-        }
-        return true; // Tüm gemiler batmış
+        return remainingShipCells == 0; // Her isabet sayacı düşürdüğü için tarama gerekmez
     }
 
+    /**
+     * Hücreyi vuruldu olarak işaretler. Hücrede vurulmamış bir gemi parçası varsa
+     * attack ile aynı isabet/batma muhasebesi uygulanır.
+     */
     public void markCellAsHit(int row, int col) {
-        if (isValidCoordinate(row, col)) {
-            grid[row][col] = CellStatus.HIT;
+        if (getCellStatus(row, col) == CellStatus.SHIP) {
+            applyHit(row, col);
+        } else {
+            updateCellStatus(row, col, CellStatus.HIT);
         }
     }
     public void markCellAsMiss(int row, int col) {
-        if (isValidCoordinate(row, col)) {
-            grid[row][col] = CellStatus.MISS;
+        updateCellStatus(row, col, CellStatus.MISS);
+    }
+
+    /**
+     * Sunucudan gelen görünür durumu (0 bilinmiyor, 1 MISS, 2 HIT, 3 SUNK) hücreye uygular; BOARD_STATE ve
+     * BOARD_DELTA mesajlarında kullanılır. Görünür durum yalnızca ileri gider (bilinmiyor -> MISS/HIT,
+     * HIT -> SUNK); aynı veya daha eski bir durum yok sayılır, böylece mesajları tekrar uygulamak zararsızdır.
+     */
+    public void applyVisibleState(int row, int col, int state) {
+        if (!isValidCoordinate(row, col)) {
+            return;
+        }
+        int current = visibleState(cells.flags(row, col));
+        if (current != 0 && !(current == 2 && state == 3)) {
+            return;
+        }
+        switch (state) {
+            case 1:
+                markCellAsMiss(row, col);
+                break;
+            case 2:
+                markCellAsHit(row, col);
+                break;
+            case 3:
+                if ((cells.flags(row, col) & CellStore.HIT) == 0) {
+                    markCellAsHit(row, col);
+                }
+                if ((cells.flags(row, col) & CellStore.SUNK) == 0) {
+                    version++;
+                    writeFlags(row, col, cells.flags(row, col) | CellStore.SUNK);
+                }
+                break;
+            default:
+                break;
         }
     }
 
@@ -228,4 +549,4 @@ public class Board {
 
 
 
-}
\ No newline at end of file
+}
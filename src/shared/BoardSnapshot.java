@@ -0,0 +1,135 @@
+package shared;
+
+/**
+ * Bir {@link Board} nesnesinin belirli bir sürümdeki değişmez (immutable) görüntüsü.
+ * <p>
+ * Anlık görüntü oluşturulduktan sonra hiçbir zaman değişmez; bu yüzden çizim, izleyici veya
+ * tekrar (replay) kaydı gibi başka iş parçacıklarındaki okuyucular kilit almadan okuyabilir ve
+ * atışları işleyen iş parçacığını bekletmez. Nesne {@link Board#snapshot()} ile alınır.
+ */
+public final class BoardSnapshot {
+    private final int rows;
+    private final int cols;
+    private final long version;
+    private final CellStore cells; // Yalnızca okunan, tahtadan ayrılmış kopya
+    private final ShipType[] shipTypes; // Gemi indeksi -> tip (indeks 0 = ilk gemi)
+    private final int remainingShipCells;
+    private final long zobristHash;
+    private final long canonicalHash;
+    private final long[] changeLog; // Board değişiklik günlüğünün eskiden yeniye kopyası
+    private final long changeLogFloor;
+
+    BoardSnapshot(int rows, int cols, long version, CellStore cells, ShipType[] shipTypes, int remainingShipCells,
+                  long zobristHash, long canonicalHash, long[] changeLog, long changeLogFloor) {
+        this.rows = rows;
+        this.cols = cols;
+        this.version = version;
+        this.cells = cells;
+        this.shipTypes = shipTypes;
+        this.remainingShipCells = remainingShipCells;
+        this.zobristHash = zobristHash;
+        this.canonicalHash = canonicalHash;
+        this.changeLog = changeLog;
+        this.changeLogFloor = changeLogFloor;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Görüntünün alındığı tahta sürümü. Tahtadaki her değişiklik sürümü artırır; aynı sürümlü
+     * iki görüntü aynı durumu gösterir.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Görüntü anındaki {@link Board#getZobristHash()} değeri.
+     */
+    public long getZobristHash() {
+        return zobristHash;
+    }
+
+    /**
+     * Görüntü anındaki {@link Board#getCanonicalHash()} değeri.
+     */
+    public long getCanonicalHash() {
+        return canonicalHash;
+    }
+
+    /**
+     * Hücrenin görüntü anındaki durumu; geçersiz koordinatlar için {@link Board} gibi EMPTY döndürür.
+     */
+    public CellStatus getCellStatus(int row, int col) {
+        if (!isValidCoordinate(row, col)) {
+            return CellStatus.EMPTY;
+        }
+        return Board.toStatus(cells.flags(row, col));
+    }
+
+    /**
+     * Hücrenin rakibin görebildiği durumu: 0 bilinmiyor (EMPTY/SHIP), 1 MISS, 2 HIT, 3 SUNK.
+     * Gemi konumlarını açığa çıkarmaz; {@link BoardStateCodec} bu değerleri taşır.
+     */
+    public int getVisibleState(int row, int col) {
+        if (!isValidCoordinate(row, col)) {
+            return 0;
+        }
+        return Board.visibleState(cells.flags(row, col));
+    }
+
+    /**
+     * {@code sinceVersion} sürümünden bu görüntünün sürümüne kadar görünür durumu değişen hücreler,
+     * eskiden yeniye {@code hücreIndeksi << 2 | durum} biçiminde. Aynı hücre birden çok kez geçebilir;
+     * sırayla uygulanınca son durum elde edilir.
+     *
+     * @return Değişiklikler; sürüm günlükten eskiyse (veya tahta o sürümden sonra sıfırlandıysa) ya da
+     *         bu görüntüden yeniyse null. Bu durumda tam durum gönderilmelidir.
+     */
+    public int[] changesSince(long sinceVersion) {
+        if (sinceVersion < changeLogFloor || sinceVersion > version) {
+            return null;
+        }
+        int first = changeLog.length;
+        while (first > 0 && changeLog[first - 1] >>> Board.CHANGE_CELL_BITS > sinceVersion) {
+            first--;
+        }
+        int[] changes = new int[changeLog.length - first];
+        for (int i = 0; i < changes.length; i++) {
+            changes[i] = (int) (changeLog[first + i] & ((1L << Board.CHANGE_CELL_BITS) - 1));
+        }
+        return changes;
+    }
+
+    public boolean isAlreadyShot(int row, int col) {
+        if (!isValidCoordinate(row, col)) {
+            throw new IllegalArgumentException("Geçersiz koordinat: (" + row + "," + col + ")");
+        }
+        return (cells.flags(row, col) & (CellStore.HIT | CellStore.MISS | CellStore.SUNK)) != 0;
+    }
+
+    /**
+     * Hücredeki geminin tip adı; hücre boşsa veya koordinat geçersizse null.
+     */
+    public String getShipTypeAt(int row, int col) {
+        if (!isValidCoordinate(row, col)) {
+            return null;
+        }
+        int shipId = cells.shipId(row, col);
+        return shipId == 0 ? null : shipTypes[shipId - 1].name();
+    }
+
+    public boolean areAllShipsSunk() {
+        return remainingShipCells == 0;
+    }
+
+    private boolean isValidCoordinate(int row, int col) {
+        return row >= 0 && row < rows && col >= 0 && col < cols;
+    }
+}
@@ -0,0 +1,178 @@
+package shared;
+
+import java.util.Base64;
+
+/**
+ * Tahta senkronizasyon mesajlarının (BOARD_STATE, BOARD_DELTA) sıkıştırılmış kodlaması.
+ * <p>
+ * Yalnızca rakibin görebildiği durum taşınır (0 bilinmiyor, 1 MISS, 2 HIT, 3 SUNK); gemi konumları hiçbir zaman
+ * gönderilmez.
+ * <ul>
+ * <li>Tam durum: {@code [sürüm (8 bayt)][satır (2 bayt)][sütun (2 bayt)][hücre başına 2 bit]}; 10x10 tahta 37 bayttır.</li>
+ * <li>Delta: {@code [başlangıç sürümü (8 bayt)][bitiş sürümü (8 bayt)]} ve değişen her hücre için 3 bayt
+ * {@code hücreIndeksi << 2 | durum}. Başlangıç sürümü istemcinin bildirdiği sürümdür; tek atış genelde 19 bayttır.</li>
+ * </ul>
+ * Metin protokolünde baytlar Base64 (URL, dolgusuz) olarak, ikili çerçevelerde doğrudan taşınır. Paket verisi
+ * {@code "<taraf>|<kodlama>"} biçimindedir; taraf {@link #SIDE_OWN} veya {@link #SIDE_OPPONENT}.
+ * İstemci BOARD_SYNC ile {@code "<taraf>|<bildiği sürüm>"} gönderir; sürüm -1 ise tam durum istenir.
+ */
+public final class BoardStateCodec {
+    public static final String SIDE_OWN = "OWN"; // İsteyen oyuncunun kendi tahtası
+    public static final String SIDE_OPPONENT = "OPPONENT"; // Ateş ettiği rakip tahtası
+    public static final long NO_VERSION = -1; // Bilinen sürüm yok, tam durum istenir
+
+    private static final int STATE_HEADER = 12;
+    private static final int DELTA_HEADER = 16;
+    private static final int BYTES_PER_CHANGE = 3;
+
+    private BoardStateCodec() {
+    }
+
+    /**
+     * Görüntünün tam görünür durumunu kodlar.
+     */
+    public static byte[] encodeState(BoardSnapshot snapshot) {
+        int rows = snapshot.getRows();
+        int cols = snapshot.getCols();
+        byte[] state = new byte[STATE_HEADER + (rows * cols + 3) / 4];
+        writeLong(snapshot.getVersion(), state, 0);
+        state[8] = (byte) (rows >>> 8);
+        state[9] = (byte) rows;
+        state[10] = (byte) (cols >>> 8);
+        state[11] = (byte) cols;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                int visible = snapshot.getVisibleState(row, col);
+                if (visible != 0) {
+                    int cellIndex = row * cols + col;
+                    state[STATE_HEADER + cellIndex / 4] |= (byte) (visible << (cellIndex % 4 * 2));
+                }
+            }
+        }
+        return state;
+    }
+
+    /**
+     * {@code sinceVersion} sürümünden görüntünün sürümüne kadar olan değişiklikleri kodlar.
+     *
+     * @return Delta; görüntü bu sürümden delta veremiyorsa null (tam durum gönderilmelidir).
+     */
+    public static byte[] encodeDelta(BoardSnapshot snapshot, long sinceVersion) {
+        int[] changes = snapshot.changesSince(sinceVersion);
+        if (changes == null) {
+            return null;
+        }
+        byte[] delta = new byte[DELTA_HEADER + changes.length * BYTES_PER_CHANGE];
+        writeLong(sinceVersion, delta, 0);
+        writeLong(snapshot.getVersion(), delta, 8);
+        int offset = DELTA_HEADER;
+        for (int change : changes) {
+            delta[offset] = (byte) (change >>> 16);
+            delta[offset + 1] = (byte) (change >>> 8);
+            delta[offset + 2] = (byte) change;
+            offset += BYTES_PER_CHANGE;
+        }
+        return delta;
+    }
+
+    public static long stateVersion(byte[] state) {
+        checkLength(state, STATE_HEADER);
+        return readLong(state, 0);
+    }
+
+    public static int stateRows(byte[] state) {
+        checkLength(state, STATE_HEADER);
+        return (state[8] & 0xFF) << 8 | (state[9] & 0xFF);
+    }
+
+    public static int stateCols(byte[] state) {
+        checkLength(state, STATE_HEADER);
+        return (state[10] & 0xFF) << 8 | (state[11] & 0xFF);
+    }
+
+    public static long deltaFromVersion(byte[] delta) {
+        checkLength(delta, DELTA_HEADER);
+        return readLong(delta, 0);
+    }
+
+    public static long deltaToVersion(byte[] delta) {
+        checkLength(delta, DELTA_HEADER);
+        return readLong(delta, 8);
+    }
+
+    /**
+     * Tam durumu tahtaya uygular ({@link Board#applyVisibleState}).
+     *
+     * @return Durumun sürümü.
+     * @throws IllegalArgumentException Kodlama geçersizse veya tahta boyutu farklıysa.
+     */
+    public static long applyState(byte[] state, Board board) {
+        int rows = stateRows(state);
+        int cols = stateCols(state);
+        if (rows != board.getRows() || cols != board.getCols()) {
+            throw new IllegalArgumentException("Tahta boyutu uyuşmuyor: " + rows + "x" + cols);
+        }
+        if (state.length != STATE_HEADER + (rows * cols + 3) / 4) {
+            throw new IllegalArgumentException("Geçersiz tahta durumu uzunluğu: " + state.length);
+        }
+        for (int cellIndex = 0; cellIndex < rows * cols; cellIndex++) {
+            int visible = state[STATE_HEADER + cellIndex / 4] >>> (cellIndex % 4 * 2) & 3;
+            board.applyVisibleState(cellIndex / cols, cellIndex % cols, visible);
+        }
+        return stateVersion(state);
+    }
+
+    /**
+     * Deltadaki değişiklikleri sırayla tahtaya uygular.
+     *
+     * @return Deltanın bitiş sürümü.
+     * @throws IllegalArgumentException Kodlama geçersizse.
+     */
+    public static long applyDelta(byte[] delta, Board board) {
+        checkLength(delta, DELTA_HEADER);
+        if ((delta.length - DELTA_HEADER) % BYTES_PER_CHANGE != 0) {
+            throw new IllegalArgumentException("Geçersiz tahta deltası uzunluğu: " + delta.length);
+        }
+        int cols = board.getCols();
+        for (int offset = DELTA_HEADER; offset < delta.length; offset += BYTES_PER_CHANGE) {
+            int change = (delta[offset] & 0xFF) << 16 | (delta[offset + 1] & 0xFF) << 8 | (delta[offset + 2] & 0xFF);
+            int cellIndex = change >>> 2;
+            board.applyVisibleState(cellIndex / cols, cellIndex % cols, change & 3);
+        }
+        return deltaToVersion(delta);
+    }
+
+    /**
+     * Kodlamayı metin protokolü için Base64 metnine çevirir.
+     */
+    public static String toText(byte[] encoded) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(encoded);
+    }
+
+    /**
+     * @throws IllegalArgumentException Metin geçerli Base64 değilse.
+     */
+    public static byte[] parse(String text) {
+        return Base64.getUrlDecoder().decode(text);
+    }
+
+    private static void checkLength(byte[] encoded, int header) {
+        if (encoded.length < header) {
+            throw new IllegalArgumentException("Eksik tahta verisi: " + encoded.length + " bayt");
+        }
+    }
+
+    private static void writeLong(long value, byte[] dst, int offset) {
+        for (int i = 0; i < Long.BYTES; i++) {
+            dst[offset + i] = (byte) (value >>> (56 - i * 8));
+        }
+    }
+
+    private static long readLong(byte[] src, int offset) {
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            value = value << 8 | (src[offset + i] & 0xFF);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,80 @@
+package shared;
+
+/**
+ * Tahtanın sekiz simetrisi (dihedral grup D4): dört döndürme ve dört yansıma.
+ * <p>
+ * Eksenleri yer değiştiren simetriler (90/270 derece döndürme ve köşegen yansımalar) yalnızca
+ * kare tahtalarda geçerlidir; dikdörtgen tahtalarda {@link #forShape(int, int)} dört simetri döndürür.
+ */
+public enum BoardSymmetry {
+    IDENTITY(false),
+    ROTATE_90(true),       // Saat yönünde 90 derece
+    ROTATE_180(false),
+    ROTATE_270(true),
+    FLIP_HORIZONTAL(false), // Sol-sağ ayna
+    FLIP_VERTICAL(false),   // Üst-alt ayna
+    TRANSPOSE(true),        // Ana köşegen
+    ANTI_TRANSPOSE(true);   // Yan köşegen
+
+    private static final BoardSymmetry[] ALL = values();
+    private static final BoardSymmetry[] AXIS_PRESERVING = {IDENTITY, ROTATE_180, FLIP_HORIZONTAL, FLIP_VERTICAL};
+
+    private final boolean swapsAxes;
+
+    BoardSymmetry(boolean swapsAxes) {
+        this.swapsAxes = swapsAxes;
+    }
+
+    /**
+     * Dönüşüm satır ve sütun eksenlerini yer değiştiriyorsa true (sonuç tahtası cols x rows olur).
+     */
+    public boolean swapsAxes() {
+        return swapsAxes;
+    }
+
+    /**
+     * Verilen boyutlardaki bir tahtayı kendine eşleyen simetriler.
+     * Döndürülen dizi paylaşılır, değiştirilmemelidir.
+     */
+    public static BoardSymmetry[] forShape(int rows, int cols) {
+        return rows == cols ? ALL : AXIS_PRESERVING;
+    }
+
+    /**
+     * (row, col) hücresinin dönüşüm sonrasındaki satırı.
+     */
+    public int row(int row, int col, int rows, int cols) {
+        switch (this) {
+            case ROTATE_90: return col;
+            case ROTATE_180: return rows - 1 - row;
+            case ROTATE_270: return cols - 1 - col;
+            case FLIP_VERTICAL: return rows - 1 - row;
+            case TRANSPOSE: return col;
+            case ANTI_TRANSPOSE: return cols - 1 - col;
+            default: return row; // IDENTITY, FLIP_HORIZONTAL
+        }
+    }
+
+    /**
+     * (row, col) hücresinin dönüşüm sonrasındaki sütunu.
+     */
+    public int col(int row, int col, int rows, int cols) {
+        switch (this) {
+            case ROTATE_90: return rows - 1 - row;
+            case ROTATE_180: return cols - 1 - col;
+            case ROTATE_270: return row;
+            case FLIP_HORIZONTAL: return cols - 1 - col;
+            case TRANSPOSE: return row;
+            case ANTI_TRANSPOSE: return rows - 1 - row;
+            default: return col; // IDENTITY, FLIP_VERTICAL
+        }
+    }
+
+    /**
+     * (row, col) hücresinin dönüşüm sonrasındaki satır-öncelikli indeksi.
+     */
+    public int cellIndex(int row, int col, int rows, int cols) {
+        int targetCols = swapsAxes ? rows : cols;
+        return row(row, col, rows, cols) * targetCols + col(row, col, rows, cols);
+    }
+}
@@ -0,0 +1,50 @@
+package shared;
+
+/**
+ * Board'un hücre verisini tutan depolama katmanı.
+ * Her hücre için bir bayrak kümesi (gemi, isabet, ıska, batık) ve hücreyi kaplayan geminin indeksi saklanır.
+ * Küçük tahtalar yoğun bitboard ({@link DenseCellStore}), büyük tahtalar ise yalnızca
+ * dokunulan bölgeleri tutan parçalı depolama ({@link SparseCellStore}) kullanır.
+ */
+interface CellStore {
+    int SHIP = 1;
+    int HIT = 2;
+    int MISS = 4;
+    int SUNK = 8;
+
+    /**
+     * Hücrenin bayraklarını döndürür (SHIP | HIT | MISS | SUNK bileşimi).
+     */
+    int flags(int row, int col);
+
+    /**
+     * Hücrenin tüm bayraklarını verilen değerle değiştirir.
+     */
+    void setFlags(int row, int col, int flags);
+
+    /**
+     * Gemi hücrelerini SHIP olarak işaretler ve gemi indeksini yazar.
+     */
+    void markShip(int row, int col, int length, boolean horizontal, int shipId);
+
+    /**
+     * Hücreyi kaplayan geminin indeksini döndürür (0: gemi yok).
+     */
+    int shipId(int row, int col);
+
+    /**
+     * [fromRow..toRow] x [fromCol..toCol] dikdörtgeninde (uçlar dahil) herhangi bir bayrağı olan hücre var mı?
+     */
+    boolean isAnyOccupied(int fromRow, int fromCol, int toRow, int toCol);
+
+    /**
+     * Tüm hücreleri ve gemi indekslerini temizler.
+     */
+    void clear();
+
+    /**
+     * Depolamanın o anki durumunun bağımsız bir kopyasını döndürür.
+     * Kopya yalnızca okunmak içindir; orijinal değiştikçe kopya değişmez.
+     */
+    CellStore copy();
+}
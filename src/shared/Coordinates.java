@@ -0,0 +1,78 @@
+package shared;
+
+/**
+ * Hücre koordinatlarını arayüzde ve protokolde kullanılan "A1" biçimine çevirir.
+ * Satırlar harfle (A..Z, AA, AB, ... elektronik tablo sütunları gibi), sütunlar 1'den başlayan sayıyla yazılır;
+ * böylece 26 satırdan büyük tahtalar da ifade edilebilir.
+ */
+public final class Coordinates {
+
+    private Coordinates() {
+    }
+
+    /**
+     * (row, col) koordinatını "A1" biçimine çevirir.
+     */
+    public static String format(int row, int col) {
+        return rowLabel(row) + (col + 1);
+    }
+
+    /**
+     * Satır indeksinin harf etiketini döndürür (0 -> A, 25 -> Z, 26 -> AA).
+     */
+    public static String rowLabel(int row) {
+        if (row < 0) {
+            throw new IllegalArgumentException("Geçersiz satır: " + row);
+        }
+        if (row < 26) {
+            return String.valueOf((char) ('A' + row)); // Standart tahtalar için hızlı yol
+        }
+        StringBuilder label = new StringBuilder(3);
+        for (int n = row + 1; n > 0; n = (n - 1) / 26) {
+            label.append((char) ('A' + (n - 1) % 26));
+        }
+        return label.reverse().toString();
+    }
+
+    /**
+     * "A1" biçimindeki hücrenin satır indeksini döndürür.
+     */
+    public static int parseRow(String cell) {
+        int letters = letterCount(cell);
+        int row = 0;
+        for (int i = 0; i < letters; i++) {
+            row = row * 26 + (cell.charAt(i) - 'A' + 1);
+        }
+        return row - 1;
+    }
+
+    /**
+     * "A1" biçimindeki hücrenin sütun indeksini döndürür.
+     */
+    public static int parseCol(String cell) {
+        int letters = letterCount(cell);
+        if (letters == cell.length()) {
+            throw new IllegalArgumentException("Geçersiz hücre: " + cell);
+        }
+        int col = 0;
+        for (int i = letters; i < cell.length(); i++) {
+            char c = cell.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("Geçersiz hücre: " + cell);
+            }
+            col = col * 10 + (c - '0');
+        }
+        return col - 1;
+    }
+
+    private static int letterCount(String cell) {
+        int letters = 0;
+        while (letters < cell.length() && cell.charAt(letters) >= 'A' && cell.charAt(letters) <= 'Z') {
+            letters++;
+        }
+        if (letters == 0) {
+            throw new IllegalArgumentException("Geçersiz hücre: " + cell);
+        }
+        return letters;
+    }
+}
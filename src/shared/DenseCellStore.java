@@ -0,0 +1,137 @@
+package shared;
+
+import java.util.Arrays;
+
+/**
+ * Standart boyutlu tahtalar için bitboard depolama.
+ * Her durum için satır-öncelikli (row * cols + col) dizilmiş birkaç {@code long} maskesi vardır;
+ * 10x10 bir tahta durum başına iki {@code long} ile ifade edilir.
+ */
+class DenseCellStore implements CellStore {
+    private final int cols;
+
+    // Durum maskeleri: bir hücrede birden fazla bit set olabilir (ör. gemi + isabet)
+    private final long[] shipBits;
+    private final long[] hitBits;
+    private final long[] missBits;
+    private final long[] sunkBits;
+    // Hücre -> gemi indeksi tablosu: 0 boş, i+1 ise i. gemi o hücreyi kaplıyor
+    private final byte[] shipIds;
+
+    private DenseCellStore(DenseCellStore source) {
+        this.cols = source.cols;
+        this.shipBits = source.shipBits.clone();
+        this.hitBits = source.hitBits.clone();
+        this.missBits = source.missBits.clone();
+        this.sunkBits = source.sunkBits.clone();
+        this.shipIds = source.shipIds.clone();
+    }
+
+    DenseCellStore(int rows, int cols) {
+        this.cols = cols;
+        int cellCount = rows * cols;
+        int words = (cellCount + 63) >>> 6; // Durum başına gereken long sayısı
+        shipBits = new long[words];
+        hitBits = new long[words];
+        missBits = new long[words];
+        sunkBits = new long[words];
+        shipIds = new byte[cellCount];
+    }
+
+    @Override
+    public int flags(int row, int col) {
+        int index = row * cols + col;
+        int word = index >>> 6;
+        long bit = 1L << index;
+        int flags = 0;
+        if ((shipBits[word] & bit) != 0) flags |= SHIP;
+        if ((hitBits[word] & bit) != 0) flags |= HIT;
+        if ((missBits[word] & bit) != 0) flags |= MISS;
+        if ((sunkBits[word] & bit) != 0) flags |= SUNK;
+        return flags;
+    }
+
+    @Override
+    public void setFlags(int row, int col, int flags) {
+        int index = row * cols + col;
+        int word = index >>> 6;
+        long bit = 1L << index;
+        shipBits[word] = (flags & SHIP) != 0 ? shipBits[word] | bit : shipBits[word] & ~bit;
+        hitBits[word] = (flags & HIT) != 0 ? hitBits[word] | bit : hitBits[word] & ~bit;
+        missBits[word] = (flags & MISS) != 0 ? missBits[word] | bit : missBits[word] & ~bit;
+        sunkBits[word] = (flags & SUNK) != 0 ? sunkBits[word] | bit : sunkBits[word] & ~bit;
+    }
+
+    @Override
+    public void markShip(int row, int col, int length, boolean horizontal, int shipId) {
+        int start = row * cols + col;
+        if (horizontal) {
+            setRange(shipBits, start, start + length); // Yatay gemi tek bir ardışık bit aralığıdır
+            Arrays.fill(shipIds, start, start + length, (byte) shipId);
+        } else {
+            for (int i = 0; i < length; i++) {
+                int index = start + i * cols;
+                shipBits[index >>> 6] |= 1L << index;
+                shipIds[index] = (byte) shipId;
+            }
+        }
+    }
+
+    @Override
+    public int shipId(int row, int col) {
+        return shipIds[row * cols + col];
+    }
+
+    /**
+     * Dikdörtgendeki her satır tek bir aralık maskesiyle AND'lenerek kontrol edilir.
+     */
+    @Override
+    public boolean isAnyOccupied(int fromRow, int fromCol, int toRow, int toCol) {
+        for (int r = fromRow; r <= toRow; r++) {
+            int from = r * cols + fromCol;
+            int to = r * cols + toCol + 1;
+            for (int w = from >>> 6; w <= (to - 1) >>> 6; w++) {
+                long occupied = shipBits[w] | hitBits[w] | missBits[w] | sunkBits[w];
+                if ((occupied & rangeMask(w, from, to)) != 0) {
+                    return true; // Başka bir gemi veya gemi komşuluğu var
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(shipBits, 0L);
+        Arrays.fill(hitBits, 0L);
+        Arrays.fill(missBits, 0L);
+        Arrays.fill(sunkBits, 0L);
+        Arrays.fill(shipIds, (byte) 0);
+    }
+
+    /**
+     * Yoğun tahta küçük olduğundan kopya birkaç dizi klonudur (10x10 için 8 long ve 100 byte).
+     */
+    @Override
+    public CellStore copy() {
+        return new DenseCellStore(this);
+    }
+
+    /**
+     * [from, to) aralığındaki bitler için tek bir kelimeye düşen maskeyi üretir.
+     */
+    private static long rangeMask(int word, int from, int to) {
+        int lo = Math.max(from, word << 6);
+        int hi = Math.min(to, (word << 6) + 64);
+        if (lo >= hi) {
+            return 0L;
+        }
+        return (-1L >>> (64 - (hi - lo))) << (lo - (word << 6));
+    }
+
+    private static void setRange(long[] bits, int from, int to) {
+        for (int w = from >>> 6; w <= (to - 1) >>> 6; w++) {
+            bits[w] |= rangeMask(w, from, to);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package shared;
+
+/**
+ * {@link ProbabilityDensityEngine} sonucu: her hücre için, kalan filonun tahtayla tutarlı yerleşimlerinden
+ * kaçında o hücrede gemi bulunduğu.
+ * <p>
+ * Sonuç tam sayım ({@link #isExact()}) ise {@link #getTotal()} tutarlı yerleşim sayısıdır; değilse kabul edilen
+ * örnek sayısıdır ve olasılıklar bu örneklerden kestirilir.
+ */
+public final class DensityMap {
+    private final int rows;
+    private final int cols;
+    private final long[] counts; // Satır-öncelikli hücre indeksi -> gemi içeren yerleşim sayısı
+    private final long total;
+    private final boolean exact;
+    private final int bestCell;
+
+    DensityMap(int rows, int cols, long[] counts, long total, boolean exact, int bestCell) {
+        this.rows = rows;
+        this.cols = cols;
+        this.counts = counts;
+        this.total = total;
+        this.exact = exact;
+        this.bestCell = bestCell;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Hücrede gemi bulunan yerleşim (veya örnek) sayısı.
+     */
+    public long getCount(int row, int col) {
+        return counts[row * cols + col];
+    }
+
+    /**
+     * Hücrede gemi bulunma olasılığı (0..1). Tutarlı yerleşim yoksa 0.
+     */
+    public double getProbability(int row, int col) {
+        return total == 0 ? 0.0 : (double) counts[row * cols + col] / total;
+    }
+
+    /**
+     * Tam sayımda tutarlı yerleşim sayısı, örneklemede kabul edilen örnek sayısı.
+     * 0 ise tahta verilen filoyla tutarsızdır (ör. batık gemiler SUNK işaretlenmemiş).
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    public boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * Henüz ateş edilmemiş hücreler arasında olasılığı en yüksek olanın indeksi (row * cols + col);
+     * eşitlikte ilk hücre. Ateş edilmemiş hücre yoksa -1.
+     */
+    public int getBestCellIndex() {
+        return bestCell;
+    }
+
+    public int getBestRow() {
+        return bestCell < 0 ? -1 : bestCell / cols;
+    }
+
+    public int getBestCol() {
+        return bestCell < 0 ? -1 : bestCell % cols;
+    }
+}
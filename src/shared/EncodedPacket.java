@@ -0,0 +1,46 @@
+package shared;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A packet serialised once, in both wire formats, and then written as-is to any number of connections.
+ * <p>
+ * Used for constant packets (turn changes, fixed messages) and for broadcasts: the bytes are built once and
+ * the same immutable arrays go to every recipient, whatever format its connection uses. Instances are
+ * immutable and safe to share between threads.
+ */
+public final class EncodedPacket {
+    private final Packet packet;
+    private final byte[] textLine; // "type|data\n"
+    private final byte[] binaryFrame; // Complete frame including the length prefix
+
+    private EncodedPacket(Packet packet, byte[] textLine, byte[] binaryFrame) {
+        this.packet = packet;
+        this.textLine = textLine;
+        this.binaryFrame = binaryFrame;
+    }
+
+    public static EncodedPacket of(Packet packet) {
+        byte[] text = (packet.serialize() + "\n").getBytes(StandardCharsets.UTF_8);
+        return new EncodedPacket(packet, text, BinaryProtocol.encode(packet));
+    }
+
+    public static EncodedPacket of(PacketType type, String data) {
+        return of(new Packet(type, data));
+    }
+
+    public Packet getPacket() {
+        return packet;
+    }
+
+    public PacketType getPacketType() {
+        return packet.getPacketType();
+    }
+
+    /**
+     * The encoded bytes for a connection in the given output format. Callers must not modify the array.
+     */
+    byte[] bytes(boolean binary) {
+        return binary ? binaryFrame : textLine;
+    }
+}
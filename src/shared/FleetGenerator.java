@@ -0,0 +1,276 @@
+package shared;
+
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+
+/**
+ * Filonun tüm yasal yerleşimleri arasından tam olarak eşit olasılıkla rastgele yerleşim üretir.
+ * <p>
+ * Yöntem, tüm filo üzerinde red örneklemesidir: her gemi kendi sınır içi konumları arasından bağımsız ve eşit
+ * olasılıkla seçilir; herhangi iki gemi çakışır veya temas ederse (çapraz dahil) yerleşimin tamamı reddedilip
+ * baştan başlanır. Kabul edilen her yerleşim aynı olasılığa sahip olduğundan dağılım yasal yerleşimler üzerinde
+ * tam olarak düzgündür; sırayla yerleştirmedeki "önce yerleştirilen gemi lehine" sapma oluşmaz.
+ * <p>
+ * En fazla 128 hücreli (standart 10x10 dahil) tahtalarda her konumun kapladığı hücreler ve komşuluk alanı iki
+ * {@code long} maske olarak önceden hesaplanır ve çakışma iki AND ile bulunur. Daha büyük tahtalarda kontrol
+ * gemi dikdörtgenleri arasında yapılır, hücre tablosu gerekmez; bu yüzden mega tahtalarda da aynı maliyetle
+ * çalışır. Üretilen yerleşimler gemi başına bir {@code int} olarak paketlenir
+ * (bkz. {@link #packedRow(int)}, {@link #packedCol(int)}, {@link #packedHorizontal(int)}).
+ */
+public class FleetGenerator {
+    private static final int BATCH_CHUNK = 4096; // Paralel üretimde bir görevin ürettiği yerleşim sayısı
+    private static final long MAX_ATTEMPTS = 100_000_000L; // Yerleşimi olmayan filolarda sonsuz döngüyü önler
+    private static final int MASK_MAX_CELLS = 128; // Bu hücre sayısına kadar iki long maske kullanılır
+
+    private final int rows;
+    private final int cols;
+    private final ShipType[] fleet;
+    private final int[] order; // Büyük gemiler önce denenir; çakışmalar erken yakalanır
+    private final int[] horizontalCount; // Gemi başına yatay konum sayısı
+    private final int[] placementCount; // Gemi başına toplam konum sayısı
+    private final int[] horizontalSpan; // Yatay gemi için başlangıç sütunu seçenek sayısı (cols - L + 1)
+
+    // Küçük tahtalar için [gemi][konum] tabloları (büyük tahtalarda null)
+    private long[][] footLo; // Geminin kapladığı hücreler, 0..63
+    private long[][] footHi; // Geminin kapladığı hücreler, 64..127
+    private long[][] zoneLo; // Kapladığı hücreler + bir hücre komşuluk, 0..63
+    private long[][] zoneHi; // Kapladığı hücreler + bir hücre komşuluk, 64..127
+    private int[][] packedPlacement; // Konumun paketlenmiş hali
+
+    /**
+     * Standart filo (tüm {@link ShipType} değerleri) için bir üretici oluşturur.
+     */
+    public FleetGenerator(int rows, int cols) {
+        this(rows, cols, ShipType.values());
+    }
+
+    public FleetGenerator(int rows, int cols, ShipType... fleet) {
+        this.rows = rows;
+        this.cols = cols;
+        this.fleet = fleet.clone();
+        int n = fleet.length;
+        horizontalCount = new int[n];
+        placementCount = new int[n];
+        horizontalSpan = new int[n];
+        for (int i = 0; i < n; i++) {
+            int length = fleet[i].getSize();
+            horizontalSpan[i] = Math.max(0, cols - length + 1);
+            horizontalCount[i] = rows * horizontalSpan[i];
+            placementCount[i] = horizontalCount[i] + Math.max(0, rows - length + 1) * cols;
+            if (placementCount[i] == 0) {
+                throw new IllegalArgumentException(fleet[i] + " gemisi " + rows + "x" + cols + " tahtaya sığmıyor.");
+            }
+        }
+        order = IntStream.range(0, n).boxed()
+                .sorted((a, b) -> Integer.compare(fleet[b].getSize(), fleet[a].getSize()))
+                .mapToInt(Integer::intValue).toArray();
+        if (rows * cols <= MASK_MAX_CELLS) {
+            buildMasks();
+        }
+    }
+
+    /**
+     * Her gemi ve konum için kapladığı hücre ve komşuluk maskelerini hesaplar.
+     */
+    private void buildMasks() {
+        int n = fleet.length;
+        footLo = new long[n][];
+        footHi = new long[n][];
+        zoneLo = new long[n][];
+        zoneHi = new long[n][];
+        packedPlacement = new int[n][];
+        for (int i = 0; i < n; i++) {
+            int count = placementCount[i];
+            footLo[i] = new long[count];
+            footHi[i] = new long[count];
+            zoneLo[i] = new long[count];
+            zoneHi[i] = new long[count];
+            packedPlacement[i] = new int[count];
+            for (int choice = 0; choice < count; choice++) {
+                int[] rect = placement(i, choice);
+                packedPlacement[i][choice] = pack(rect[0], rect[1], choice < horizontalCount[i]);
+                for (int r = Math.max(0, rect[0] - 1); r <= Math.min(rows - 1, rect[2] + 1); r++) {
+                    for (int c = Math.max(0, rect[1] - 1); c <= Math.min(cols - 1, rect[3] + 1); c++) {
+                        int cell = r * cols + c;
+                        boolean covered = r >= rect[0] && r <= rect[2] && c >= rect[1] && c <= rect[3];
+                        if (cell < 64) {
+                            zoneLo[i][choice] |= 1L << cell;
+                            if (covered) footLo[i][choice] |= 1L << cell;
+                        } else {
+                            zoneHi[i][choice] |= 1L << cell;
+                            if (covered) footHi[i][choice] |= 1L << cell;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * i. geminin {@code choice} numaralı konumunu {row0, col0, row1, col1} dikdörtgeni olarak döndürür.
+     * Konumlar önce yatay (satır satır), sonra dikey olarak numaralanır.
+     */
+    private int[] placement(int i, int choice) {
+        int length = fleet[i].getSize();
+        if (choice < horizontalCount[i]) {
+            int row = choice / horizontalSpan[i];
+            int col = choice % horizontalSpan[i];
+            return new int[]{row, col, row, col + length - 1};
+        }
+        choice -= horizontalCount[i];
+        int row = choice / cols;
+        int col = choice % cols;
+        return new int[]{row, col, row + length - 1, col};
+    }
+
+    public int getFleetSize() {
+        return fleet.length;
+    }
+
+    /**
+     * Bir yerleşim üretir ve {@code out[offset..offset + getFleetSize())} aralığına filo sırasıyla paketlenmiş
+     * gemileri yazar. Her çağrı dört küçük çalışma dizisi ayırır; toplu üretim için
+     * {@link #generateBatch(int, long)} bunları görev başına bir kez ayırır.
+     */
+    public void generate(RandomGenerator random, int[] out, int offset) {
+        int n = fleet.length;
+        int[] r0 = new int[n];
+        int[] c0 = new int[n];
+        int[] r1 = new int[n];
+        int[] c1 = new int[n];
+        generate(random, out, offset, r0, c0, r1, c1);
+    }
+
+    /**
+     * Bir yerleşim üretir ve {@link Ship} dizisi olarak döndürür (filo sırasıyla).
+     */
+    public Ship[] generate(RandomGenerator random) {
+        int[] packed = new int[fleet.length];
+        generate(random, packed, 0);
+        return toShips(packed, 0);
+    }
+
+    /**
+     * {@code count} yerleşimi tüm çekirdeklerde paralel üretir.
+     * Sonuç {@code count * getFleetSize()} uzunluğunda paketlenmiş dizidir; aynı tohum her zaman aynı sonucu verir.
+     */
+    public int[] generateBatch(int count, long seed) {
+        int n = fleet.length;
+        int[] out = new int[count * n];
+        int chunks = (count + BATCH_CHUNK - 1) / BATCH_CHUNK;
+
+        // Her göreve sırayla bölünmüş bağımsız bir rastgele akış; sonuç iş parçacığı zamanlamasından bağımsızdır
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[chunks];
+        for (int i = 0; i < chunks; i++) {
+            streams[i] = root.split();
+        }
+
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            SplittableRandom random = streams[chunk];
+            int[] r0 = new int[n];
+            int[] c0 = new int[n];
+            int[] r1 = new int[n];
+            int[] c1 = new int[n];
+            int end = Math.min(count, (chunk + 1) * BATCH_CHUNK);
+            for (int layout = chunk * BATCH_CHUNK; layout < end; layout++) {
+                generate(random, out, layout * n, r0, c0, r1, c1);
+            }
+        });
+        return out;
+    }
+
+    /**
+     * Paketlenmiş bir yerleşimi {@link Ship} nesnelerine çevirir.
+     */
+    public Ship[] toShips(int[] packed, int offset) {
+        Ship[] ships = new Ship[fleet.length];
+        for (int i = 0; i < fleet.length; i++) {
+            int ship = packed[offset + i];
+            ships[i] = new Ship(packedRow(ship), packedCol(ship), fleet[i].getSize(), packedHorizontal(ship), fleet[i]);
+        }
+        return ships;
+    }
+
+    public static int packedRow(int packedShip) {
+        return packedShip >>> 16;
+    }
+
+    public static int packedCol(int packedShip) {
+        return (packedShip >>> 1) & 0x7FFF;
+    }
+
+    public static boolean packedHorizontal(int packedShip) {
+        return (packedShip & 1) != 0;
+    }
+
+    private static int pack(int row, int col, boolean horizontal) {
+        return row << 16 | col << 1 | (horizontal ? 1 : 0);
+    }
+
+    private void generate(RandomGenerator random, int[] out, int offset, int[] r0, int[] c0, int[] r1, int[] c1) {
+        for (long attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            boolean accepted = footLo != null
+                    ? tryLayoutMasks(random, out, offset)
+                    : tryLayout(random, out, offset, r0, c0, r1, c1);
+            if (accepted) {
+                return;
+            }
+        }
+        throw new IllegalStateException("Filo " + rows + "x" + cols + " tahtaya yerleştirilemedi.");
+    }
+
+    /**
+     * {@link #tryLayout} ile aynı örnekleme; çakışma, yerleştirilmiş gemilerin komşuluk maskesiyle iki AND'dir.
+     */
+    private boolean tryLayoutMasks(RandomGenerator random, int[] out, int offset) {
+        long blockedLo = 0L;
+        long blockedHi = 0L;
+        for (int k = 0; k < order.length; k++) {
+            int i = order[k];
+            int choice = random.nextInt(placementCount[i]);
+            if (((footLo[i][choice] & blockedLo) | (footHi[i][choice] & blockedHi)) != 0) {
+                return false;
+            }
+            blockedLo |= zoneLo[i][choice];
+            blockedHi |= zoneHi[i][choice];
+            out[offset + i] = packedPlacement[i][choice];
+        }
+        return true;
+    }
+
+    /**
+     * Tüm gemiler için bağımsız konum seçer ve {@code out}'a yazar; ilk çakışmada false döndürür
+     * (yerleşimin tamamı reddedilir, yazılanlar bir sonraki denemede ezilir).
+     */
+    private boolean tryLayout(RandomGenerator random, int[] out, int offset, int[] r0, int[] c0, int[] r1, int[] c1) {
+        for (int k = 0; k < order.length; k++) {
+            int i = order[k];
+            int length = fleet[i].getSize();
+            int choice = random.nextInt(placementCount[i]);
+            if (choice < horizontalCount[i]) {
+                r0[i] = choice / horizontalSpan[i];
+                c0[i] = choice % horizontalSpan[i];
+                r1[i] = r0[i];
+                c1[i] = c0[i] + length - 1;
+                out[offset + i] = pack(r0[i], c0[i], true);
+            } else {
+                choice -= horizontalCount[i];
+                r0[i] = choice / cols;
+                c0[i] = choice % cols;
+                r1[i] = r0[i] + length - 1;
+                c1[i] = c0[i];
+                out[offset + i] = pack(r0[i], c0[i], false);
+            }
+            for (int m = 0; m < k; m++) {
+                int j = order[m];
+                // Bir hücre genişletilmiş dikdörtgenler kesişiyorsa gemiler çakışır veya temas eder
+                if (r0[i] <= r1[j] + 1 && r0[j] <= r1[i] + 1 && c0[i] <= c1[j] + 1 && c0[j] <= c1[i] + 1) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
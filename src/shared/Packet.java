@@ -6,6 +6,8 @@ package shared;
 public class Packet {
     private String type;
     private String data;
+    private PacketType packetType; // Resolved lazily from type
+    private boolean packetTypeResolved;
 
     /**
      * Creates a new packet with the specified type and data.
@@ -18,6 +20,15 @@ public class Packet {
         this.data = data;
     }
 
+    /**
+     * Creates a new packet of a known type.
+     */
+    public Packet(PacketType type, String data) {
+        this(type.name(), data);
+        this.packetType = type;
+        this.packetTypeResolved = true;
+    }
+
     /**
      * Get the packet type.
      */
@@ -25,6 +36,17 @@ public class Packet {
         return type;
     }
 
+    /**
+     * Get the packet type as a {@link PacketType}, or null if the type is not part of the protocol.
+     */
+    public PacketType getPacketType() {
+        if (!packetTypeResolved) {
+            packetType = PacketType.fromName(type);
+            packetTypeResolved = true;
+        }
+        return packetType;
+    }
+
     /**
      * Get the packet data.
      */
@@ -47,12 +69,12 @@ public class Packet {
      * @return A new Packet object
      */
     public static Packet deserialize(String rawPacket) {
-        String[] parts = rawPacket.split("\\|", 2);
+        int separator = rawPacket.indexOf('|');
 
-        if (parts.length != 2) {
+        if (separator < 0) {
             throw new IllegalArgumentException("Invalid packet format: " + rawPacket);
         }
 
-        return new Packet(parts[0], parts[1]);
+        return new Packet(rawPacket.substring(0, separator), rawPacket.substring(separator + 1));
     }
 }
\ No newline at end of file
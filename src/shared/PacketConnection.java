@@ -0,0 +1,636 @@
+package shared;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Sends and receives {@link Packet}s over a connection's byte streams, either as text lines
+ * ({@code type|data\n}, UTF-8) or as {@link BinaryProtocol} frames.
+ * <p>
+ * {@link #read(PacketView)} parses into a reusable {@link PacketView} over the connection's own buffers, and
+ * {@link #sendShotResult} / {@link #sendOpponentShot} write shot packets straight into the output buffer, so a
+ * FIRE -> SHOT_RESULT round trip does not build intermediate strings in either format.
+ * <p>
+ * Input and output switch to binary independently, because each side changes direction at a different
+ * point of the handshake. Lines are read straight from the byte stream instead of through a
+ * {@code BufferedReader}, so no bytes of the first binary frame are lost to a character decoder's read-ahead.
+ * <p>
+ * {@link #read()} is meant to be called from a single reader thread; {@link #send(Packet)} may be called
+ * from any thread. A connection built without an input stream is fed by a non-blocking event loop instead:
+ * {@link #receive(ByteBuffer)} appends whatever bytes arrived and {@link #poll(PacketView)} decodes the complete
+ * packets among them, keeping partial lines and frames for the next call. Output is buffered and flushed once per packet, or once per {@link #beginBatch() batch}.
+ * <p>
+ * In binary mode, large frames can be compressed after {@link #enableOutputCompression(int)}. Each direction is
+ * one deflate stream, sync-flushed after every frame, so later frames reuse the dictionary built by earlier ones
+ * (repeated lobby lists compress to a few bytes). Compressed frames are recognised on arrival, so reading needs
+ * no setup.
+ * <p>
+ * If the output stream implements {@link Backpressure}, every packet first asks it whether the peer is keeping up,
+ * and packets it refuses are dropped whole, before they are encoded or compressed.
+ */
+public class PacketConnection implements Closeable {
+    private static final int MAX_LINE_LENGTH = BinaryProtocol.MAX_FRAME_LENGTH;
+    private static final int MAX_IDLE_INPUT_BUFFER = 64 * 1024; // Larger receive buffers are dropped once drained
+
+    private final Closeable resource;
+    private final DataInputStream in; // Null when fed through receive()
+    private final OutputStream out;
+    private final Backpressure backpressure; // Null if the output stream does not implement it
+    // Reentrant so a batch can call send(); a j.u.c. lock rather than synchronized, so a virtual thread blocked
+    // in a socket write does not pin its carrier thread
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Batch batch = new Batch();
+    private int batchDepth; // Guarded by writeLock
+    private boolean binaryInput; // Reader thread only
+    private boolean binaryOutput; // Guarded by writeLock
+    private byte[] lineBuffer = new byte[128]; // Reader thread only; also holds binary frame bodies
+    private final PacketView readView = new PacketView(); // Backs read()
+    private final byte[] shotBuffer = new byte[64]; // Guarded by writeLock
+    private volatile PacketStats stats; // Counts sent packets; null to not count
+    private Deflater deflater; // Guarded by writeLock; null while output compression is off
+    private int compressionThreshold; // Guarded by writeLock
+    private byte[] compressBuffer; // Guarded by writeLock
+    private Inflater inflater; // Reader thread only; created with the first compressed frame
+    private byte[] inflateBuffer; // Reader thread only
+    private byte[] inputBuffer; // Reader thread only; bytes passed to receive() and not yet decoded
+    private int inputStart;
+    private int inputEnd;
+    private int inputScanned; // Text input: bytes after inputStart already searched for a line terminator
+
+    public PacketConnection(Socket socket) throws IOException {
+        this(socket, socket.getInputStream(), socket.getOutputStream());
+    }
+
+    public PacketConnection(Closeable resource, InputStream in, OutputStream out) {
+        this.resource = resource;
+        this.in = new DataInputStream(new BufferedInputStream(in));
+        this.out = new BufferedOutputStream(out);
+        this.backpressure = out instanceof Backpressure b ? b : null;
+    }
+
+    /**
+     * A connection whose input is pushed through {@link #receive(ByteBuffer)} by a non-blocking event loop.
+     * {@code out} is used as is and must buffer on its own until {@code flush()}, which must not block.
+     */
+    public PacketConnection(Closeable resource, OutputStream out) {
+        this.resource = resource;
+        this.in = null;
+        this.out = out;
+        this.backpressure = out instanceof Backpressure b ? b : null;
+    }
+
+    /**
+     * Implemented by an output stream that queues bytes for a peer which may fall behind.
+     */
+    public interface Backpressure {
+        /**
+         * Called with the write lock held before each packet is written.
+         *
+         * @return true to drop the packet because the peer is too far behind.
+         */
+        boolean dropOutbound();
+    }
+
+    /**
+     * Reads the next packet in the current input format.
+     *
+     * @return The packet, or null when the peer closed the connection.
+     * @throws IllegalArgumentException If the packet is malformed; the connection stays usable.
+     * @throws IOException              On I/O errors or a corrupt frame length.
+     */
+    public Packet read() throws IOException {
+        return read(readView) ? readView.toPacket() : null;
+    }
+
+    /**
+     * Reads the next packet into {@code view} without copying it out of the connection's buffer.
+     * The view is valid until the next read.
+     *
+     * @return false when the peer closed the connection.
+     * @throws IllegalArgumentException If a text line has no type separator; the connection stays usable.
+     * @throws IOException              On I/O errors or a corrupt frame length.
+     */
+    public boolean read(PacketView view) throws IOException {
+        if (in == null) {
+            throw new IllegalStateException("Connection is fed through receive()");
+        }
+        if (binaryInput) {
+            int length = BinaryProtocol.readFrameLength(in);
+            if (length < 0) {
+                return false;
+            }
+            ensureLineCapacity(length);
+            in.readFully(lineBuffer, 0, length);
+            setFrame(view, length);
+            return true;
+        }
+        int length = readLine();
+        if (length < 0) {
+            return false;
+        }
+        view.setText(lineBuffer, length);
+        return true;
+    }
+
+    /**
+     * Appends bytes read by a non-blocking event loop; {@code src} is drained. Call {@link #poll(PacketView)}
+     * afterwards until it returns false. Reader thread only.
+     */
+    public void receive(ByteBuffer src) {
+        int count = src.remaining();
+        if (inputStart == inputEnd) {
+            inputStart = 0;
+            inputEnd = 0;
+            if (inputBuffer != null && inputBuffer.length > MAX_IDLE_INPUT_BUFFER) {
+                inputBuffer = null; // Do not keep a large message's buffer on an idle connection
+            }
+        }
+        if (inputBuffer == null) {
+            inputBuffer = new byte[Math.max(256, count)];
+        } else if (inputEnd + count > inputBuffer.length) {
+            int pending = inputEnd - inputStart;
+            if (pending + count > inputBuffer.length) {
+                inputBuffer = Arrays.copyOfRange(inputBuffer, inputStart,
+                        inputStart + Math.max(pending + count, inputBuffer.length * 2));
+            } else {
+                System.arraycopy(inputBuffer, inputStart, inputBuffer, 0, pending);
+            }
+            inputStart = 0;
+            inputEnd = pending;
+        }
+        src.get(inputBuffer, inputEnd, count);
+        inputEnd += count;
+    }
+
+    /**
+     * Decodes the next complete packet received through {@link #receive(ByteBuffer)} into {@code view}.
+     * The view is valid until the next poll. A switch to binary input takes effect for the bytes that follow the
+     * packet that triggered it, even if they were received together with it.
+     *
+     * @return false if no complete packet is buffered yet.
+     * @throws IllegalArgumentException If a text line has no type separator; the connection stays usable.
+     * @throws IOException              On a corrupt frame length or an overlong line.
+     */
+    public boolean poll(PacketView view) throws IOException {
+        int available = inputEnd - inputStart;
+        if (binaryInput) {
+            if (available < Integer.BYTES) {
+                return false;
+            }
+            byte[] b = inputBuffer;
+            int p = inputStart;
+            int length = (b[p] & 0xFF) << 24 | (b[p + 1] & 0xFF) << 16 | (b[p + 2] & 0xFF) << 8 | (b[p + 3] & 0xFF);
+            if (length < 1 || length > BinaryProtocol.MAX_FRAME_LENGTH) {
+                throw new IOException("Invalid frame length: " + length);
+            }
+            if (available < Integer.BYTES + length) {
+                return false;
+            }
+            ensureLineCapacity(length);
+            System.arraycopy(b, p + Integer.BYTES, lineBuffer, 0, length);
+            inputStart += Integer.BYTES + length;
+            setFrame(view, length);
+            return true;
+        }
+        for (int i = inputStart + inputScanned; i < inputEnd; i++) {
+            if (inputBuffer[i] == '\n') {
+                int length = i - inputStart;
+                ensureLineCapacity(length);
+                System.arraycopy(inputBuffer, inputStart, lineBuffer, 0, length);
+                inputStart = i + 1;
+                inputScanned = 0;
+                if (length > 0 && lineBuffer[length - 1] == '\r') {
+                    length--;
+                }
+                view.setText(lineBuffer, length);
+                return true;
+            }
+        }
+        inputScanned = available;
+        if (available > MAX_LINE_LENGTH) {
+            throw new IOException("Line too long");
+        }
+        return false;
+    }
+
+    /**
+     * Points the view at the frame body in {@code lineBuffer}, inflating it first if it is compressed.
+     */
+    private void setFrame(PacketView view, int length) throws IOException {
+        if ((lineBuffer[0] & 0xFF) == BinaryProtocol.COMPRESSED) {
+            int inflated = inflate(length); // May replace inflateBuffer
+            view.setBinary(inflateBuffer, inflated, length + Integer.BYTES);
+        } else {
+            view.setBinary(lineBuffer, length);
+        }
+    }
+
+    /**
+     * Writes a packet in the current output format and flushes it, unless a {@link #beginBatch() batch} is open.
+     */
+    public void send(Packet packet) throws IOException {
+        writeLock.lock();
+        try {
+            if (dropOutbound()) {
+                return;
+            }
+            write(packet);
+            flushUnlessBatching();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Writes a pre-encoded packet in the current output format; no serialisation happens here, the shared bytes
+     * are copied into this connection's buffer. Flushes unless a {@link #beginBatch() batch} is open.
+     */
+    public void send(EncodedPacket packet) throws IOException {
+        writeLock.lock();
+        try {
+            if (dropOutbound()) {
+                return;
+            }
+            byte[] bytes = packet.bytes(binaryOutput);
+            int length;
+            if (binaryOutput) {
+                length = writeFrame(bytes, bytes.length);
+            } else {
+                out.write(bytes);
+                length = bytes.length;
+            }
+            flushUnlessBatching();
+            PacketStats stats = this.stats;
+            if (stats != null && packet.getPacketType() != null) {
+                stats.recordSent(packet.getPacketType(), length);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Starts an outbound batch: the calling thread holds the write lock until the batch is closed, so no other
+     * sender can interleave, and packets are only buffered. Closing the batch flushes them together, in as few
+     * writes (and TCP segments) as the buffer allows. Batches may nest; only the outermost close flushes.
+     * <p>
+     * Always close the returned batch, normally with try-with-resources. Only one batch object exists per
+     * connection, so beginning a batch does not allocate.
+     */
+    public Batch beginBatch() {
+        writeLock.lock();
+        batchDepth++;
+        return batch;
+    }
+
+    /**
+     * An open outbound batch; see {@link #beginBatch()}.
+     */
+    public final class Batch implements Closeable {
+        private Batch() {
+        }
+
+        /**
+         * Ends the batch, flushing if it is the outermost one, and releases the write lock.
+         */
+        @Override
+        public void close() throws IOException {
+            if (!writeLock.isHeldByCurrentThread()) {
+                throw new IllegalStateException("Batch is not open on this thread");
+            }
+            try {
+                if (--batchDepth == 0) {
+                    out.flush();
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    private boolean dropOutbound() {
+        return backpressure != null && backpressure.dropOutbound();
+    }
+
+    private void flushUnlessBatching() throws IOException {
+        if (batchDepth == 0) {
+            out.flush();
+        }
+    }
+
+    /**
+     * Writes a packet in the current format, then switches the output to binary. No other sender can
+     * interleave between the two, so the peer sees this packet as the last text line.
+     */
+    public void sendAndSwitchToBinary(Packet packet) throws IOException {
+        writeLock.lock();
+        try {
+            write(packet);
+            flushUnlessBatching();
+            binaryOutput = true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Switches the input to binary frames; must be called from the reader thread, right after reading the
+     * packet that marks the peer's switch.
+     */
+    public void switchInputToBinary() {
+        binaryInput = true;
+    }
+
+    /**
+     * Compresses binary frames whose body is at least {@code threshold} bytes from now on. Only call this once the
+     * peer has agreed to compression ({@link BinaryProtocol#COMPRESSION_OFFER}); frames already buffered are not
+     * affected.
+     */
+    public void enableOutputCompression(int threshold) {
+        writeLock.lock();
+        try {
+            if (deflater == null) {
+                deflater = new Deflater(Deflater.BEST_SPEED);
+                compressBuffer = new byte[256];
+            }
+            compressionThreshold = threshold;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public boolean isOutputCompressed() {
+        writeLock.lock();
+        try {
+            return deflater != null;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Counts every packet sent from now on in {@code stats} (null to stop counting). Received packets are
+     * counted by the {@link PacketDispatcher} that handles them.
+     */
+    public void setStats(PacketStats stats) {
+        this.stats = stats;
+    }
+
+    public boolean isBinaryInput() {
+        return binaryInput;
+    }
+
+    public boolean isBinaryOutput() {
+        writeLock.lock();
+        try {
+            return binaryOutput;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Sends SHOT_RESULT ("MISS:A1" or "HIT:A1:TYPE[:SUNK]") to the shooter.
+     *
+     * @param result   One of {@link PacketView#RESULT_MISS}, {@link PacketView#RESULT_HIT}, {@link PacketView#RESULT_SUNK}.
+     * @param shipType The ship that was hit; ignored on a miss.
+     */
+    public void sendShotResult(int result, int row, int col, ShipType shipType) throws IOException {
+        sendShot(false, result, row, col, shipType);
+    }
+
+    /**
+     * Sends OPPONENT_SHOT ("A1:MISS" or "A1:HIT:TYPE[:SUNK]") to the player who was shot at.
+     */
+    public void sendOpponentShot(int result, int row, int col, ShipType shipType) throws IOException {
+        sendShot(true, result, row, col, shipType);
+    }
+
+    private void sendShot(boolean opponentShot, int result, int row, int col, ShipType shipType) throws IOException {
+        if (result != PacketView.RESULT_MISS && shipType == null) {
+            throw new IllegalArgumentException("Hit without a ship type");
+        }
+        writeLock.lock();
+        try {
+            if (dropOutbound()) {
+                return;
+            }
+            byte[] b = shotBuffer;
+            int length;
+            if (binaryOutput) {
+                length = BinaryProtocol.encodeShot(opponentShot, result, row, col, result == PacketView.RESULT_MISS ? null : shipType, b);
+            } else {
+                length = putAscii(opponentShot ? "OPPONENT_SHOT" : "SHOT_RESULT", b, 0);
+                b[length++] = '|';
+                if (opponentShot) {
+                    length = putCell(row, col, b, length);
+                    b[length++] = ':';
+                }
+                length = putAscii(result == PacketView.RESULT_MISS ? "MISS" : "HIT", b, length);
+                if (!opponentShot) {
+                    b[length++] = ':';
+                    length = putCell(row, col, b, length);
+                }
+                if (result != PacketView.RESULT_MISS) {
+                    b[length++] = ':';
+                    length = putAscii(shipType.name(), b, length);
+                    if (result == PacketView.RESULT_SUNK) {
+                        length = putAscii(":SUNK", b, length);
+                    }
+                }
+                b[length++] = '\n';
+            }
+            if (binaryOutput) {
+                length = writeFrame(b, length);
+            } else {
+                out.write(b, 0, length);
+            }
+            flushUnlessBatching();
+            PacketStats stats = this.stats;
+            if (stats != null) {
+                stats.recordSent(opponentShot ? PacketType.OPPONENT_SHOT : PacketType.SHOT_RESULT, length);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the {@link Coordinates#format(int, int)} form of a cell.
+     */
+    private static int putCell(int row, int col, byte[] b, int pos) {
+        if (row < 0 || col < 0) {
+            throw new IllegalArgumentException("Invalid cell: " + row + "," + col);
+        }
+        int letters = 0;
+        for (int n = row + 1; n > 0; n = (n - 1) / 26) {
+            letters++;
+        }
+        int i = pos + letters;
+        for (int n = row + 1; n > 0; n = (n - 1) / 26) {
+            b[--i] = (byte) ('A' + (n - 1) % 26);
+        }
+        return putDecimal(col + 1, b, pos + letters);
+    }
+
+    private static int putDecimal(int value, byte[] b, int pos) {
+        int digits = 1;
+        for (int n = value; n >= 10; n /= 10) {
+            digits++;
+        }
+        for (int i = pos + digits - 1; i >= pos; i--) {
+            b[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + digits;
+    }
+
+    private static int putAscii(String text, byte[] b, int pos) {
+        for (int i = 0; i < text.length(); i++) {
+            b[pos++] = (byte) text.charAt(i);
+        }
+        return pos;
+    }
+
+    private void write(Packet packet) throws IOException {
+        int length;
+        if (binaryOutput) {
+            byte[] frame = BinaryProtocol.encode(packet);
+            length = writeFrame(frame, frame.length);
+        } else {
+            byte[] line = packet.serialize().getBytes(StandardCharsets.UTF_8);
+            out.write(line);
+            out.write('\n');
+            length = line.length + 1;
+        }
+        PacketStats stats = this.stats;
+        if (stats != null && packet.getPacketType() != null) {
+            stats.recordSent(packet.getPacketType(), length);
+        }
+    }
+
+    /**
+     * Writes a complete binary frame, compressed if compression is on and the body reaches the threshold.
+     * Once deflated the frame must be sent, because the peer's inflater has to see every compressed byte.
+     *
+     * @return The number of bytes written.
+     */
+    private int writeFrame(byte[] frame, int length) throws IOException {
+        int bodyLength = length - Integer.BYTES;
+        if (deflater == null || bodyLength < compressionThreshold) {
+            out.write(frame, 0, length);
+            return length;
+        }
+        deflater.setInput(frame, Integer.BYTES, bodyLength);
+        int compressed = 0;
+        while (true) {
+            compressed += deflater.deflate(compressBuffer, compressed, compressBuffer.length - compressed, Deflater.SYNC_FLUSH);
+            if (compressed < compressBuffer.length) {
+                break; // Sync flush done: all input consumed and flushed
+            }
+            compressBuffer = Arrays.copyOf(compressBuffer, compressBuffer.length * 2);
+        }
+        int frameLength = compressed + 1;
+        out.write(frameLength >>> 24);
+        out.write(frameLength >>> 16);
+        out.write(frameLength >>> 8);
+        out.write(frameLength);
+        out.write(BinaryProtocol.COMPRESSED);
+        out.write(compressBuffer, 0, compressed);
+        return frameLength + Integer.BYTES;
+    }
+
+    /**
+     * Inflates the compressed frame in {@code lineBuffer} into {@code inflateBuffer}.
+     *
+     * @return The length of the inflated frame body.
+     * @throws IOException If the data is corrupt. The stream can no longer be decoded, so the connection is lost.
+     */
+    private int inflate(int length) throws IOException {
+        if (inflater == null) {
+            inflater = new Inflater();
+            inflateBuffer = new byte[Math.max(256, length * 4)];
+        }
+        inflater.setInput(lineBuffer, 1, length - 1);
+        int inflated = 0;
+        try {
+            while (true) {
+                int count = inflater.inflate(inflateBuffer, inflated, inflateBuffer.length - inflated);
+                inflated += count;
+                if (inflated == inflateBuffer.length) {
+                    if (inflated >= BinaryProtocol.MAX_FRAME_LENGTH) {
+                        throw new IOException("Compressed frame too long");
+                    }
+                    inflateBuffer = Arrays.copyOf(inflateBuffer, inflateBuffer.length * 2);
+                } else if (inflater.needsInput()) {
+                    break;
+                } else if (count == 0) {
+                    throw new IOException("Corrupt compressed frame");
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed frame: " + e.getMessage());
+        }
+        if (inflated == 0 || (inflateBuffer[0] & 0xFF) == BinaryProtocol.COMPRESSED) {
+            throw new IOException("Invalid compressed frame");
+        }
+        return inflated;
+    }
+
+    /**
+     * Reads one '\n'-terminated line into {@code lineBuffer} (a trailing '\r' is dropped).
+     *
+     * @return The line length in bytes, or -1 at end of stream.
+     */
+    private int readLine() throws IOException {
+        int length = 0;
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                if (length == 0) {
+                    return -1;
+                }
+                break; // Last line without a terminator
+            }
+            if (length == lineBuffer.length) {
+                if (length >= MAX_LINE_LENGTH) {
+                    throw new IOException("Line too long");
+                }
+                ensureLineCapacity(length + 1);
+            }
+            lineBuffer[length++] = (byte) b;
+        }
+        if (length > 0 && lineBuffer[length - 1] == '\r') {
+            length--;
+        }
+        return length;
+    }
+
+    private void ensureLineCapacity(int capacity) {
+        if (capacity > lineBuffer.length) {
+            lineBuffer = Arrays.copyOf(lineBuffer, Math.max(capacity, lineBuffer.length * 2));
+        }
+    }
+
+    /**
+     * Closes the underlying resource (normally the socket, which also closes its streams). Unsent buffered
+     * bytes are dropped; a sender blocked on a stalled peer is released with an exception.
+     */
+    @Override
+    public void close() throws IOException {
+        resource.close();
+    }
+}
@@ -0,0 +1,77 @@
+package shared;
+
+import java.io.IOException;
+
+/**
+ * Table-based packet dispatch: handlers are stored by {@link PacketType} ordinal, so dispatching is an array
+ * lookup instead of a string switch.
+ * <p>
+ * Handlers take a context (usually the connection's owner) and a message, which is a {@link Packet} or, on
+ * hot paths, a {@link PacketView}. A dispatcher is configured once and is then safe to share between threads.
+ *
+ * @param <C> The context passed to every handler.
+ * @param <M> The message type.
+ */
+public final class PacketDispatcher<C, M> {
+    @FunctionalInterface
+    public interface Handler<C, M> {
+        void handle(C context, M message) throws IOException;
+    }
+
+    private final Object[] handlers = new Object[PacketType.values().length]; // Handler<C, M> by ordinal
+    private final PacketStats stats;
+    private Handler<C, M> fallback;
+
+    /**
+     * @param stats Where received packets and their handling time are counted; null to not count (e.g. for a
+     *              second-stage dispatcher whose packets were already counted when they were read).
+     */
+    public PacketDispatcher(PacketStats stats) {
+        this.stats = stats;
+    }
+
+    public PacketDispatcher<C, M> on(PacketType type, Handler<C, M> handler) {
+        handlers[type.ordinal()] = handler;
+        return this;
+    }
+
+    /**
+     * Handler for known types that have no handler of their own.
+     */
+    public PacketDispatcher<C, M> otherwise(Handler<C, M> handler) {
+        fallback = handler;
+        return this;
+    }
+
+    /**
+     * Runs the handler for {@code type}.
+     *
+     * @param type      The message's type; null for types not in {@link PacketType}.
+     * @param wireBytes Size of the packet on the wire, for the byte counters.
+     * @return false if the type is unknown or no handler accepted it; the caller decides how to report that.
+     */
+    @SuppressWarnings("unchecked")
+    public boolean dispatch(C context, PacketType type, M message, int wireBytes) throws IOException {
+        if (type == null) {
+            if (stats != null) {
+                stats.recordUnknown();
+            }
+            return false;
+        }
+        Handler<C, M> handler = (Handler<C, M>) handlers[type.ordinal()];
+        if (handler == null) {
+            handler = fallback;
+        }
+        long start = stats != null ? System.nanoTime() : 0;
+        try {
+            if (handler != null) {
+                handler.handle(context, message);
+            }
+        } finally {
+            if (stats != null) {
+                stats.recordReceived(type, wireBytes, System.nanoTime() - start);
+            }
+        }
+        return handler != null;
+    }
+}
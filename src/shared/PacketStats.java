@@ -0,0 +1,113 @@
+package shared;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-{@link PacketType} traffic counters: packets and bytes received and sent, and the time spent handling
+ * received packets. Counters are {@link LongAdder}s, so any number of connection threads can record into one
+ * shared instance without contending on a single cache line.
+ */
+public final class PacketStats {
+    private static final class Counters {
+        final LongAdder received = new LongAdder();
+        final LongAdder receivedBytes = new LongAdder();
+        final LongAdder handlingNanos = new LongAdder();
+        final LongAdder sent = new LongAdder();
+        final LongAdder sentBytes = new LongAdder();
+    }
+
+    private final Counters[] counters = new Counters[PacketType.values().length];
+    private final LongAdder unknown = new LongAdder();
+
+    public PacketStats() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new Counters();
+        }
+    }
+
+    public void recordReceived(PacketType type, int bytes, long handlingNanos) {
+        Counters c = counters[type.ordinal()];
+        c.received.increment();
+        c.receivedBytes.add(bytes);
+        c.handlingNanos.add(handlingNanos);
+    }
+
+    public void recordSent(PacketType type, int bytes) {
+        Counters c = counters[type.ordinal()];
+        c.sent.increment();
+        c.sentBytes.add(bytes);
+    }
+
+    /**
+     * Counts a received packet whose type is not a {@link PacketType}.
+     */
+    public void recordUnknown() {
+        unknown.increment();
+    }
+
+    public long getReceivedCount(PacketType type) {
+        return counters[type.ordinal()].received.sum();
+    }
+
+    public long getReceivedBytes(PacketType type) {
+        return counters[type.ordinal()].receivedBytes.sum();
+    }
+
+    public long getHandlingNanos(PacketType type) {
+        return counters[type.ordinal()].handlingNanos.sum();
+    }
+
+    public long getSentCount(PacketType type) {
+        return counters[type.ordinal()].sent.sum();
+    }
+
+    public long getSentBytes(PacketType type) {
+        return counters[type.ordinal()].sentBytes.sum();
+    }
+
+    public long getUnknownCount() {
+        return unknown.sum();
+    }
+
+    /**
+     * Total packets received and sent, including unknown types; cheap enough to poll for changes.
+     */
+    public long getTotalPackets() {
+        long total = unknown.sum();
+        for (Counters c : counters) {
+            total += c.received.sum() + c.sent.sum();
+        }
+        return total;
+    }
+
+    /**
+     * A table of all types with traffic, busiest (by bytes in + out) first.
+     */
+    public String report() {
+        List<PacketType> active = new ArrayList<>();
+        for (PacketType type : PacketType.values()) {
+            Counters c = counters[type.ordinal()];
+            if (c.received.sum() + c.sent.sum() > 0) {
+                active.add(type);
+            }
+        }
+        active.sort(Comparator.comparingLong((PacketType t) -> getReceivedBytes(t) + getSentBytes(t)).reversed());
+
+        StringBuilder report = new StringBuilder(String.format("%-22s %10s %12s %12s %10s %12s%n",
+                "type", "in", "in bytes", "handle us", "out", "out bytes"));
+        for (PacketType type : active) {
+            report.append(String.format("%-22s %10d %12d %12d %10d %12d%n", type.name(),
+                    getReceivedCount(type), getReceivedBytes(type),
+                    TimeUnit.NANOSECONDS.toMicros(getHandlingNanos(type)),
+                    getSentCount(type), getSentBytes(type)));
+        }
+        if (unknown.sum() > 0) {
+            report.append(String.format("%-22s %10d%n", "(unknown)", unknown.sum()));
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,107 @@
+package shared;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * All packet types of the protocol. The constant name is the type string of the text format
+ * ({@code type|data}); {@link #getCode()} is the type byte of {@link BinaryProtocol} frames and must never be
+ * reused or renumbered once released.
+ * <p>
+ * Handlers are registered per type in a {@link PacketDispatcher}, which dispatches by ordinal instead of
+ * hashing type strings.
+ */
+public enum PacketType {
+    CLIENT_ID(1),
+    CLIENT_LIST(2),
+    INVITE(3),
+    GAME_INVITE(4),
+    INVITE_RESPONSE(5),
+    GAME_STARTED(6),
+    SHIPS_READY(7),
+    MY_SHIPS(8),
+    OPPONENT_SHIPS(9),
+    FIRE(10),
+    SHOT_RESULT(11),
+    OPPONENT_SHOT(12),
+    YOUR_TURN(13),
+    WAIT_TURN(14),
+    GAME_READY(15),
+    GAME_OVER(16),
+    ERROR(17),
+    WAIT_OPPONENT(18),
+    OPPONENT_DISCONNECTED(19),
+    INVITE_CANCELED(20),
+    INVITE_DECLINED(21),
+    INVITE_STATE_CANCELED(22),
+    INVITE_ERROR(23),
+    PROTOCOL(24),
+    BOARD_STATE(25),
+    BOARD_DELTA(26),
+    BOARD_SYNC(27),
+    PLAYER_JOINED(28),
+    PLAYER_LEFT(29);
+
+    private static final PacketType[] VALUES = values();
+    private static final PacketType[] BY_CODE;
+    private static final Map<String, PacketType> BY_NAME = new HashMap<>();
+
+    static {
+        int maxCode = 0;
+        for (PacketType type : VALUES) {
+            maxCode = Math.max(maxCode, type.code);
+            BY_NAME.put(type.name(), type);
+        }
+        BY_CODE = new PacketType[maxCode + 1];
+        for (PacketType type : VALUES) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final int code;
+    private final byte[] wireName;
+
+    PacketType(int code) {
+        this.code = code;
+        this.wireName = name().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * The type byte used in binary frames (1..254; 0 is reserved for untyped frames and 255 for compressed ones).
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * @return The type with this binary code, or null if the code is unused.
+     */
+    public static PacketType fromCode(int code) {
+        return code > 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+
+    /**
+     * @return The type with this text name, or null for unknown types.
+     */
+    public static PacketType fromName(String name) {
+        return BY_NAME.get(name);
+    }
+
+    /**
+     * Matches a type name given as ASCII bytes, without building a string.
+     *
+     * @return The type, or null for unknown types.
+     */
+    static PacketType match(byte[] buffer, int offset, int length) {
+        for (PacketType type : VALUES) {
+            byte[] name = type.wireName;
+            if (name.length == length && buffer[offset] == name[0]
+                    && Arrays.equals(buffer, offset, offset + length, name, 0, length)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
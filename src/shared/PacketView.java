@@ -0,0 +1,355 @@
+package shared;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A reusable, read-only view of one received packet, parsed in place from the connection's buffer.
+ * <p>
+ * {@link PacketConnection#read(PacketView)} points the view at its line or frame buffer instead of building
+ * {@code type}/{@code data} strings, and the primitive accessors ({@link #row()}, {@link #col()},
+ * {@link #result()}, {@link #shipType()}) parse FIRE, SHOT_RESULT and OPPONENT_SHOT straight from those bytes,
+ * so the hot game packets are decoded without allocating. Other packets are turned into a {@link Packet} with
+ * {@link #toPacket()}.
+ * <p>
+ * The view is only valid until the next read on the same connection; copy what you need (or call
+ * {@link #toPacket()}) before handing the packet to another thread.
+ */
+public final class PacketView {
+    public static final int RESULT_MISS = 0;
+    public static final int RESULT_HIT = 1;
+    public static final int RESULT_SUNK = 2;
+
+    private static final ShipType[] SHIP_TYPES = ShipType.values();
+    private static final byte[][] SHIP_TYPE_NAMES = new byte[SHIP_TYPES.length][];
+
+    static {
+        for (int i = 0; i < SHIP_TYPES.length; i++) {
+            SHIP_TYPE_NAMES[i] = SHIP_TYPES[i].name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private byte[] buffer;
+    private int length;
+    private boolean binary;
+    private int wireLength;
+    private int separator; // Text only: index of the '|' between type and data
+    private PacketType packetType;
+    private boolean typeResolved;
+
+    // Fields parsed lazily by row()/col()/result()/shipType()
+    private boolean fieldsParsed;
+    private int row;
+    private int col;
+    private int result;
+    private ShipType shipType;
+
+    /**
+     * Points the view at a text line ({@code type|data}, without the line terminator).
+     *
+     * @throws IllegalArgumentException If the line has no type separator.
+     */
+    void setText(byte[] buffer, int length) {
+        int separator = -1;
+        for (int i = 0; i < length; i++) {
+            if (buffer[i] == '|') {
+                separator = i;
+                break;
+            }
+        }
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid packet format: " + new String(buffer, 0, length, StandardCharsets.UTF_8));
+        }
+        set(buffer, length, false);
+        this.separator = separator;
+    }
+
+    /**
+     * Points the view at a binary frame body (type byte and payload, without the length prefix).
+     */
+    void setBinary(byte[] buffer, int length) {
+        set(buffer, length, true);
+    }
+
+    /**
+     * Points the view at an inflated frame body that arrived as a compressed frame of {@code wireLength} bytes.
+     */
+    void setBinary(byte[] buffer, int length, int wireLength) {
+        set(buffer, length, true);
+        this.wireLength = wireLength;
+    }
+
+    private void set(byte[] buffer, int length, boolean binary) {
+        this.buffer = buffer;
+        this.length = length;
+        this.binary = binary;
+        this.wireLength = binary ? length + Integer.BYTES : length + 1;
+        this.typeResolved = false;
+        this.fieldsParsed = false;
+    }
+
+    /**
+     * Whether this packet has the given type; compares bytes, no strings are built.
+     */
+    public boolean is(PacketType type) {
+        return packetType() == type;
+    }
+
+    /**
+     * The packet's type, or null if it is not part of the protocol. Resolved from the frame's type byte or by
+     * comparing the text type's bytes; no strings are built.
+     */
+    public PacketType packetType() {
+        if (!typeResolved) {
+            if (!binary) {
+                packetType = PacketType.match(buffer, 0, separator);
+            } else if ((buffer[0] & 0xFF) != BinaryProtocol.GENERIC) {
+                packetType = PacketType.fromCode(buffer[0] & 0xFF);
+            } else {
+                packetType = PacketType.match(buffer, 5, Math.min(readInt(1), length - 5));
+            }
+            typeResolved = true;
+        }
+        return packetType;
+    }
+
+    /**
+     * The packet type's name. Known types return the enum constant's name, so this does not allocate for them.
+     */
+    public String type() {
+        PacketType known = packetType();
+        if (known != null) {
+            return known.name();
+        }
+        return binary ? new String(buffer, 5, readInt(1), StandardCharsets.UTF_8)
+                : new String(buffer, 0, separator, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Size of the packet on the wire: the line including its terminator, or the frame including its length prefix
+     * (the compressed size for compressed frames).
+     */
+    public int wireLength() {
+        return wireLength;
+    }
+
+    /**
+     * Copies the packet out of the buffer. The result stays valid after the next read.
+     */
+    public Packet toPacket() {
+        if (binary) {
+            return BinaryProtocol.decode(buffer, length);
+        }
+        return new Packet(type(), new String(buffer, separator + 1, length - separator - 1, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Row of a FIRE, SHOT_RESULT or OPPONENT_SHOT packet.
+     */
+    public int row() {
+        parseFields();
+        return row;
+    }
+
+    /**
+     * Column of a FIRE, SHOT_RESULT or OPPONENT_SHOT packet.
+     */
+    public int col() {
+        parseFields();
+        return col;
+    }
+
+    /**
+     * {@link #RESULT_MISS}, {@link #RESULT_HIT} or {@link #RESULT_SUNK} of a SHOT_RESULT or OPPONENT_SHOT packet.
+     */
+    public int result() {
+        parseFields();
+        return result;
+    }
+
+    /**
+     * Ship type hit by a SHOT_RESULT or OPPONENT_SHOT packet; null on a miss.
+     */
+    public ShipType shipType() {
+        parseFields();
+        return shipType;
+    }
+
+    private void parseFields() {
+        if (fieldsParsed) {
+            return;
+        }
+        boolean fire = is(PacketType.FIRE);
+        boolean shot = is(PacketType.SHOT_RESULT) || is(PacketType.OPPONENT_SHOT);
+        if (!fire && !shot) {
+            throw new IllegalStateException("Packet has no coordinate fields: " + type());
+        }
+        if (binary && (buffer[0] & 0xFF) != BinaryProtocol.GENERIC) {
+            parseBinaryFields(fire);
+        } else {
+            int dataStart = binary ? 5 + readInt(1) + 4 : separator + 1;
+            if (fire) {
+                parseFireText(dataStart);
+            } else {
+                parseShotText(dataStart, is(PacketType.SHOT_RESULT));
+            }
+        }
+        fieldsParsed = true;
+    }
+
+    private void parseBinaryFields(boolean fire) {
+        if (fire) {
+            requireLength(5);
+            row = readUnsignedShort(1);
+            col = readUnsignedShort(3);
+            result = RESULT_MISS;
+            shipType = null;
+            return;
+        }
+        requireLength(7);
+        result = buffer[1] & 0xFF;
+        row = readUnsignedShort(2);
+        col = readUnsignedShort(4);
+        int type = buffer[6] & 0xFF;
+        if (result == RESULT_MISS) {
+            shipType = null;
+        } else if (result <= RESULT_SUNK && type < SHIP_TYPES.length) {
+            shipType = SHIP_TYPES[type];
+        } else {
+            throw new IllegalArgumentException("Invalid shot frame");
+        }
+    }
+
+    /**
+     * "row,col"
+     */
+    private void parseFireText(int pos) {
+        int comma = indexOf((byte) ',', pos);
+        row = parseDecimal(pos, comma);
+        col = parseDecimal(comma + 1, length);
+        result = RESULT_MISS;
+        shipType = null;
+    }
+
+    /**
+     * SHOT_RESULT: "MISS:A1" or "HIT:A1:TYPE[:SUNK]"; OPPONENT_SHOT: "A1:MISS" or "A1:HIT:TYPE[:SUNK]".
+     */
+    private void parseShotText(int pos, boolean resultFirst) {
+        int first = indexOf((byte) ':', pos);
+        int secondEnd = indexOfOrEnd((byte) ':', first + 1);
+        int cellStart = resultFirst ? first + 1 : pos;
+        int cellEnd = resultFirst ? secondEnd : first;
+        int resultStart = resultFirst ? pos : first + 1;
+        int resultEnd = resultFirst ? first : secondEnd;
+        parseCell(cellStart, cellEnd);
+        if (asciiEquals("MISS", resultStart, resultEnd - resultStart)) {
+            result = RESULT_MISS;
+            shipType = null;
+            return;
+        }
+        if (!asciiEquals("HIT", resultStart, resultEnd - resultStart) || secondEnd >= length) {
+            throw new IllegalArgumentException("Invalid shot result");
+        }
+        int typeStart = secondEnd + 1;
+        int typeEnd = indexOfOrEnd((byte) ':', typeStart);
+        shipType = null;
+        for (int i = 0; i < SHIP_TYPE_NAMES.length; i++) {
+            if (bytesEqual(SHIP_TYPE_NAMES[i], typeStart, typeEnd - typeStart)) {
+                shipType = SHIP_TYPES[i];
+                break;
+            }
+        }
+        if (shipType == null) {
+            throw new IllegalArgumentException("Invalid ship type");
+        }
+        result = typeEnd < length && asciiEquals("SUNK", typeEnd + 1, length - typeEnd - 1) ? RESULT_SUNK : RESULT_HIT;
+    }
+
+    /**
+     * Same rules as {@link Coordinates#parseRow(String)} / {@link Coordinates#parseCol(String)}.
+     */
+    private void parseCell(int start, int end) {
+        int pos = start;
+        int label = 0;
+        while (pos < end && buffer[pos] >= 'A' && buffer[pos] <= 'Z') {
+            label = label * 26 + (buffer[pos] - 'A' + 1);
+            pos++;
+        }
+        if (pos == start) {
+            throw new IllegalArgumentException("Invalid cell");
+        }
+        row = label - 1;
+        col = parseDecimal(pos, end) - 1;
+    }
+
+    private int parseDecimal(int start, int end) {
+        if (start >= end || end - start > 9) {
+            throw new IllegalArgumentException("Invalid number");
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("Invalid number");
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private int indexOf(byte b, int from) {
+        int index = indexOfOrEnd(b, from);
+        if (index == length) {
+            throw new IllegalArgumentException("Missing '" + (char) b + "'");
+        }
+        return index;
+    }
+
+    private int indexOfOrEnd(byte b, int from) {
+        for (int i = from; i < length; i++) {
+            if (buffer[i] == b) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    private boolean asciiEquals(String expected, int start, int count) {
+        if (expected.length() != count || start + count > length) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            if (buffer[start + i] != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean bytesEqual(byte[] expected, int start, int count) {
+        if (expected.length != count) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            if (buffer[start + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void requireLength(int required) {
+        if (length < required) {
+            throw new IllegalArgumentException("Frame too short");
+        }
+    }
+
+    private int readUnsignedShort(int pos) {
+        return ((buffer[pos] & 0xFF) << 8) | (buffer[pos + 1] & 0xFF);
+    }
+
+    private int readInt(int pos) {
+        requireLength(pos + 4);
+        return ((buffer[pos] & 0xFF) << 24) | ((buffer[pos + 1] & 0xFF) << 16)
+                | ((buffer[pos + 2] & 0xFF) << 8) | (buffer[pos + 3] & 0xFF);
+    }
+}
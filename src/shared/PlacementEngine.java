@@ -0,0 +1,242 @@
+package shared;
+
+import java.util.Arrays;
+
+/**
+ * Gemi yerleştirme için önceden hesaplanmış yasal konum tabloları.
+ * <p>
+ * Her gemi uzunluğu ve yön için, o anda yasal olan başlangıç hücreleri bir bit kümesinde tutulur.
+ * Bir gemi yerleştirildiğinde veya kaldırıldığında yalnızca geminin bir hücre genişletilmiş
+ * çevresinden etkilenen başlangıç noktaları güncellenir; böylece "bu konum yasal mı?" sorusu tek bir bit
+ * testiyle, "kaç yasal konum var?" sorusu bir sayaç okumasıyla cevaplanır.
+ * <p>
+ * Kurallar {@link Board#placeShip(Ship)} ile aynıdır: gemiler tahtadan taşamaz, üst üste binemez ve
+ * çapraz dahil birbirine temas edemez. Bellek kullanımı hücre sayısıyla orantılı olduğundan
+ * standart boyutlu tahtalar içindir.
+ */
+public final class PlacementEngine {
+    private final int rows;
+    private final int cols;
+    private final int cellCount;
+    private final int words;
+
+    private final int[] blockCount; // Hücreyi (komşuluk dahil) kapatan yerleştirilmiş gemi sayısı
+    private final int[] slotByLength; // Gemi uzunluğu -> tablo indeksi (-1: tablo yok)
+    private final int[] lengths; // Tablo indeksi -> gemi uzunluğu
+    // [uzunluk][yön][başlangıç hücresi]: geminin kapladığı hücrelerden kaçı kapalı (taşma da bir çakışma sayılır)
+    private final int[][][] conflicts;
+    private final long[][][] legal; // [uzunluk][yön] yasal başlangıç hücreleri bit kümesi
+    private final int[][] legalCount; // [uzunluk][yön] yasal başlangıç sayısı
+
+    private static final int HORIZONTAL = 0;
+    private static final int VERTICAL = 1;
+
+    /**
+     * Standart filo (tüm {@link ShipType} uzunlukları) için bir yerleştirme motoru oluşturur.
+     */
+    public PlacementEngine(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.cellCount = rows * cols;
+        this.words = (cellCount + 63) >>> 6;
+        this.blockCount = new int[cellCount];
+
+        int maxLength = 0;
+        for (ShipType type : ShipType.values()) {
+            maxLength = Math.max(maxLength, type.getSize());
+        }
+        slotByLength = new int[maxLength + 1];
+        Arrays.fill(slotByLength, -1);
+        int slotCount = 0;
+        for (ShipType type : ShipType.values()) {
+            if (slotByLength[type.getSize()] < 0) {
+                slotByLength[type.getSize()] = slotCount++; // Aynı uzunluktaki gemiler tabloyu paylaşır
+            }
+        }
+        lengths = new int[slotCount];
+        for (int length = 0; length <= maxLength; length++) {
+            if (slotByLength[length] >= 0) {
+                lengths[slotByLength[length]] = length;
+            }
+        }
+
+        conflicts = new int[slotCount][2][cellCount];
+        legal = new long[slotCount][2][words];
+        legalCount = new int[slotCount][2];
+        clear();
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Tüm yerleştirmeleri kaldırır ve tabloları boş tahtaya göre yeniden kurar.
+     */
+    public void clear() {
+        Arrays.fill(blockCount, 0);
+        for (int slot = 0; slot < lengths.length; slot++) {
+            int length = lengths[slot];
+            for (int orientation = HORIZONTAL; orientation <= VERTICAL; orientation++) {
+                int count = 0;
+                int[] slotConflicts = conflicts[slot][orientation];
+                long[] slotLegal = legal[slot][orientation];
+                Arrays.fill(slotLegal, 0L);
+                for (int row = 0; row < rows; row++) {
+                    for (int col = 0; col < cols; col++) {
+                        int start = row * cols + col;
+                        boolean fits = orientation == HORIZONTAL ? col + length <= cols : row + length <= rows;
+                        slotConflicts[start] = fits ? 0 : 1; // Taşan başlangıçlar kalıcı olarak yasak
+                        if (fits) {
+                            slotLegal[start >>> 6] |= 1L << start;
+                            count++;
+                        }
+                    }
+                }
+                legalCount[slot][orientation] = count;
+            }
+        }
+    }
+
+    /**
+     * Verilen gemi tipinin bu başlangıç noktası ve yönle yerleştirilip yerleştirilemeyeceğini döndürür.
+     */
+    public boolean isLegal(ShipType type, int row, int col, boolean horizontal) {
+        return isLegal(type.getSize(), row, col, horizontal);
+    }
+
+    /**
+     * Verilen uzunluktaki bir geminin bu başlangıç noktası ve yönle yerleştirilip yerleştirilemeyeceğini döndürür.
+     */
+    public boolean isLegal(int length, int row, int col, boolean horizontal) {
+        if (row < 0 || col < 0 || row >= rows || col >= cols) {
+            return false;
+        }
+        int start = row * cols + col;
+        return (legal[slot(length)][orientation(horizontal)][start >>> 6] & (1L << start)) != 0;
+    }
+
+    /**
+     * Verilen uzunluk ve yön için yasal başlangıç noktası sayısını döndürür.
+     */
+    public int getLegalCount(int length, boolean horizontal) {
+        return legalCount[slot(length)][orientation(horizontal)];
+    }
+
+    /**
+     * Verilen uzunluk için iki yöndeki toplam yasal konum sayısını döndürür.
+     */
+    public int getLegalCount(int length) {
+        int slot = slot(length);
+        return legalCount[slot][HORIZONTAL] + legalCount[slot][VERTICAL];
+    }
+
+    /**
+     * Verilen uzunluk ve yön için tüm yasal başlangıç hücrelerini (row * cols + col) döndürür.
+     */
+    public int[] getLegalStarts(int length, boolean horizontal) {
+        int slot = slot(length);
+        int orientation = orientation(horizontal);
+        long[] bits = legal[slot][orientation];
+        int[] starts = new int[legalCount[slot][orientation]];
+        int n = 0;
+        for (int w = 0; w < words; w++) {
+            for (long word = bits[w]; word != 0; word &= word - 1) {
+                starts[n++] = (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+        }
+        return starts;
+    }
+
+    /**
+     * Gemiyi yerleştirir ve etkilenen tabloları günceller.
+     * @return Konum yasal değilse false (hiçbir şey değişmez).
+     */
+    public boolean place(Ship ship) {
+        if (!isLegal(ship.getLength(), ship.getRow(), ship.getCol(), ship.isHorizontal())) {
+            return false;
+        }
+        updateZone(ship, +1);
+        return true;
+    }
+
+    /**
+     * Daha önce {@link #place(Ship)} ile yerleştirilmiş bir gemiyi kaldırır.
+     */
+    public void remove(Ship ship) {
+        updateZone(ship, -1);
+    }
+
+    /**
+     * Geminin bir hücre genişletilmiş çevresindeki hücrelerin kapalılık sayacını değiştirir.
+     * Bir hücre açık/kapalı arasında geçtiğinde, o hücreyi kapsayan tüm başlangıç noktaları güncellenir.
+     */
+    private void updateZone(Ship ship, int delta) {
+        int lastRow = ship.isHorizontal() ? ship.getRow() : ship.getRow() + ship.getLength() - 1;
+        int lastCol = ship.isHorizontal() ? ship.getCol() + ship.getLength() - 1 : ship.getCol();
+        int fromRow = Math.max(0, ship.getRow() - 1);
+        int toRow = Math.min(rows - 1, lastRow + 1);
+        int fromCol = Math.max(0, ship.getCol() - 1);
+        int toCol = Math.min(cols - 1, lastCol + 1);
+
+        for (int r = fromRow; r <= toRow; r++) {
+            for (int c = fromCol; c <= toCol; c++) {
+                int cell = r * cols + c;
+                int before = blockCount[cell];
+                blockCount[cell] = before + delta;
+                if (before == 0 && delta > 0) {
+                    updateCoveringStarts(r, c, +1);
+                } else if (before + delta == 0 && delta < 0) {
+                    updateCoveringStarts(r, c, -1);
+                }
+            }
+        }
+    }
+
+    /**
+     * (row, col) hücresini kaplayacak her başlangıç noktasının çakışma sayacını değiştirir.
+     */
+    private void updateCoveringStarts(int row, int col, int delta) {
+        for (int slot = 0; slot < lengths.length; slot++) {
+            int length = lengths[slot];
+            for (int k = 0; k < length; k++) {
+                if (col - k >= 0) {
+                    adjustConflict(slot, HORIZONTAL, row * cols + col - k, delta);
+                }
+                if (row - k >= 0) {
+                    adjustConflict(slot, VERTICAL, (row - k) * cols + col, delta);
+                }
+            }
+        }
+    }
+
+    private void adjustConflict(int slot, int orientation, int start, int delta) {
+        int[] slotConflicts = conflicts[slot][orientation];
+        int before = slotConflicts[start];
+        slotConflicts[start] = before + delta;
+        long bit = 1L << start;
+        if (before == 0) {
+            legal[slot][orientation][start >>> 6] &= ~bit; // Artık yasal değil
+            legalCount[slot][orientation]--;
+        } else if (before + delta == 0) {
+            legal[slot][orientation][start >>> 6] |= bit; // Tekrar yasal
+            legalCount[slot][orientation]++;
+        }
+    }
+
+    private int slot(int length) {
+        int slot = length >= 0 && length < slotByLength.length ? slotByLength[length] : -1;
+        if (slot < 0) {
+            throw new IllegalArgumentException("Filoda bu uzunlukta gemi yok: " + length);
+        }
+        return slot;
+    }
+
+    private static int orientation(boolean horizontal) {
+        return horizontal ? HORIZONTAL : VERTICAL;
+    }
+}
@@ -0,0 +1,813 @@
+package shared;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
+
+/**
+ * Kısmen açılmış bir tahtada kalan gemilerin tüm tutarlı yerleşimlerini sayar veya örnekler ve
+ * hücre başına olasılık yoğunluğu ({@link DensityMap}) üretir. Güçlü botlar, ipucu özelliği ve
+ * oyun sonrası analizler için temel yapı taşıdır.
+ * <p>
+ * Bir yerleşim şu koşullarda tahtayla tutarlıdır:
+ * <ul>
+ *     <li>Hiçbir gemi MISS veya SUNK hücreye ya da batık bir geminin komşusuna basmaz (gemiler temas edemez).</li>
+ *     <li>Hiçbir geminin komşuluk alanında, kendisinin kaplamadığı bir HIT hücresi bulunmaz.</li>
+ *     <li>Tüm HIT (henüz batmamış gemiye ait) hücreler kalan gemilerce kaplanır.</li>
+ *     <li>Gemiler birbiriyle çakışmaz ve temas etmez (çapraz dahil).</li>
+ * </ul>
+ * Tahtadaki SHIP hücreleri gizli bilgi sayılır ve EMPTY gibi ele alınır. Batık gemilerin hücreleri SUNK
+ * işaretlenmiş olmalıdır ({@link Board#attack} bunu yapar); aksi halde HIT kalan hücreleri açıklayacak gemi
+ * bulunamaz ve sonuç boş olur.
+ * <p>
+ * En fazla 128 hücreli tahtalarda (standart 10x10 dahil) her konum iki {@code long} maske olarak tutulur.
+ * Arama uzayı küçükse tüm yerleşimler fork/join ile çekirdeklere bölünerek tam sayılır. Büyükse, veya tahta
+ * daha büyükse, {@link FleetGenerator} ile aynı tüm-filo red örneklemesi paralel akışlarla çalıştırılır;
+ * açıklanmamış isabetler önce onları kaplayan kısmi yerleşimlerden biri seçilerek karşılanır.
+ * Kabul edilen örnekler tutarlı yerleşimler üzerinde tam olarak düzgün dağılır.
+ */
+public final class ProbabilityDensityEngine {
+    public static final int DEFAULT_SAMPLES = 10_000; // compute() için örnek sayısı
+    private static final double EXACT_LIMIT = 2e7; // Aday sayıları çarpımı bunun altındaysa tam sayım
+    private static final int MASK_MAX_CELLS = 128; // Bu hücre sayısına kadar iki long maske kullanılır
+    private static final int SAMPLE_CHUNK = 1024; // Paralel örneklemede bir görevin ürettiği örnek sayısı
+    private static final int MAX_ATTEMPTS_PER_SAMPLE = 1000; // Tutarsız/çok kısıtlı tahtalarda sonsuz döngüyü önler
+    private static final long SEED_SALT = 0x5DEECE66DL;
+
+    private ProbabilityDensityEngine() {
+        // Yardımcı sınıf
+    }
+
+    /**
+     * Yoğunluk haritasını hesaplar: arama uzayı küçükse tam sayım, değilse {@link #DEFAULT_SAMPLES} örnek.
+     * Örnekleme tohumu tahtanın Zobrist özetinden türetilir; aynı konum her zaman aynı haritayı verir.
+     * @param remaining Henüz batmamış gemiler.
+     */
+    public static DensityMap compute(Board board, ShipType... remaining) {
+        Problem problem = new Problem(board, remaining);
+        if (problem.usesMasks() && problem.estimateLayouts() <= EXACT_LIMIT) {
+            return problem.enumerate();
+        }
+        return problem.sample(DEFAULT_SAMPLES, board.getZobristHash() ^ SEED_SALT);
+    }
+
+    /**
+     * Tüm tutarlı yerleşimleri tam sayar. Boş veya az açılmış tahtalarda çok uzun sürebilir;
+     * seçimi {@link #compute} ile bırakmak tercih edilmelidir.
+     * @throws IllegalArgumentException Tahta 128 hücreden büyükse.
+     */
+    public static DensityMap enumerate(Board board, ShipType... remaining) {
+        Problem problem = new Problem(board, remaining);
+        if (!problem.usesMasks()) {
+            throw new IllegalArgumentException("Tam sayım en fazla " + MASK_MAX_CELLS + " hücreli tahtalarda desteklenir.");
+        }
+        return problem.enumerate();
+    }
+
+    /**
+     * Tutarlı yerleşimlerden {@code samples} tane düzgün örnek çekerek yoğunluğu kestirir.
+     * Aynı tohum, iş parçacığı zamanlamasından bağımsız olarak aynı sonucu verir.
+     */
+    public static DensityMap sample(Board board, int samples, long seed, ShipType... remaining) {
+        if (samples <= 0) {
+            throw new IllegalArgumentException("Örnek sayısı pozitif olmalıdır: " + samples);
+        }
+        return new Problem(board, remaining).sample(samples, seed);
+    }
+
+    /**
+     * Tek bir hesaplamanın girdileri: gemi sırası, gemi başına tahtayla tutarlı aday konumlar ve HIT hücreleri.
+     * Aynı uzunluktaki gemiler aynı aday dizilerini paylaşır.
+     */
+    private static final class Problem {
+        final int rows;
+        final int cols;
+        final int n; // Kalan gemi sayısı
+        final int[] lengths; // Büyükten küçüğe sıralı
+        final boolean[] sameAsPrevious; // Önceki gemiyle aynı uzunlukta mı (tam sayımda tekrarları önler)
+        final int[] suffixLength; // k. ve sonraki gemilerin toplam uzunluğu
+        final boolean[] unknown; // Henüz ateş edilmemiş hücreler
+        final int[][] candidates; // [gemi][aday] -> konum indeksi
+        final int[][] hitCount; // [gemi][aday] -> konumun kapladığı HIT hücre sayısı
+        final int[][] freeCandidates; // [gemi] -> hiç HIT kaplamayan adayların indeksleri
+        final boolean[] hit;
+        final int totalHits;
+
+        // Maske yolu (<= 128 hücre)
+        long hitLo;
+        long hitHi;
+        long[][] footLo;
+        long[][] footHi;
+        long[][] zoneLo;
+        long[][] zoneHi;
+
+        // Dikdörtgen yolu: [gemi][aday] -> konumun kapladığı dikdörtgen
+        int[][] r0;
+        int[][] c0;
+        int[][] r1;
+        int[][] c1;
+
+        Problem(Board board, ShipType[] remaining) {
+            rows = board.getRows();
+            cols = board.getCols();
+            n = remaining.length;
+            lengths = new int[n];
+            for (int k = 0; k < n; k++) {
+                lengths[k] = remaining[k].getSize();
+            }
+            Arrays.sort(lengths);
+            for (int k = 0; k < n / 2; k++) { // Büyük gemiler önce: çakışmalar erken yakalanır
+                int t = lengths[k];
+                lengths[k] = lengths[n - 1 - k];
+                lengths[n - 1 - k] = t;
+            }
+            sameAsPrevious = new boolean[n];
+            suffixLength = new int[n + 1];
+            for (int k = n - 1; k >= 0; k--) {
+                sameAsPrevious[k] = k > 0 && lengths[k] == lengths[k - 1];
+                suffixLength[k] = suffixLength[k + 1] + lengths[k];
+            }
+
+            int cellCount = rows * cols;
+            unknown = new boolean[cellCount];
+            hit = new boolean[cellCount];
+            boolean[] blocked = new boolean[cellCount];
+            int hits = 0;
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < cols; c++) {
+                    int cell = r * cols + c;
+                    switch (board.getCellStatus(r, c)) {
+                        case HIT:
+                            hit[cell] = true;
+                            hits++;
+                            break;
+                        case MISS:
+                            blocked[cell] = true;
+                            break;
+                        case SUNK:
+                            // Batık geminin kendisi ve komşuları başka gemi içeremez
+                            for (int rr = Math.max(0, r - 1); rr <= Math.min(rows - 1, r + 1); rr++) {
+                                for (int cc = Math.max(0, c - 1); cc <= Math.min(cols - 1, c + 1); cc++) {
+                                    blocked[rr * cols + cc] = true;
+                                }
+                            }
+                            break;
+                        default:
+                            unknown[cell] = true; // EMPTY veya gizli SHIP
+                            break;
+                    }
+                }
+            }
+            totalHits = hits;
+
+            candidates = new int[n][];
+            hitCount = new int[n][];
+            freeCandidates = new int[n][];
+            boolean masks = cellCount <= MASK_MAX_CELLS;
+            if (masks) {
+                footLo = new long[n][];
+                footHi = new long[n][];
+                zoneLo = new long[n][];
+                zoneHi = new long[n][];
+                for (int cell = 0; cell < cellCount; cell++) {
+                    if (hit[cell]) {
+                        if (cell < 64) hitLo |= 1L << cell; else hitHi |= 1L << (cell - 64);
+                    }
+                }
+            } else {
+                r0 = new int[n][];
+                c0 = new int[n][];
+                r1 = new int[n][];
+                c1 = new int[n][];
+            }
+            for (int k = 0; k < n; k++) {
+                if (sameAsPrevious[k]) {
+                    shareWithPrevious(k, masks);
+                } else {
+                    buildCandidates(k, blocked, masks);
+                }
+            }
+        }
+
+        boolean usesMasks() {
+            return footLo != null;
+        }
+
+        int horizontalCount(int length) {
+            return rows * Math.max(0, cols - length + 1);
+        }
+
+        int placementCount(int length) {
+            return horizontalCount(length) + Math.max(0, rows - length + 1) * cols;
+        }
+
+        /**
+         * {@code placement} numaralı konumun başlangıç hücresi ve yönü: hücre indeksi, dikeyse -hücre-1.
+         * Konumlar önce yatay (satır satır), sonra dikey olarak numaralanır.
+         */
+        int placementStart(int length, int placement) {
+            int horizontal = horizontalCount(length);
+            if (placement < horizontal) {
+                int span = cols - length + 1;
+                return (placement / span) * cols + placement % span;
+            }
+            return -(placement - horizontal) - 1;
+        }
+
+        private void buildCandidates(int k, boolean[] blocked, boolean masks) {
+            int length = lengths[k];
+            int count = placementCount(length);
+            int[] list = new int[count];
+            int[] hitsIn = new int[count];
+            int size = 0;
+            for (int placement = 0; placement < count; placement++) {
+                int start = placementStart(length, placement);
+                boolean horizontal = start >= 0;
+                int cell = horizontal ? start : -start - 1;
+                int row0 = cell / cols;
+                int col0 = cell % cols;
+                int row1 = horizontal ? row0 : row0 + length - 1;
+                int col1 = horizontal ? col0 + length - 1 : col0;
+
+                boolean ok = true;
+                int covered = 0;
+                for (int r = Math.max(0, row0 - 1); ok && r <= Math.min(rows - 1, row1 + 1); r++) {
+                    for (int c = Math.max(0, col0 - 1); c <= Math.min(cols - 1, col1 + 1); c++) {
+                        int index = r * cols + c;
+                        boolean inFoot = r >= row0 && r <= row1 && c >= col0 && c <= col1;
+                        if (inFoot && blocked[index]) {
+                            ok = false; // Iska veya batık gemi bölgesi
+                            break;
+                        }
+                        if (hit[index]) {
+                            if (!inFoot) {
+                                ok = false; // Komşudaki isabet başka bir gemiye ait olamaz
+                                break;
+                            }
+                            covered++;
+                        }
+                    }
+                }
+                if (ok) {
+                    hitsIn[size] = covered;
+                    list[size++] = placement;
+                }
+            }
+            candidates[k] = Arrays.copyOf(list, size);
+            hitCount[k] = Arrays.copyOf(hitsIn, size);
+            int free = 0;
+            for (int i = 0; i < size; i++) {
+                if (hitsIn[i] == 0) {
+                    list[free++] = i;
+                }
+            }
+            freeCandidates[k] = Arrays.copyOf(list, free);
+
+            if (masks) {
+                footLo[k] = new long[size];
+                footHi[k] = new long[size];
+                zoneLo[k] = new long[size];
+                zoneHi[k] = new long[size];
+            } else {
+                r0[k] = new int[size];
+                c0[k] = new int[size];
+                r1[k] = new int[size];
+                c1[k] = new int[size];
+            }
+            for (int i = 0; i < size; i++) {
+                int start = placementStart(length, candidates[k][i]);
+                boolean horizontal = start >= 0;
+                int cell = horizontal ? start : -start - 1;
+                int row0 = cell / cols;
+                int col0 = cell % cols;
+                int row1 = horizontal ? row0 : row0 + length - 1;
+                int col1 = horizontal ? col0 + length - 1 : col0;
+                if (!masks) {
+                    r0[k][i] = row0;
+                    c0[k][i] = col0;
+                    r1[k][i] = row1;
+                    c1[k][i] = col1;
+                    continue;
+                }
+                for (int r = Math.max(0, row0 - 1); r <= Math.min(rows - 1, row1 + 1); r++) {
+                    for (int c = Math.max(0, col0 - 1); c <= Math.min(cols - 1, col1 + 1); c++) {
+                        int index = r * cols + c;
+                        boolean inFoot = r >= row0 && r <= row1 && c >= col0 && c <= col1;
+                        if (index < 64) {
+                            zoneLo[k][i] |= 1L << index;
+                            if (inFoot) footLo[k][i] |= 1L << index;
+                        } else {
+                            zoneHi[k][i] |= 1L << (index - 64);
+                            if (inFoot) footHi[k][i] |= 1L << (index - 64);
+                        }
+                    }
+                }
+            }
+        }
+
+        private void shareWithPrevious(int k, boolean masks) {
+            candidates[k] = candidates[k - 1];
+            hitCount[k] = hitCount[k - 1];
+            freeCandidates[k] = freeCandidates[k - 1];
+            if (masks) {
+                footLo[k] = footLo[k - 1];
+                footHi[k] = footHi[k - 1];
+                zoneLo[k] = zoneLo[k - 1];
+                zoneHi[k] = zoneHi[k - 1];
+            } else {
+                r0[k] = r0[k - 1];
+                c0[k] = c0[k - 1];
+                r1[k] = r1[k - 1];
+                c1[k] = c1[k - 1];
+            }
+        }
+
+        /**
+         * Aday sayılarının çarpımı (aynı uzunluktaki gemilerin sıralamaları hariç): tam sayımın üst sınırı.
+         */
+        double estimateLayouts() {
+            double estimate = 1;
+            int run = 1;
+            for (int k = 0; k < n; k++) {
+                run = sameAsPrevious[k] ? run + 1 : 1;
+                estimate = estimate * candidates[k].length / run;
+            }
+            return estimate;
+        }
+
+        boolean hasEmptyCandidates() {
+            for (int[] list : candidates) {
+                if (list.length == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        long[][] newCounts() {
+            long[][] counts = new long[n][];
+            for (int k = 0; k < n; k++) {
+                counts[k] = new long[candidates[k].length];
+            }
+            return counts;
+        }
+
+        static void addCounts(long[][] target, long[][] source) {
+            for (int k = 0; k < target.length; k++) {
+                for (int i = 0; i < target[k].length; i++) {
+                    target[k][i] += source[k][i];
+                }
+            }
+        }
+
+        DensityMap enumerate() {
+            if (n == 0 || hasEmptyCandidates()) {
+                return toDensityMap(newCounts(), n == 0 && totalHits == 0 ? 1 : 0, true);
+            }
+            long[][] counts = new EnumerationTask(this, 0, candidates[0].length).invoke();
+            long total = 0;
+            for (long count : counts[0]) {
+                total += count; // Her yerleşim ilk gemi için tam bir kez sayılır
+            }
+            return toDensityMap(counts, total, true);
+        }
+
+        /**
+         * k. gemiden itibaren derinlik öncelikli arama; {@code blocked*} yerleştirilmiş gemilerin komşuluk
+         * alanları, {@code covered*} kapladıkları hücrelerdir. Son gemi döngüde sayılır; önceki gemilerin
+         * sayaçları yaprak başına değil, geçerli son konum sayısı kadar bir kez artırılır.
+         */
+        void search(int k, long blockedLo, long blockedHi, long coveredLo, long coveredHi, int[] chosen, long[][] counts) {
+            long uncoveredLo = hitLo & ~coveredLo;
+            long uncoveredHi = hitHi & ~coveredHi;
+            if (k == n) {
+                if ((uncoveredLo | uncoveredHi) == 0) {
+                    for (int j = 0; j < n; j++) {
+                        counts[j][chosen[j]]++;
+                    }
+                }
+                return;
+            }
+            if (Long.bitCount(uncoveredLo) + Long.bitCount(uncoveredHi) > suffixLength[k]) {
+                return; // Kalan gemiler açıklanmamış isabetlerin hepsini kaplayamaz
+            }
+            long[] fLo = footLo[k];
+            long[] fHi = footHi[k];
+            // Aynı uzunluktaki gemiler artan aday sırasıyla seçilir; her yerleşim bir kez sayılır
+            int start = sameAsPrevious[k] ? chosen[k - 1] + 1 : 0;
+            if (k == n - 1) {
+                long[] last = counts[k];
+                long valid = 0;
+                for (int i = start; i < fLo.length; i++) {
+                    if (((fLo[i] & blockedLo) | (fHi[i] & blockedHi)) == 0
+                            && ((uncoveredLo & ~fLo[i]) | (uncoveredHi & ~fHi[i])) == 0) {
+                        last[i]++;
+                        valid++;
+                    }
+                }
+                if (valid != 0) {
+                    for (int j = 0; j < k; j++) {
+                        counts[j][chosen[j]] += valid;
+                    }
+                }
+                return;
+            }
+            long[] zLo = zoneLo[k];
+            long[] zHi = zoneHi[k];
+            for (int i = start; i < fLo.length; i++) {
+                if (((fLo[i] & blockedLo) | (fHi[i] & blockedHi)) != 0) {
+                    continue;
+                }
+                chosen[k] = i;
+                search(k + 1, blockedLo | zLo[i], blockedHi | zHi[i], coveredLo | fLo[i], coveredHi | fHi[i], chosen, counts);
+            }
+        }
+
+        DensityMap sample(int samples, long seed) {
+            if (n == 0 || hasEmptyCandidates()) {
+                return toDensityMap(newCounts(), n == 0 && totalHits == 0 ? 1 : 0, n == 0);
+            }
+            HitCovers covers = HitCovers.build(this);
+            if (covers != null && covers.size() == 0) {
+                return toDensityMap(newCounts(), 0, true); // İsabetleri açıklayan hiçbir yerleşim yok
+            }
+            int chunks = (samples + SAMPLE_CHUNK - 1) / SAMPLE_CHUNK;
+            SplittableRandom root = new SplittableRandom(seed);
+            SplittableRandom[] streams = new SplittableRandom[chunks];
+            for (int i = 0; i < chunks; i++) {
+                streams[i] = root.split();
+            }
+
+            long[][][] results = IntStream.range(0, chunks).parallel()
+                    .mapToObj(chunk -> sampleChunk(streams[chunk], Math.min(SAMPLE_CHUNK, samples - chunk * SAMPLE_CHUNK), covers))
+                    .toArray(long[][][]::new);
+            long[][] counts = newCounts();
+            for (long[][] result : results) {
+                addCounts(counts, result);
+            }
+            long total = 0;
+            for (long count : counts[0]) {
+                total += count;
+            }
+            return toDensityMap(counts, total, false);
+        }
+
+        private long[][] sampleChunk(SplittableRandom random, int target, HitCovers covers) {
+            long[][] counts = newCounts();
+            int[] chosen = new int[n];
+            long maxAttempts = (long) target * MAX_ATTEMPTS_PER_SAMPLE;
+            int accepted = 0;
+            for (long attempt = 0; attempt < maxAttempts && accepted < target; attempt++) {
+                boolean ok;
+                if (covers != null) {
+                    ok = tryCompletion(random, chosen, covers);
+                } else {
+                    ok = footLo != null ? tryLayoutMasks(random, chosen) : tryLayout(random, chosen);
+                }
+                if (ok) {
+                    accepted++;
+                    for (int k = 0; k < n; k++) {
+                        counts[k][chosen[k]]++;
+                    }
+                }
+            }
+            return counts;
+        }
+
+        /**
+         * İsabetleri kaplayan kısmi yerleşimlerden birini ağırlığıyla seçer, kalan gemileri HIT kaplamayan
+         * adaylarından düzgün seçer; çakışma veya temas olursa yerleşimin tamamı reddedilir.
+         * Önerinin olasılığı her tutarlı yerleşim için aynıdır (bkz. {@link HitCovers}), bu yüzden kabul edilenler
+         * düzgün dağılır.
+         */
+        private boolean tryCompletion(SplittableRandom random, int[] chosen, HitCovers covers) {
+            int cover = covers.pick(random, chosen);
+            long blockedLo = covers.blockedLo(cover);
+            long blockedHi = covers.blockedHi(cover);
+            for (int k = 0; k < n; k++) {
+                if (chosen[k] >= 0) {
+                    continue;
+                }
+                int[] free = freeCandidates[k];
+                int i = free[random.nextInt(free.length)];
+                if (footLo != null) {
+                    if (((footLo[k][i] & blockedLo) | (footHi[k][i] & blockedHi)) != 0) {
+                        return false;
+                    }
+                    blockedLo |= zoneLo[k][i];
+                    blockedHi |= zoneHi[k][i];
+                } else {
+                    for (int m = 0; m < n; m++) {
+                        if (chosen[m] >= 0 && touches(k, i, m, chosen[m])) {
+                            return false;
+                        }
+                    }
+                }
+                chosen[k] = i;
+            }
+            return true;
+        }
+
+        /**
+         * Her gemi için adaylarından düzgün bir seçim yapar; çakışma, temas veya açıklanmamış isabet kalırsa
+         * yerleşimin tamamı reddedilir. İsabet kaplayan kısmi yerleşim sayısı çok büyükse kullanılır.
+         */
+        private boolean tryLayoutMasks(SplittableRandom random, int[] chosen) {
+            long blockedLo = 0L;
+            long blockedHi = 0L;
+            long coveredLo = 0L;
+            long coveredHi = 0L;
+            for (int k = 0; k < n; k++) {
+                int i = random.nextInt(candidates[k].length);
+                if (((footLo[k][i] & blockedLo) | (footHi[k][i] & blockedHi)) != 0) {
+                    return false;
+                }
+                blockedLo |= zoneLo[k][i];
+                blockedHi |= zoneHi[k][i];
+                coveredLo |= footLo[k][i];
+                coveredHi |= footHi[k][i];
+                chosen[k] = i;
+            }
+            return ((hitLo & ~coveredLo) | (hitHi & ~coveredHi)) == 0;
+        }
+
+        /**
+         * {@link #tryLayoutMasks} ile aynı örnekleme, büyük tahtalar için dikdörtgen testiyle. Gemiler çakışmadığından
+         * kaplanan isabet sayılarının toplamı tüm isabetlere eşitse her isabet kaplanmıştır.
+         */
+        private boolean tryLayout(SplittableRandom random, int[] chosen) {
+            int covered = 0;
+            for (int k = 0; k < n; k++) {
+                int i = random.nextInt(candidates[k].length);
+                for (int m = 0; m < k; m++) {
+                    if (touches(k, i, m, chosen[m])) {
+                        return false;
+                    }
+                }
+                covered += hitCount[k][i];
+                chosen[k] = i;
+            }
+            return covered == totalHits;
+        }
+
+        /**
+         * k. geminin i. adayı ile m. geminin j. adayı çakışıyor veya temas ediyor mu?
+         */
+        boolean touches(int k, int i, int m, int j) {
+            if (footLo != null) {
+                return ((footLo[k][i] & zoneLo[m][j]) | (footHi[k][i] & zoneHi[m][j])) != 0;
+            }
+            // Bir hücre genişletilmiş dikdörtgenler kesişiyorsa gemiler çakışır veya temas eder
+            return r0[k][i] <= r1[m][j] + 1 && r0[m][j] <= r1[k][i] + 1
+                    && c0[k][i] <= c1[m][j] + 1 && c0[m][j] <= c1[k][i] + 1;
+        }
+
+        /**
+         * k. geminin i. adayı verilen hücreyi kaplıyor mu?
+         */
+        boolean covers(int k, int i, int cell) {
+            if (footLo != null) {
+                return cell < 64 ? (footLo[k][i] & (1L << cell)) != 0 : (footHi[k][i] & (1L << (cell - 64))) != 0;
+            }
+            int row = cell / cols;
+            int col = cell % cols;
+            return row >= r0[k][i] && row <= r1[k][i] && col >= c0[k][i] && col <= c1[k][i];
+        }
+
+        /**
+         * Aday başına sayımları hücre sayımlarına açar ve en iyi atış hücresini seçer.
+         */
+        private DensityMap toDensityMap(long[][] candidateCounts, long total, boolean exact) {
+            long[] cellCounts = new long[rows * cols];
+            for (int k = 0; k < n; k++) {
+                int length = lengths[k];
+                for (int i = 0; i < candidateCounts[k].length; i++) {
+                    long count = candidateCounts[k][i];
+                    if (count == 0) {
+                        continue;
+                    }
+                    int start = placementStart(length, candidates[k][i]);
+                    int step = start >= 0 ? 1 : cols;
+                    int cell = start >= 0 ? start : -start - 1;
+                    for (int s = 0; s < length; s++, cell += step) {
+                        cellCounts[cell] += count;
+                    }
+                }
+            }
+            int best = -1;
+            for (int cell = 0; cell < cellCounts.length; cell++) {
+                if (unknown[cell] && (best < 0 || cellCounts[cell] > cellCounts[best])) {
+                    best = cell;
+                }
+            }
+            return new DensityMap(rows, cols, cellCounts, total, exact, best);
+        }
+    }
+
+    /**
+     * Tüm isabetleri kaplayan kısmi yerleşimler: hangi gemilerin hangi konumlarla isabetleri açıkladığı.
+     * <p>
+     * Her tutarlı yerleşim, isabet kaplayan gemileri tek bir kısmi yerleşim A'ya, kalan gemileri ise HIT
+     * kaplamayan adaylara ayrışır. A, serbest gemilerin aday sayıları çarpımı w(A) ile orantılı seçilir ve serbest
+     * gemiler düzgün seçilirse her yerleşimin önerilme olasılığı 1/Σw olur; reddedilmeyenler tam olarak düzgündür.
+     * İsabetlerin yanlışlıkla kaplanmasını beklemek gerekmediğinden hedefleme aşamasında kabul oranı yüksek kalır.
+     */
+    private static final class HitCovers {
+        private static final int MAX_COVERS = 1 << 18; // Daha fazlasında düz red örneklemesine dönülür
+
+        private final Problem problem;
+        private final int[] hitCells;
+        private final int[][] hitCandidates; // [gemi] -> en az bir HIT kaplayan adayların indeksleri
+        private int[] chosen = new int[64]; // Düz dizi: [kısmi yerleşim * n + gemi] -> aday indeksi, serbestse -1
+        private long[] blockedLo = new long[16]; // Kısmi yerleşimdeki gemilerin komşuluk alanları (maske yolu)
+        private long[] blockedHi = new long[16];
+        private double[] cumulativeWeight = new double[16];
+        private int size;
+
+        private HitCovers(Problem problem) {
+            this.problem = problem;
+            hitCells = new int[problem.totalHits];
+            for (int cell = 0, h = 0; h < hitCells.length; cell++) {
+                if (problem.hit[cell]) {
+                    hitCells[h++] = cell;
+                }
+            }
+            hitCandidates = new int[problem.n][];
+            for (int k = 0; k < problem.n; k++) {
+                int[] list = new int[problem.candidates[k].length];
+                int count = 0;
+                for (int i = 0; i < list.length; i++) {
+                    if (problem.hitCount[k][i] > 0) {
+                        list[count++] = i;
+                    }
+                }
+                hitCandidates[k] = Arrays.copyOf(list, count);
+            }
+        }
+
+        /**
+         * Kısmi yerleşimleri sayar; sayı {@link #MAX_COVERS} sınırını aşarsa null döner.
+         */
+        static HitCovers build(Problem problem) {
+            HitCovers covers = new HitCovers(problem);
+            int[] current = new int[problem.n];
+            Arrays.fill(current, -1);
+            return covers.collect(current, new int[covers.hitCells.length]) ? covers : null;
+        }
+
+        /**
+         * İlk kaplanmamış isabeti kaplayabilecek her (gemi, aday) için dallanır. Her kısmi yerleşimde o isabeti
+         * tam bir gemi kapladığından her biri bir kez üretilir. Aynı uzunluktaki gemiler birbirinin yerine
+         * geçebildiğinden gruptaki ilk boş gemi kullanılır; ağırlık serbest kalan grup üyelerinin sıralamalarına
+         * bölünür, böylece hücre düzeyindeki her yerleşim yine eşit olasılık alır.
+         */
+        private boolean collect(int[] current, int[] coverCount) {
+            int h = 0;
+            while (h < hitCells.length && coverCount[h] > 0) {
+                h++;
+            }
+            if (h == hitCells.length) {
+                return add(current);
+            }
+            for (int k = 0; k < problem.n; k++) {
+                if (current[k] >= 0 || (problem.sameAsPrevious[k] && current[k - 1] < 0)) {
+                    continue;
+                }
+                for (int i : hitCandidates[k]) {
+                    if (!problem.covers(k, i, hitCells[h]) || touchesCurrent(current, k, i)) {
+                        continue;
+                    }
+                    current[k] = i;
+                    updateCoverCount(coverCount, k, i, 1);
+                    boolean ok = collect(current, coverCount);
+                    updateCoverCount(coverCount, k, i, -1);
+                    current[k] = -1;
+                    if (!ok) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private boolean add(int[] current) {
+            int n = problem.n;
+            double weight = 1;
+            int freeInGroup = 0;
+            for (int k = 0; k < n; k++) {
+                freeInGroup = problem.sameAsPrevious[k] ? freeInGroup : 0;
+                if (current[k] < 0) {
+                    freeInGroup++;
+                    weight = weight * problem.freeCandidates[k].length / freeInGroup;
+                }
+            }
+            if (weight == 0) {
+                return true; // Serbest bir geminin hiç adayı yok
+            }
+            if (size == MAX_COVERS) {
+                return false;
+            }
+            if (size == cumulativeWeight.length) {
+                int capacity = size * 2;
+                chosen = Arrays.copyOf(chosen, capacity * n);
+                blockedLo = Arrays.copyOf(blockedLo, capacity);
+                blockedHi = Arrays.copyOf(blockedHi, capacity);
+                cumulativeWeight = Arrays.copyOf(cumulativeWeight, capacity);
+            }
+            if (chosen.length < (size + 1) * n) {
+                chosen = Arrays.copyOf(chosen, cumulativeWeight.length * n);
+            }
+            System.arraycopy(current, 0, chosen, size * n, n);
+            if (problem.footLo != null) {
+                for (int k = 0; k < n; k++) {
+                    int i = current[k];
+                    if (i >= 0) {
+                        blockedLo[size] |= problem.zoneLo[k][i];
+                        blockedHi[size] |= problem.zoneHi[k][i];
+                    }
+                }
+            }
+            cumulativeWeight[size] = (size == 0 ? 0 : cumulativeWeight[size - 1]) + weight;
+            size++;
+            return true;
+        }
+
+        private boolean touchesCurrent(int[] current, int k, int i) {
+            for (int m = 0; m < problem.n; m++) {
+                if (current[m] >= 0 && problem.touches(k, i, m, current[m])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void updateCoverCount(int[] coverCount, int k, int i, int delta) {
+            for (int h = 0; h < hitCells.length; h++) {
+                if (problem.covers(k, i, hitCells[h])) {
+                    coverCount[h] += delta;
+                }
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Ağırlıkla orantılı bir kısmi yerleşim seçer, gemi seçimlerini {@code out}'a kopyalar ve indeksini döndürür.
+         */
+        int pick(SplittableRandom random, int[] out) {
+            double target = random.nextDouble() * cumulativeWeight[size - 1];
+            int index = Arrays.binarySearch(cumulativeWeight, 0, size, target);
+            index = Math.min(index >= 0 ? index + 1 : -index - 1, size - 1);
+            System.arraycopy(chosen, index * problem.n, out, 0, problem.n);
+            return index;
+        }
+
+        long blockedLo(int index) {
+            return blockedLo[index];
+        }
+
+        long blockedHi(int index) {
+            return blockedHi[index];
+        }
+    }
+
+    /**
+     * Tam sayımı ilk geminin adayları üzerinden ikiye bölerek çekirdeklere dağıtır; her yaprak görev
+     * ilk geminin tek bir konumu altındaki tüm yerleşimleri sayar.
+     */
+    private static final class EnumerationTask extends RecursiveTask<long[][]> {
+        private static final long serialVersionUID = 1L; // ForkJoinTask is Serializable; tasks are never serialized
+        private final transient Problem problem;
+        private final int from;
+        private final int to;
+
+        EnumerationTask(Problem problem, int from, int to) {
+            this.problem = problem;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[][] compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                EnumerationTask left = new EnumerationTask(problem, from, mid);
+                left.fork();
+                long[][] counts = new EnumerationTask(problem, mid, to).compute();
+                Problem.addCounts(counts, left.join());
+                return counts;
+            }
+            long[][] counts = problem.newCounts();
+            if (from < to) {
+                int[] chosen = new int[problem.n];
+                chosen[0] = from;
+                problem.search(1, problem.zoneLo[0][from], problem.zoneHi[0][from],
+                        problem.footLo[0][from], problem.footHi[0][from], chosen, counts);
+            }
+            return counts;
+        }
+    }
+}
@@ -1,34 +1,40 @@
 package shared;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.List;
-import java.util.Objects;
 
 /**
  * Amiral Battı oyunundaki bir gemiyi temsil eder.
  * Uzunluk, pozisyon, yönelim ve isabet durumunu tutar.
+ * <p>
+ * Kaplanan hücreler liste olarak saklanmaz; başlangıç hücresi, yön ve uzunluktan hesaplanır.
+ * İsabetler, geminin i. hücresi için i. biti set edilen bir {@code long} maskede tutulur.
  */
 public class Ship {
 
+    private static final int MAX_LENGTH = Long.SIZE; // İsabet maskesi tek bir long
+
     private final int size; // Geminin uzunluğu (kaç hücre kapladığı)
     private int startRow;          // Geminin başlangıç satırı (-1 ise yerleştirilmemiş)
     private int startCol;          // Geminin başlangıç sütunu (-1 ise yerleştirilmemiş)
     private boolean horizontal; // Geminin yönelimi (true: yatay, false: dikey)
-    private int hitCount;     // Geminin kaç parçasının vurulduğu
+    private long hitMask;     // Vurulan parçalar (bit i: geminin i. hücresi)
     private ShipType shipType; // Geminin türü (örneğin: destroyer, battleship)
-    private final List<CellCoordinate> occupiedCells; // Geminin kapladığı hücre koordinatları
+    private final List<CellCoordinate> occupiedCellsView = new OccupiedCellsView(); // Kopyasız, salt okunur görünüm
 
 
     public Ship(int row, int col, int length, boolean isHorizontal, ShipType type) {
         if (length <= 0) {
             throw new IllegalArgumentException("Gemi uzunluğu pozitif olmalıdır.");
         }
+        if (length > MAX_LENGTH) {
+            throw new IllegalArgumentException("Gemi uzunluğu en fazla " + MAX_LENGTH + " olabilir.");
+        }
         this.size = length;
         this.startRow = row;
         this.startCol = col;
         this.horizontal = isHorizontal;
-        this.hitCount = 0;
-        this.occupiedCells = new ArrayList<>();
+        this.hitMask = 0L;
         this.shipType = type;
 
     }
@@ -54,8 +60,22 @@ public class Ship {
     public ShipType getType() {
         return shipType;
     }
+
+    /**
+     * Geminin belirtilen hücreyi kaplayıp kaplamadığını kontrol eder.
+     * @return Hücre geminin üzerindeyse true.
+     */
     public boolean isHitAt(int row, int col) {
-        return occupiedCells.contains(new CellCoordinate(row, col));
+        return cellOffset(row, col) >= 0;
+    }
+
+    /**
+     * Belirtilen hücredeki gemi parçasının vurulup vurulmadığını döndürür.
+     * @return Hücre gemiye aitse ve vurulmuşsa true.
+     */
+    public boolean isCellHit(int row, int col) {
+        int offset = cellOffset(row, col);
+        return offset >= 0 && (hitMask & (1L << offset)) != 0;
     }
 
     /**
@@ -68,19 +88,39 @@ public class Ship {
 
     /**
      * Geminin tamamen batıp batmadığını kontrol eder.
-     * @return Vurulan parça sayısı geminin uzunluğuna eşit veya büyükse true, değilse false.
+     * @return Tüm parçaları vurulmuşsa true, değilse false.
      */
     public boolean isSunk() {
-        return hitCount >= size;
+        return hitMask == fullMask();
+    }
+
+    /**
+     * Geminin kaç parçasının vurulduğunu döndürür.
+     */
+    public int getHitCount() {
+        return Long.bitCount(hitMask);
     }
 
     /**
      * Geminin kapladığı hücrelerin koordinat listesini döndürür.
-     * @return Koordinat listesi (değiştirilemez bir kopya).
+     * @return Koordinat listesi (kopya değil, değiştirilemez bir görünüm; pozisyon değişirse güncel hücreleri gösterir).
      */
     public List<CellCoordinate> getOccupiedCells() {
-        // Dışarıdan listenin değiştirilmesini önlemek için kopya döndür
-        return new ArrayList<>(occupiedCells);
+        return occupiedCellsView;
+    }
+
+    /**
+     * Geminin i. hücresinin satırını döndürür (nesne oluşturmadan hücre gezmek için).
+     */
+    public int getCellRow(int i) {
+        return horizontal ? startRow : startRow + i;
+    }
+
+    /**
+     * Geminin i. hücresinin sütununu döndürür (nesne oluşturmadan hücre gezmek için).
+     */
+    public int getCellCol(int i) {
+        return horizontal ? startCol + i : startCol;
     }
 
 
@@ -94,7 +134,6 @@ public class Ship {
     public void setPosition(int row, int col) {
         this.startRow = row;
         this.startCol = col;
-        recalculateOccupiedCells(); // Pozisyon değiştiğinde hücreleri güncelle
     }
 
     /**
@@ -103,41 +142,71 @@ public class Ship {
      */
     public void setOrientation(boolean horizontal) {
         this.horizontal = horizontal;
-         recalculateOccupiedCells(); // Yönelim değiştiğinde hücreleri güncelle
     }
 
     // --- Actions ---
 
     /**
      * Gemiye bir isabet kaydedildiğini belirtir.
-     * Vurulan parça sayısını artırır.
+     * Konum bilinmediğinde henüz vurulmamış ilk parçayı vurulmuş sayar.
      */
     public void registerHit() {
         if (!isSunk()) { // Zaten batmışsa sayacı artırma
-            this.hitCount++;
+            this.hitMask |= this.hitMask + 1; // En düşük sıfır biti set et
+        }
+    }
+
+    /**
+     * Belirtilen hücredeki gemi parçasını vurulmuş olarak işaretler.
+     * @return Hücre gemiye aitse ve daha önce vurulmamışsa true.
+     */
+    public boolean registerHit(int row, int col) {
+        int offset = cellOffset(row, col);
+        if (offset < 0) {
+            return false;
+        }
+        long bit = 1L << offset;
+        if ((hitMask & bit) != 0) {
+            return false; // Aynı parçaya ikinci isabet sayılmaz
         }
+        hitMask |= bit;
+        return true;
     }
 
     /**
-     * Geminin kapladığı hücre listesine bir koordinat ekler.
-     * Bu genellikle Board.placeShip tarafından çağrılır.
-     * @param r Eklenen hücrenin satırı.
-     * @param c Eklenen hücrenin sütunu.
+     * Hücrenin gemi üzerindeki sırasını (0..size-1) döndürür; gemiye ait değilse -1.
      */
-    protected void addOccupiedCell(int r, int c) {
-        this.occupiedCells.add(new CellCoordinate(r, c));
-    }
-
-     /**
-      * Pozisyon veya yönelim değiştiğinde kaplanan hücre listesini temizler ve yeniden hesaplar.
-      * Bu metod, setPosition veya setOrientation çağrıldığında otomatik olarak çağrılır.
-      */
-    private void recalculateOccupiedCells() {
-        occupiedCells.clear(); // Önceki hücreleri temizle
-        for (int i = 0; i < size; i++) {
-            int r = horizontal ? startRow : startRow + i;
-            int c = horizontal ? startCol + i : startCol;
-            occupiedCells.add(new CellCoordinate(r, c));
+    private int cellOffset(int row, int col) {
+        int offset;
+        if (horizontal) {
+            if (row != startRow) return -1;
+            offset = col - startCol;
+        } else {
+            if (col != startCol) return -1;
+            offset = row - startRow;
+        }
+        return offset >= 0 && offset < size ? offset : -1;
+    }
+
+    private long fullMask() {
+        return size == MAX_LENGTH ? -1L : (1L << size) - 1;
+    }
+
+    /**
+     * Geminin hücrelerini başlangıç/uzunluk aritmetiği ile gösteren salt okunur liste.
+     */
+    private class OccupiedCellsView extends AbstractList<CellCoordinate> {
+        @Override
+        public CellCoordinate get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return new CellCoordinate(getCellRow(index), getCellCol(index));
+        }
+
+        @Override
+        public int size() {
+            return size;
         }
     }
 
@@ -168,7 +237,7 @@ public class Ship {
 
         @Override
         public int hashCode() {
-            return Objects.hash(row, col);
+            return 31 * row + col;
         }
 
         @Override
@@ -176,4 +245,4 @@ public class Ship {
             return "(" + row + "," + col + ")";
         }
     }
-}
\ No newline at end of file
+}
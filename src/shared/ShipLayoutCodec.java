@@ -0,0 +1,191 @@
+package shared;
+
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Filo yerleşimlerinin (SHIPS_READY, MY_SHIPS, OPPONENT_SHIPS) sabit boyutlu, sıkıştırılmış kodlaması.
+ * <p>
+ * Her gemi {@link #BYTES_PER_SHIP} bayttır: {@code [tip << 1 | yatay][satır (2 bayt)][sütun (2 bayt)]}.
+ * Boyut tipten çıkar; tip açıkça yazıldığı için aynı boyuttaki gemiler (CRUISER/SUBMARINE) gidiş-dönüşte
+ * karışmaz. Kodlama ve gemi alanlarını okuma çağıranın dizisi üzerinde çalışır, nesne oluşturmaz.
+ * <p>
+ * Metin protokolünde yerleşim {@link #TEXT_PREFIX} ile başlayan Base64 (URL, dolgusuz) metni olarak taşınır;
+ * ikili çerçevelerde baytlar doğrudan yazılır. Eski {@code "row,col,size,H;..."} biçimi {@link #parse(String)}
+ * ile hâlâ okunur ve eski istemcilere {@link #toLegacyText(byte[])} ile gönderilir.
+ */
+public final class ShipLayoutCodec {
+    public static final int BYTES_PER_SHIP = 5;
+    public static final char TEXT_PREFIX = '~'; // Eski biçimde geçmeyen karakter
+
+    private static final ShipType[] SHIP_TYPES = ShipType.values();
+    private static final int MAX_COORDINATE = 0xFFFF;
+
+    private ShipLayoutCodec() {
+    }
+
+    /**
+     * Gemiyi {@code dst[offset..offset+5)} aralığına yazar.
+     *
+     * @return Yazılan son baytın bir sonrası.
+     */
+    public static int encode(Ship ship, byte[] dst, int offset) {
+        return encode(ship.getType(), ship.getRow(), ship.getCol(), ship.isHorizontal(), dst, offset);
+    }
+
+    public static int encode(ShipType type, int row, int col, boolean horizontal, byte[] dst, int offset) {
+        if (row < 0 || row > MAX_COORDINATE || col < 0 || col > MAX_COORDINATE) {
+            throw new IllegalArgumentException("Geçersiz gemi konumu: (" + row + "," + col + ")");
+        }
+        dst[offset] = (byte) (type.ordinal() << 1 | (horizontal ? 1 : 0));
+        dst[offset + 1] = (byte) (row >>> 8);
+        dst[offset + 2] = (byte) row;
+        dst[offset + 3] = (byte) (col >>> 8);
+        dst[offset + 4] = (byte) col;
+        return offset + BYTES_PER_SHIP;
+    }
+
+    /**
+     * Tüm filoyu kodlar.
+     */
+    public static byte[] encode(List<Ship> ships) {
+        byte[] layout = new byte[ships.size() * BYTES_PER_SHIP];
+        int offset = 0;
+        for (Ship ship : ships) {
+            offset = encode(ship, layout, offset);
+        }
+        return layout;
+    }
+
+    /**
+     * Kodlanmış yerleşimdeki gemi sayısı.
+     *
+     * @throws IllegalArgumentException Uzunluk gemi boyutunun katı değilse.
+     */
+    public static int shipCount(int length) {
+        if (length % BYTES_PER_SHIP != 0) {
+            throw new IllegalArgumentException("Geçersiz yerleşim uzunluğu: " + length);
+        }
+        return length / BYTES_PER_SHIP;
+    }
+
+    public static ShipType typeAt(byte[] layout, int index) {
+        int ordinal = (layout[index * BYTES_PER_SHIP] & 0xFF) >>> 1;
+        if (ordinal >= SHIP_TYPES.length) {
+            throw new IllegalArgumentException("Geçersiz gemi tipi: " + ordinal);
+        }
+        return SHIP_TYPES[ordinal];
+    }
+
+    public static boolean isHorizontalAt(byte[] layout, int index) {
+        return (layout[index * BYTES_PER_SHIP] & 1) != 0;
+    }
+
+    public static int rowAt(byte[] layout, int index) {
+        int offset = index * BYTES_PER_SHIP;
+        return (layout[offset + 1] & 0xFF) << 8 | (layout[offset + 2] & 0xFF);
+    }
+
+    public static int colAt(byte[] layout, int index) {
+        int offset = index * BYTES_PER_SHIP;
+        return (layout[offset + 3] & 0xFF) << 8 | (layout[offset + 4] & 0xFF);
+    }
+
+    /**
+     * {@code index}. gemiyi yeni bir {@link Ship} olarak döndürür.
+     */
+    public static Ship shipAt(byte[] layout, int index) {
+        ShipType type = typeAt(layout, index);
+        return new Ship(rowAt(layout, index), colAt(layout, index), type.getSize(), isHorizontalAt(layout, index), type);
+    }
+
+    /**
+     * Yerleşimi tahtaya yerleştirir. Her gemi tipi en fazla bir kez bulunabilir.
+     *
+     * @return Tekrarlanan tip veya kurala aykırı konum varsa false; bu durumda tahta temizlenir.
+     */
+    public static boolean placeAll(Board board, byte[] layout) {
+        board.resetBoard();
+        EnumSet<ShipType> placed = EnumSet.noneOf(ShipType.class);
+        try {
+            for (int i = 0; i < shipCount(layout.length); i++) {
+                Ship ship = shipAt(layout, i);
+                if (!placed.add(ship.getType()) || !board.placeShip(ship)) {
+                    board.resetBoard();
+                    return false;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            board.resetBoard();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Yerleşimi metin protokolü için {@code "~<base64>"} biçimine çevirir.
+     */
+    public static String toText(byte[] layout) {
+        return TEXT_PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(layout);
+    }
+
+    /**
+     * Yerleşimi eski istemcilerin anladığı {@code "row,col,size,H;..."} biçimine çevirir (gemi tipi kaybolur).
+     */
+    public static String toLegacyText(byte[] layout) {
+        StringBuilder text = new StringBuilder(layout.length * 3);
+        for (int i = 0; i < shipCount(layout.length); i++) {
+            text.append(rowAt(layout, i)).append(',')
+                    .append(colAt(layout, i)).append(',')
+                    .append(typeAt(layout, i).getSize()).append(',')
+                    .append(isHorizontalAt(layout, i) ? 'H' : 'V').append(';');
+        }
+        return text.toString();
+    }
+
+    public static boolean isCompactText(String text) {
+        return !text.isEmpty() && text.charAt(0) == TEXT_PREFIX;
+    }
+
+    /**
+     * Metin yerleşimini çözer: {@code "~<base64>"} veya eski {@code "row,col,size,H;..."} biçimi.
+     * Eski biçimde tip boyuttan bulunur; aynı boyuttaki tipler sırayla atanır (önce CRUISER, sonra SUBMARINE).
+     *
+     * @throws IllegalArgumentException Metin geçersizse.
+     */
+    public static byte[] parse(String text) {
+        if (isCompactText(text)) {
+            byte[] layout = Base64.getUrlDecoder().decode(text.substring(1));
+            for (int i = 0; i < shipCount(layout.length); i++) {
+                typeAt(layout, i); // Tipi doğrula
+            }
+            return layout;
+        }
+        String[] ships = text.isEmpty() ? new String[0] : text.split(";");
+        byte[] layout = new byte[ships.length * BYTES_PER_SHIP];
+        EnumSet<ShipType> remaining = EnumSet.allOf(ShipType.class);
+        int offset = 0;
+        for (String shipData : ships) {
+            String[] parts = shipData.split(",");
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Geçersiz gemi verisi: " + shipData);
+            }
+            int size = Integer.parseInt(parts[2]);
+            ShipType shipType = null;
+            for (ShipType type : remaining) {
+                if (type.getSize() == size) {
+                    shipType = type;
+                    break;
+                }
+            }
+            if (shipType == null) {
+                throw new IllegalArgumentException("Geçersiz gemi boyutu: " + size);
+            }
+            remaining.remove(shipType);
+            offset = encode(shipType, Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+                    parts[3].equalsIgnoreCase("H"), layout, offset);
+        }
+        return layout;
+    }
+}
@@ -0,0 +1,178 @@
+package shared;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Büyük tahtalar için parçalı depolama.
+ * Tahta 8x8'lik parçalara bölünür ve yalnızca gemi veya atış içeren parçalar bellekte tutulur;
+ * her parça durum başına tek bir {@code long} maske taşır. Böylece bellek kullanımı
+ * tahta alanıyla değil, gemi ve atış sayısıyla büyür.
+ * <p>
+ * Kopyalar yazma anında kopyalama (copy-on-write) ile alınır: kopya parça nesnelerini paylaşır ve bu
+ * depolama, paylaşılan bir parçaya ilk yazışta o parçayı klonlar.
+ */
+class SparseCellStore implements CellStore {
+    private static final int CHUNK_SHIFT = 3; // 8x8 parça
+    private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+
+    private final int chunkCols;
+    private final Map<Integer, Chunk> chunks;
+    private int generation; // Bu neslin altındaki parçalar bir kopyayla paylaşılıyor olabilir
+
+    SparseCellStore(int rows, int cols) {
+        this.chunkCols = (cols + CHUNK_MASK) >>> CHUNK_SHIFT;
+        this.chunks = new HashMap<>();
+    }
+
+    private SparseCellStore(SparseCellStore source) {
+        this.chunkCols = source.chunkCols;
+        this.chunks = new HashMap<>(source.chunks);
+    }
+
+    @Override
+    public int flags(int row, int col) {
+        Chunk chunk = chunks.get(chunkKey(row, col));
+        if (chunk == null) {
+            return 0;
+        }
+        long bit = 1L << bitIndex(row, col);
+        int flags = 0;
+        if ((chunk.shipBits & bit) != 0) flags |= SHIP;
+        if ((chunk.hitBits & bit) != 0) flags |= HIT;
+        if ((chunk.missBits & bit) != 0) flags |= MISS;
+        if ((chunk.sunkBits & bit) != 0) flags |= SUNK;
+        return flags;
+    }
+
+    @Override
+    public void setFlags(int row, int col, int flags) {
+        if (flags == 0 && !chunks.containsKey(chunkKey(row, col))) {
+            return; // Boş bir hücreyi boşaltmak için parça açmaya gerek yok
+        }
+        Chunk chunk = chunkFor(row, col);
+        long bit = 1L << bitIndex(row, col);
+        chunk.shipBits = (flags & SHIP) != 0 ? chunk.shipBits | bit : chunk.shipBits & ~bit;
+        chunk.hitBits = (flags & HIT) != 0 ? chunk.hitBits | bit : chunk.hitBits & ~bit;
+        chunk.missBits = (flags & MISS) != 0 ? chunk.missBits | bit : chunk.missBits & ~bit;
+        chunk.sunkBits = (flags & SUNK) != 0 ? chunk.sunkBits | bit : chunk.sunkBits & ~bit;
+    }
+
+    @Override
+    public void markShip(int row, int col, int length, boolean horizontal, int shipId) {
+        for (int i = 0; i < length; i++) {
+            int r = horizontal ? row : row + i;
+            int c = horizontal ? col + i : col;
+            Chunk chunk = chunkFor(r, c);
+            int bitIndex = bitIndex(r, c);
+            chunk.shipBits |= 1L << bitIndex;
+            if (chunk.shipIds == null) {
+                chunk.shipIds = new byte[1 << (2 * CHUNK_SHIFT)]; // Yalnızca gemi içeren parçalarda
+            }
+            chunk.shipIds[bitIndex] = (byte) shipId;
+        }
+    }
+
+    @Override
+    public int shipId(int row, int col) {
+        Chunk chunk = chunks.get(chunkKey(row, col));
+        if (chunk == null || chunk.shipIds == null) {
+            return 0;
+        }
+        return chunk.shipIds[bitIndex(row, col)];
+    }
+
+    /**
+     * Dikdörtgenin kestiği her parça için parça içi maske üretilip tek AND ile kontrol edilir.
+     */
+    @Override
+    public boolean isAnyOccupied(int fromRow, int fromCol, int toRow, int toCol) {
+        for (int chunkRow = fromRow >>> CHUNK_SHIFT; chunkRow <= toRow >>> CHUNK_SHIFT; chunkRow++) {
+            for (int chunkCol = fromCol >>> CHUNK_SHIFT; chunkCol <= toCol >>> CHUNK_SHIFT; chunkCol++) {
+                Chunk chunk = chunks.get(chunkRow * chunkCols + chunkCol);
+                if (chunk == null) {
+                    continue;
+                }
+                int r0 = Math.max(fromRow, chunkRow << CHUNK_SHIFT) & CHUNK_MASK;
+                int r1 = Math.min(toRow, (chunkRow << CHUNK_SHIFT) + CHUNK_MASK) & CHUNK_MASK;
+                int c0 = Math.max(fromCol, chunkCol << CHUNK_SHIFT) & CHUNK_MASK;
+                int c1 = Math.min(toCol, (chunkCol << CHUNK_SHIFT) + CHUNK_MASK) & CHUNK_MASK;
+                long rowMask = ((1L << (c1 - c0 + 1)) - 1) << c0;
+                long mask = 0L;
+                for (int r = r0; r <= r1; r++) {
+                    mask |= rowMask << (r << CHUNK_SHIFT);
+                }
+                long occupied = chunk.shipBits | chunk.hitBits | chunk.missBits | chunk.sunkBits;
+                if ((occupied & mask) != 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void clear() {
+        chunks.clear();
+    }
+
+    /**
+     * Parça haritasının sığ kopyasını alır; parçalar paylaşılır ve bu depolama onlara yazmadan önce klonlar.
+     * Maliyet tahta alanıyla değil, dolu parça sayısıyla orantılıdır.
+     */
+    @Override
+    public CellStore copy() {
+        generation++; // Mevcut tüm parçalar artık paylaşımlı
+        return new SparseCellStore(this);
+    }
+
+    private int chunkKey(int row, int col) {
+        return (row >>> CHUNK_SHIFT) * chunkCols + (col >>> CHUNK_SHIFT);
+    }
+
+    private static int bitIndex(int row, int col) {
+        return ((row & CHUNK_MASK) << CHUNK_SHIFT) | (col & CHUNK_MASK);
+    }
+
+    /**
+     * Yazılabilir parçayı döndürür: yoksa oluşturur, bir kopyayla paylaşılıyorsa önce klonlar.
+     */
+    private Chunk chunkFor(int row, int col) {
+        int key = chunkKey(row, col);
+        Chunk chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = new Chunk(generation);
+            chunks.put(key, chunk);
+        } else if (chunk.generation != generation) {
+            chunk = chunk.copy(generation);
+            chunks.put(key, chunk);
+        }
+        return chunk;
+    }
+
+    /**
+     * 8x8'lik bir tahta parçası: durum başına bir maske ve gerekiyorsa gemi indeksleri.
+     */
+    private static final class Chunk {
+        final int generation; // Parçayı oluşturan/klonlayan depolama nesli
+        long shipBits;
+        long hitBits;
+        long missBits;
+        long sunkBits;
+        byte[] shipIds;
+
+        Chunk(int generation) {
+            this.generation = generation;
+        }
+
+        Chunk copy(int newGeneration) {
+            Chunk copy = new Chunk(newGeneration);
+            copy.shipBits = shipBits;
+            copy.hitBits = hitBits;
+            copy.missBits = missBits;
+            copy.sunkBits = sunkBits;
+            copy.shipIds = shipIds != null ? shipIds.clone() : null;
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package server;
+
+import shared.PacketType;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Connection scaling check: starts a server in one {@link Server.IoMode}, opens many idle loopback clients and
+ * reports the thread and memory cost per connection.
+ * <pre>
+ * java -Xss1m server.ConnectionScaling [thread|virtual|nio] [clients]
+ * </pre>
+ * A diagnostic, not part of the shipped server; it lives in the {@code test} source root, in the server's package
+ * for access to its internals. It uses the server's fixed port and ends the JVM when done.
+ * Run once per mode, each in a fresh JVM, and compare the per-client figures. The clients live in the same process
+ * but share one selector thread that discards what they receive, so they add the same small cost in every mode.
+ * The lobby is switched off here: each new client's lobby list is a cost of lobby size, not of the I/O mode,
+ * and would dominate the run. Each connection uses two file descriptors, so raise {@code ulimit -n} for 10k clients.
+ */
+public final class ConnectionScaling {
+    private static final int PORT = 12345; // Server.PORT
+    private static final int DEFAULT_CLIENTS = 10_000;
+
+    private ConnectionScaling() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Server.IoMode mode = args.length > 0 ? Server.IoMode.valueOf(args[0].toUpperCase()) : Server.IoMode.fromProperty();
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CLIENTS;
+
+        long heapBefore = usedHeap();
+        long rssBefore = residentSetSize();
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        Server server = new Server(mode) {
+            @Override
+            void lobbyJoined(ClientHandler handler) {
+                // Measured separately; see the class comment
+            }
+        };
+        Thread serverThread = new Thread(server::start, "scaling-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        waitForServer();
+
+        Selector selector = Selector.open();
+        Thread drainer = new Thread(() -> drain(selector), "scaling-clients");
+        drainer.setDaemon(true);
+        drainer.start();
+
+        long greetedBefore = Server.PACKET_STATS.getSentCount(PacketType.CLIENT_ID);
+        List<SocketChannel> channels = new ArrayList<>(clients);
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < clients; i++) {
+                SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", PORT));
+                channel.configureBlocking(false);
+                channels.add(channel);
+                selector.wakeup();
+                channel.register(selector, SelectionKey.OP_READ);
+            }
+        } catch (IOException e) {
+            System.err.println("Stopped after " + channels.size() + " clients: " + e.getMessage());
+        }
+        int connected = channels.size();
+        // Every client counts once the server has sent it its CLIENT_ID
+        while (Server.PACKET_STATS.getSentCount(PacketType.CLIENT_ID) - greetedBefore < connected) {
+            Thread.sleep(50);
+        }
+        long connectMillis = (System.nanoTime() - start) / 1_000_000;
+
+        long heapAfter = usedHeap();
+        long rssAfter = residentSetSize();
+        int threadsAfter = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        System.out.println();
+        System.out.printf("mode=%s clients=%d connect+greet=%d ms%n", mode, connected, connectMillis);
+        System.out.printf("platform threads: %d -> %d (+%d)%n", threadsBefore, threadsAfter, threadsAfter - threadsBefore);
+        System.out.printf("heap used: %d -> %d KiB (%.1f KiB/client)%n",
+                heapBefore / 1024, heapAfter / 1024, perClient(heapAfter - heapBefore, connected));
+        if (rssBefore >= 0 && rssAfter >= 0) {
+            System.out.printf("resident memory: %d -> %d KiB (%.1f KiB/client)%n",
+                    rssBefore / 1024, rssAfter / 1024, perClient(rssAfter - rssBefore, connected));
+        } else {
+            System.out.println("resident memory: not available on this platform");
+        }
+        System.exit(0); // The server has no stop method; the JVM ends with it
+    }
+
+    private static void waitForServer() throws InterruptedException {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            try {
+                SocketChannel probe = SocketChannel.open(new InetSocketAddress("localhost", PORT));
+                probe.close(); // The probe shows up as one extra client that leaves at once
+                return;
+            } catch (ConnectException e) {
+                Thread.sleep(100);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        throw new IllegalStateException("Server did not start on port " + PORT);
+    }
+
+    /**
+     * Reads and discards everything the clients receive, so the server never blocks on a full socket buffer.
+     */
+    private static void drain(Selector selector) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        try {
+            while (true) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    buffer.clear();
+                    if (((SocketChannel) key.channel()).read(buffer) < 0) {
+                        key.cancel();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Client drain failed: " + e.getMessage());
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Resident set size from /proc (Linux); includes thread stacks, which the heap figure does not.
+     *
+     * @return Bytes, or -1 if unavailable.
+     */
+    private static long residentSetSize() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Not Linux
+        }
+        return -1;
+    }
+
+    private static double perClient(long bytes, int clients) {
+        return clients == 0 ? 0 : bytes / 1024.0 / clients;
+    }
+}
@@ -0,0 +1,188 @@
+package server;
+
+import shared.PacketConnection;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Stress test for the player-to-session index: races the two ways a session is published or torn down against a
+ * disconnect, and checks that no session is left behind for a player who is gone.
+ * <pre>
+ * java server.SessionIndexStress [rounds]
+ * </pre>
+ * <ul>
+ * <li>Invite accepted while one of the two players disconnects: either the game is never created, or it is created
+ * and then removed for both players.</li>
+ * <li>The winning shot while a player disconnects: game over and the disconnect both remove the session, and
+ * whichever runs second finds nothing left to do.</li>
+ * </ul>
+ * At the end every game shard used must own no games. Clients are handlers on a discarding output, so no sockets
+ * are opened. Exits with status 1 on the first inconsistency.
+ */
+public final class SessionIndexStress {
+    private static final String LAYOUT = "0,0,5,H;2,0,4,H;4,0,3,H;6,0,3,H;8,0,2,H";
+    // The cells of LAYOUT; firing only at these, the player on turn hits every time and wins without passing the turn
+    private static final int[][] SHIP_CELLS = {
+            {0, 0}, {0, 1}, {0, 2}, {0, 3}, {0, 4},
+            {2, 0}, {2, 1}, {2, 2}, {2, 3},
+            {4, 0}, {4, 1}, {4, 2},
+            {6, 0}, {6, 1}, {6, 2},
+            {8, 0}, {8, 1}};
+    private static final int DEFAULT_ROUNDS = 2000;
+    private static final long SETTLE_MILLIS = 5000;
+
+    private final Server server = new Server(Server.IoMode.THREAD);
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final Set<GameShard> shards = new HashSet<>();
+    private int nextClientId = 1;
+
+    private SessionIndexStress() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ROUNDS;
+        SessionIndexStress test = new SessionIndexStress();
+        test.server.startServices();
+
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // The server logs every step
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+        String result;
+        try {
+            for (int i = 0; i < rounds; i++) {
+                test.inviteAgainstDisconnect(i % 2 == 0);
+                test.gameOverAgainstDisconnect(i % 2 == 0);
+            }
+            test.checkShardsEmpty();
+            result = null;
+        } catch (AssertionError e) {
+            result = e.getMessage();
+        } finally {
+            System.setOut(out);
+            System.setErr(err);
+        }
+        if (result != null) {
+            System.err.println("FAILED: " + result);
+            System.exit(1);
+        }
+        System.out.println("OK: " + rounds + " rounds of each race, session index consistent.");
+        System.exit(0);
+    }
+
+    /**
+     * One player accepts an invitation while the inviter (or the player accepting) disconnects.
+     */
+    private void inviteAgainstDisconnect(boolean inviterLeaves) throws Exception {
+        ClientHandler inviter = connect();
+        ClientHandler invitee = connect();
+        int a = inviter.getClientId();
+        int b = invitee.getClientId();
+        server.handleInvitation(a, b, 10);
+
+        ClientHandler leaving = inviterLeaves ? inviter : invitee;
+        race(() -> server.handleInviteResponse(a, b, true), leaving::disconnected);
+        awaitNoSession("invite vs disconnect", a, b);
+
+        // The other player's reader would notice its closed connection, or it leaves the lobby later
+        (inviterLeaves ? invitee : inviter).disconnected();
+        awaitNoSession("invite vs disconnect, after both left", a, b);
+    }
+
+    /**
+     * The last shot of a game lands while one of its players disconnects.
+     */
+    private void gameOverAgainstDisconnect(boolean firstLeaves) throws Exception {
+        ClientHandler first = connect();
+        ClientHandler second = connect();
+        int a = first.getClientId();
+        int b = second.getClientId();
+        server.handleInvitation(a, b, 10);
+        server.handleInviteResponse(a, b, true);
+        GameSession session = server.findGameSessionByPlayerId(a);
+        check(session != null && session == server.findGameSessionByPlayerId(b), "game " + a + "/" + b + " not indexed");
+        shards.add(session.getShard());
+        server.handleShipsReady(a, LAYOUT);
+        server.handleShipsReady(b, LAYOUT);
+
+        ClientHandler leaving = firstLeaves ? first : second;
+        race(() -> session.execute(() -> {
+            for (int[] cell : SHIP_CELLS) {
+                session.processFireCommand(a, cell[0], cell[1]); // Only the player on turn is accepted
+                session.processFireCommand(b, cell[0], cell[1]);
+            }
+        }), leaving::disconnected);
+        awaitNoSession("game over vs disconnect", a, b);
+
+        (firstLeaves ? second : first).disconnected();
+        awaitNoSession("game over vs disconnect, after both left", a, b);
+    }
+
+    /**
+     * Asks each shard, on its own thread, how many games it still owns.
+     */
+    private void checkShardsEmpty() throws Exception {
+        for (GameShard shard : shards) {
+            CompletableFuture<Integer> games = new CompletableFuture<>();
+            shard.execute(() -> games.complete(shard.gameCount()));
+            int count = games.get(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+            check(count == 0, "a game shard still owns " + count + " finished games");
+        }
+    }
+
+    private ClientHandler connect() {
+        ClientHandler handler = new ClientHandler(nextClientId++,
+                new PacketConnection(() -> { }, OutputStream.nullOutputStream()), server);
+        server.addClient(handler);
+        return handler;
+    }
+
+    /**
+     * Runs both tasks at once, each on its own thread, and waits for both.
+     */
+    private void race(Runnable left, Runnable right) throws Exception {
+        CyclicBarrier start = new CyclicBarrier(2);
+        Thread other = new Thread(() -> runAfter(start, right));
+        other.start();
+        runAfter(start, left);
+        other.join();
+        Throwable thrown = failure.getAndSet(null);
+        if (thrown != null) {
+            throw new AssertionError("task failed: " + thrown, thrown);
+        }
+    }
+
+    private void runAfter(CyclicBarrier start, Runnable task) {
+        try {
+            start.await();
+            task.run();
+        } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    /**
+     * Teardown may still be queued on a game shard, so the index is given a moment to settle.
+     */
+    private void awaitNoSession(String race, int a, int b) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + SETTLE_MILLIS;
+        while (server.findGameSessionByPlayerId(a) != null || server.findGameSessionByPlayerId(b) != null) {
+            check(System.currentTimeMillis() < deadline,
+                    race + ": session left in the index for players " + a + " and " + b);
+            Thread.sleep(1);
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}